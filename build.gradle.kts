@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.5.5"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "edu.trincoll"
@@ -21,6 +22,13 @@ dependencies {
     // Spring Boot Starters
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-validation")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    // Reactive return types for ReactiveQuoteController, served by Spring MVC
+    implementation("io.projectreactor:reactor-core")
+    // Binary encodings for quote lists (Accept: application/cbor or application/x-jackson-smile)
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-cbor")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     
     // Development tools
     developmentOnly("org.springframework.boot:spring-boot-devtools")
@@ -48,6 +56,64 @@ tasks.withType<Test> {
     }
 }
 
+// Benchmarks: microbenchmarks of single components run under JMH (src/jmh/java); whole-process
+// measurements (heap, GC, HTTP against the running app) are programs in src/loadtest/java.
+//
+// JMH benchmarks live in src/jmh/java. Examples:
+//   ./gradlew jmh
+//   ./gradlew jmh -Pjmh.includes=QuoteSnapshotBenchmark -Pjmh.storeSizes=1000000
+//   ./gradlew jmh -Pjmh.threads=8 -Pjmh.storeSizes=1000,1000000 -Pjmh.includes=QuoteControllerBenchmark.getById
+//   ./gradlew jmh -Pjmh.threads=16 -Pjmh.shards=1,16 -Pjmh.includes=QuoteShardingBenchmark
+// Results are written as JSON to build/results/jmh/results-t<threads>.json, one file per thread count.
+jmh {
+    val threadCount = providers.gradleProperty("jmh.threads").getOrElse("1").toInt()
+    threads.set(threadCount)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.set(listOf("-Xmx4g"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results-t$threadCount.json"))
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.set(it.split(",")) }
+    providers.gradleProperty("jmh.storeSizes").orNull?.let {
+        benchmarkParameters.put("storeSize", objects.listProperty<String>().value(it.split(",")))
+    }
+    providers.gradleProperty("jmh.shards").orNull?.let {
+        benchmarkParameters.put("shards", objects.listProperty<String>().value(it.split(",")))
+    }
+}
+
+// Load generator and other whole-process benchmarks in src/loadtest/java, each a main class taking
+// key=value options, run against the app in-process (or, for loadTest, a server on localhost):
+//   ./gradlew loadTest -Ploadtest.args="mode=compare clients=10000 duration=30"
+//   ./gradlew footprintBenchmark -Ploadtest.args="quotes=1000000"
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations[loadtest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadtest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+fun registerLoadtest(name: String, mainClassName: String, text: String) = tasks.register<JavaExec>(name) {
+    description = text
+    group = "verification"
+    classpath = loadtest.runtimeClasspath
+    mainClass.set("edu.trincoll.tracker.$mainClassName")
+    maxHeapSize = "4g"
+    args(providers.gradleProperty("loadtest.args").getOrElse("").split(" ").filter { it.isNotBlank() })
+}
+
+registerLoadtest("loadTest", "LoadGenerator",
+    "Compares throughput and tail latency on platform vs virtual threads.")
+registerLoadtest("slowConsumerBenchmark", "SlowConsumerBenchmark",
+    "Compares heap and probe latency of the servlet and reactive listings under slow clients.")
+registerLoadtest("encodingBenchmark", "QuoteEncodingBenchmark",
+    "Compares payload size and latency of GET /api/items as JSON, CBOR and Smile, with and without gzip.")
+registerLoadtest("footprintBenchmark", "QuoteFootprintBenchmark",
+    "Compares the heap retained per quote by Quote objects and the store's compact form.")
+registerLoadtest("offHeapBenchmark", "QuoteOffHeapBenchmark",
+    "Compares heap use and GC work of the heap and off-heap store backends.")
+
 tasks.register("testReport") {
     dependsOn(tasks.test)
     doLast {
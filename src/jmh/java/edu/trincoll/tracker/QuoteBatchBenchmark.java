@@ -0,0 +1,99 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Operations per second through {@code POST /api/items/batch}, called directly
+ * on {@link QuoteController} with already parsed operations.
+ * <p>
+ * Scores are per operation, not per batch. The target is 40k ops/s for
+ * create-and-delete batches and 60k ops/s for update batches on one thread;
+ * every write keeps the n-gram, full-text, attribute and time indexes up to
+ * date, which is what bounds it. Run with {@code ./gradlew jmh -Pjmh.includes=QuoteBatchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QuoteBatchBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"100000"})
+    public int storeSize;
+
+    private QuoteController controller;
+    // Names handed to creates; never collide with the pre-filled ones
+    private final AtomicLong fresh = new AtomicLong();
+
+    /**
+     * Ids each thread created in its last batch, deleted by its next one.
+     */
+    @State(Scope.Thread)
+    public static class Created {
+        List<Long> ids = new ArrayList<>();
+    }
+
+    @Setup(Level.Trial)
+    public void fill() {
+        QuoteStore store = new QuoteStore();
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        QuoteJsonCache jsonCache = new QuoteJsonCache(store, mapper, DataSize.ofMegabytes(64));
+        controller = new QuoteController(store, mapper,
+                new QuoteMetrics(new SimpleMeterRegistry(), store, jsonCache, false), jsonCache);
+        for (int i = 0; i < storeSize; i++) {
+            store.create(QuoteControllerBenchmark.sample(i));
+        }
+    }
+
+    /**
+     * Half creates, half deletes of the previous batch's creates, keeping the store size steady.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object createAndDelete(Created created) {
+        List<QuoteBatch.Operation> operations = new ArrayList<>(BATCH_SIZE);
+        for (Long id : created.ids) {
+            operations.add(new QuoteBatch.Operation(QuoteBatch.Op.DELETE, id, null));
+        }
+        while (operations.size() < BATCH_SIZE) {
+            Quote quote = QuoteControllerBenchmark.sample(ThreadLocalRandom.current().nextInt(storeSize));
+            quote.setQuoteName("Fresh quote " + fresh.incrementAndGet());
+            operations.add(new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote));
+        }
+
+        List<QuoteBatch.Result> results = controller.batch(operations).getBody();
+        created.ids = new ArrayList<>(BATCH_SIZE / 2);
+        for (QuoteBatch.Result result : results) {
+            if (result.status() == 201 && created.ids.size() < BATCH_SIZE / 2) {
+                created.ids.add(result.item().getId());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Updates of random pre-filled quotes; the store's size and names don't change.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object update() {
+        List<QuoteBatch.Operation> operations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int slot = ThreadLocalRandom.current().nextInt(storeSize);
+            Quote quote = QuoteControllerBenchmark.sample(slot);
+            quote.setQuoteContent("Updated " + System.nanoTime());
+            operations.add(new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, slot + 1L, quote));
+        }
+        return controller.batch(operations);
+    }
+}
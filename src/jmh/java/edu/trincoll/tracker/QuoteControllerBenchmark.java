@@ -0,0 +1,143 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hot paths of {@link QuoteController}, called directly on a pre-filled store.
+ * <p>
+ * Run with {@code ./gradlew jmh}; see {@code build.gradle.kts} for the store
+ * sizes, thread count and where the JSON results go. The store is shared by
+ * all benchmark threads, so higher thread counts also measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuoteControllerBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int storeSize;
+
+    private QuoteController controller;
+    // Names handed to create(); never collide with the pre-filled ones
+    private final AtomicLong fresh = new AtomicLong();
+    // Current id of each pre-filled quote, since deleteThenCreate moves them to new ids
+    private AtomicLongArray ids;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        QuoteStore store = new QuoteStore();
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        QuoteJsonCache jsonCache = new QuoteJsonCache(store, mapper, DataSize.ofMegabytes(64));
+        controller = new QuoteController(store, mapper,
+                new QuoteMetrics(new SimpleMeterRegistry(), store, jsonCache, false), jsonCache);
+        ids = new AtomicLongArray(storeSize);
+        for (int i = 0; i < storeSize; i++) {
+            ids.set(i, store.create(sample(i)).quote().getId());
+        }
+    }
+
+    @Benchmark
+    public Object getById() {
+        return controller.getById(randomId(), null);
+    }
+
+    /**
+     * The whole list as the client receives it; between writes this is the cached encoding.
+     */
+    @Benchmark
+    public Object getAll() {
+        return controller.getAll(null, null, null);
+    }
+
+    /**
+     * The list right after a write, rebuilt from the per-quote cache with one quote re-encoded.
+     */
+    @Benchmark
+    public Object getAllAfterUpdate() {
+        update();
+        return controller.getAll(null, null, null);
+    }
+
+    @Benchmark
+    public Object getAllFirstPage() {
+        return controller.getAll(null, 100, null);
+    }
+
+    @Benchmark
+    public Object searchByName() {
+        return controller.searchByName("number " + ThreadLocalRandom.current().nextInt(storeSize));
+    }
+
+    /**
+     * Creates quotes under new names, so the store slowly grows during the run.
+     */
+    @Benchmark
+    public Object create() {
+        Quote quote = sample(0);
+        quote.setQuoteName("Fresh quote " + fresh.incrementAndGet());
+        return controller.create(quote);
+    }
+
+    /**
+     * The rejected path: the name is already taken.
+     */
+    @Benchmark
+    public Object createDuplicate() {
+        return controller.create(sample(ThreadLocalRandom.current().nextInt(storeSize)));
+    }
+
+    @Benchmark
+    public Object update() {
+        long id = randomId();
+        Quote quote = sample((int) id - 1);
+        quote.setQuoteContent("Updated " + System.nanoTime());
+        return controller.update(id, quote, null);
+    }
+
+    /**
+     * Deletes a quote and puts it back, keeping the store at its nominal size.
+     */
+    @Benchmark
+    public void deleteThenCreate(Blackhole blackhole) {
+        int slot = ThreadLocalRandom.current().nextInt(storeSize);
+        // Take the slot so no other thread deletes or recreates the same quote meanwhile
+        long id = ids.getAndSet(slot, 0);
+        if (id == 0) {
+            return;
+        }
+        blackhole.consume(controller.delete(id, null));
+        ids.set(slot, controller.create(sample(slot)).getBody().getId());
+    }
+
+    // Pre-filled quotes have ids 1..storeSize (only deleteThenCreate moves them)
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(storeSize) + 1;
+    }
+
+    static Quote sample(int i) {
+        Quote quote = new Quote();
+        quote.setQuoteName("Quote number " + i);
+        quote.setQuoteContent("The only thing we have to fear is fear itself, variation " + i);
+        quote.setAuthor("Author " + (i % 500));
+        quote.setSource("Source " + (i % 50));
+        quote.setCategory(switch (i % 5) {
+            case 0 -> "life";
+            case 1 -> "work";
+            case 2 -> "love";
+            case 3 -> "humor";
+            default -> "wisdom";
+        });
+        quote.setCompleted(i % 3 == 0);
+        return quote;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of one {@link Quote}, configured the way Spring Boot configures its mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QuoteJsonBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private Quote quote;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writerFor(Quote.class);
+        reader = mapper.readerFor(Quote.class);
+        quote = QuoteControllerBenchmark.sample(42);
+        quote.setId(42L);
+        json = writer.writeValueAsBytes(quote);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(quote);
+    }
+
+    @Benchmark
+    public Quote deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
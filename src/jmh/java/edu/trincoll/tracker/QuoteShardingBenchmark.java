@@ -0,0 +1,95 @@
+package edu.trincoll.tracker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link QuoteStore} by shard count, to show how it scales with cores.
+ * <p>
+ * Run once per thread count and compare the ops/ms across the result files, e.g.
+ * {@code for t in 1 2 4 8 16; do ./gradlew jmh -Pjmh.threads=$t -Pjmh.includes=QuoteShardingBenchmark; done}.
+ * Writes gain most: creators on different shards share only the name index.
+ * Queries trade the cost of fanning out for using more cores per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QuoteShardingBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int shards;
+
+    @Param({"100000"})
+    public int storeSize;
+
+    private QuoteStore store;
+    // Names handed to create(); never collide with the pre-filled ones
+    private final AtomicLong fresh = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        store = new QuoteStore(shards);
+        // Loaded with ids 1..n, so the quotes are spread over every shard's id blocks
+        List<Quote> quotes = new ArrayList<>(storeSize);
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        for (int i = 0; i < storeSize; i++) {
+            Quote quote = QuoteControllerBenchmark.sample(i);
+            quote.setId(i + 1L);
+            quote.setCreatedAt(start.plusSeconds(i));
+            quotes.add(quote);
+        }
+        store.load(quotes, storeSize + 1L);
+    }
+
+    /**
+     * A create followed by a delete of the same quote, keeping the store size steady.
+     */
+    @Benchmark
+    public boolean createThenDelete() {
+        Quote quote = QuoteControllerBenchmark.sample(ThreadLocalRandom.current().nextInt(storeSize));
+        quote.setQuoteName("Fresh " + fresh.incrementAndGet());
+        return store.delete(store.create(quote).quote().getId());
+    }
+
+    @Benchmark
+    public Object update() {
+        int i = ThreadLocalRandom.current().nextInt(storeSize);
+        return store.update(i + 1L, QuoteControllerBenchmark.sample(i));
+    }
+
+    @Benchmark
+    public Quote getById() {
+        return store.get(1 + ThreadLocalRandom.current().nextInt(storeSize));
+    }
+
+    @Benchmark
+    public Object query() {
+        return store.query(new QuoteStore.Filter("Author " + ThreadLocalRandom.current().nextInt(500), null, "life", null), 0, 100);
+    }
+
+    @Benchmark
+    public long count() {
+        return store.count(new QuoteStore.Filter(null, "Source " + ThreadLocalRandom.current().nextInt(50), null, true));
+    }
+
+    @Benchmark
+    public Object searchByName() {
+        return store.searchByName("number " + ThreadLocalRandom.current().nextInt(storeSize));
+    }
+
+    @Benchmark
+    public Object searchFullText() {
+        return store.searchFullText("fear variation " + ThreadLocalRandom.current().nextInt(storeSize), 20, 0);
+    }
+
+    @Benchmark
+    public Object page() {
+        return store.page(ThreadLocalRandom.current().nextInt(storeSize), 100);
+    }
+}
@@ -0,0 +1,100 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the binary snapshot against a Jackson dump of the same quotes.
+ * <p>
+ * Run with {@code ./gradlew jmh -Pjmh.includes=QuoteSnapshotBenchmark}
+ * (optionally {@code -Pjmh.storeSizes=1000000}). Decode is file to quote
+ * objects; load is decode plus rebuilding a fully indexed {@link QuoteStore}.
+ * The bytes per quote of each file are printed once the files are written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class QuoteSnapshotBenchmark {
+
+    @Param({"200000"})
+    public int storeSize;
+
+    private QuoteStore source;
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+    private Path directory;
+    private Path snapshot;
+    private Path json;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        source = new QuoteStore();
+        for (int i = 0; i < storeSize; i++) {
+            source.create(QuoteControllerBenchmark.sample(i));
+        }
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        snapshot = directory.resolve("quotes.bin");
+        json = directory.resolve("quotes.json");
+        snapshotWrite();
+        jsonWrite();
+        System.out.printf("%nbytes/quote: snapshot %.1f, jackson %.1f%n",
+                (double) Files.size(snapshot) / storeSize, (double) Files.size(json) / storeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(json);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public void snapshotWrite() throws IOException {
+        QuoteSnapshot.write(snapshot, source.nextId(), source.size(), source.values());
+    }
+
+    @Benchmark
+    public void jsonWrite() throws IOException {
+        try (OutputStream out = Files.newOutputStream(json)) {
+            mapper.writeValue(out, source.values());
+        }
+    }
+
+    @Benchmark
+    public Object snapshotDecode() throws IOException {
+        return QuoteSnapshot.read(snapshot);
+    }
+
+    @Benchmark
+    public Object jsonDecode() throws IOException {
+        try (InputStream in = Files.newInputStream(json)) {
+            return mapper.readValue(in, Quote[].class);
+        }
+    }
+
+    @Benchmark
+    public Object snapshotLoad() throws IOException {
+        QuoteSnapshot.Contents contents = QuoteSnapshot.read(snapshot);
+        QuoteStore store = new QuoteStore();
+        store.load(contents.quotes(), contents.nextId());
+        return store;
+    }
+
+    @Benchmark
+    public Object jsonLoad() throws IOException {
+        Quote[] quotes;
+        try (InputStream in = Files.newInputStream(json)) {
+            quotes = mapper.readValue(in, Quote[].class);
+        }
+        QuoteStore store = new QuoteStore();
+        store.load(Arrays.asList(quotes), quotes.length + 1L);
+        return store;
+    }
+}
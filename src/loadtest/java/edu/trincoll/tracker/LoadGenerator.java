@@ -0,0 +1,294 @@
+package edu.trincoll.tracker;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for the quote API: every simulated client runs
+ * on its own virtual thread and sends its next request as soon as the
+ * previous one is answered.
+ * <p>
+ * Run with {@code ./gradlew loadTest -Ploadtest.args="mode=compare clients=10000"}.
+ * Arguments (all {@code key=value}, all optional):
+ * <ul>
+ *   <li>{@code mode} - {@code compare} (default) starts the app in-process twice,
+ *       on platform and then on virtual threads; {@code platform} or
+ *       {@code virtual} runs one of them; {@code url} targets an already running
+ *       server given by {@code url}</li>
+ *   <li>{@code url} - base URL for {@code mode=url}, default {@code http://localhost:8080}</li>
+ *   <li>{@code clients} - concurrent clients, default 10000</li>
+ *   <li>{@code warmup} / {@code duration} - seconds, default 10 / 30</li>
+ *   <li>{@code quotes} - quotes seeded before the run, default 10000</li>
+ *   <li>{@code seed} - random seed, so runs are repeatable, default 42</li>
+ * </ul>
+ * Traffic is a fixed mix of reads, searches and writes (see {@link Op}).
+ * Ten thousand clients need as many open sockets on each side, so raise the
+ * file descriptor limit ({@code ulimit -n}) first.
+ */
+public final class LoadGenerator {
+
+    /**
+     * Request kinds with their share of the traffic, in percent.
+     */
+    private enum Op {
+        GET_BY_ID(45), GET_PAGE(10), SEARCH_NAME(10), SEARCH_TEXT(10), CREATE(12), UPDATE(10), DELETE(3);
+
+        final int weight;
+
+        Op(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final String[] WORDS = {"life", "work", "love", "humor", "wisdom", "fear", "time", "truth"};
+
+    private final Map<String, String> options;
+    private final int clients;
+    private final int quotes;
+    private final Duration warmup;
+    private final Duration duration;
+    private final long seed;
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+        this.clients = Integer.parseInt(options.getOrDefault("clients", "10000"));
+        this.quotes = Integer.parseInt(options.getOrDefault("quotes", "10000"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "42"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadGenerator(options).run(options.getOrDefault("mode", "compare"));
+    }
+
+    private void run(String mode) throws Exception {
+        List<Result> results = new ArrayList<>();
+        switch (mode) {
+            case "compare" -> {
+                results.add(inProcess(false));
+                results.add(inProcess(true));
+            }
+            case "platform" -> results.add(inProcess(false));
+            case "virtual" -> results.add(inProcess(true));
+            case "url" -> {
+                String url = options.getOrDefault("url", "http://localhost:8080");
+                results.add(drive("external", URI.create(url)));
+            }
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+
+        System.out.printf("%n%,d clients, %,d seeded quotes, %ds measured after %ds warmup%n",
+                clients, quotes, duration.toSeconds(), warmup.toSeconds());
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %10s %8s%n",
+                "threads", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (Result result : results) {
+            System.out.println(result.format());
+        }
+    }
+
+    /**
+     * Starts the application on a random port with the given thread mode and drives it.
+     */
+    private Result inProcess(boolean virtualThreads) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(TrackerApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                // Same connection limits for both modes, so only the threading differs
+                "--server.tomcat.max-connections=" + (clients + 1000),
+                "--server.tomcat.accept-count=" + clients,
+                // Every client comes from localhost; measure the thread model, not the limiter
+                "--tracker.admission.enabled=false",
+                "--logging.level.edu.trincoll=INFO");
+        try {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            return drive(virtualThreads ? "virtual" : "platform", URI.create("http://localhost:" + port));
+        } finally {
+            context.close();
+        }
+    }
+
+    private Result drive(String label, URI base) throws InterruptedException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(executor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            long maxId = seed(http, base);
+
+            AtomicLong errors = new AtomicLong();
+            AtomicLong nextId = new AtomicLong(maxId);
+            long measureFrom = System.nanoTime() + warmup.toNanos();
+            long stopAt = measureFrom + duration.toNanos();
+            List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+            Thread[] threads = new Thread[clients];
+            for (int c = 0; c < clients; c++) {
+                Client client = new Client(http, base, new Random(seed + c), nextId, errors, measureFrom, stopAt);
+                threads[c] = Thread.ofVirtual().name("client-" + c).start(() -> latencies.add(client.run()));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return Result.of(label, latencies, errors.get(), duration);
+        }
+    }
+
+    /**
+     * Creates the initial quotes through the batch endpoint and returns the highest id handed out.
+     */
+    private long seed(HttpClient http, URI base) throws InterruptedException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < quotes; i++) {
+            ndjson.append("{\"op\":\"create\",\"item\":").append(json("Seed " + i, i)).append("}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/api/items/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                .build();
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Seeding failed", e);
+        }
+        // Ids are handed out sequentially; on a server that already held quotes, some requests just miss
+        return quotes;
+    }
+
+    private static String json(String name, int variant) {
+        String word = WORDS[Math.floorMod(variant, WORDS.length)];
+        return "{\"name\":\"" + name + "\",\"description\":\"A quote about " + word + " number " + variant
+                + "\",\"author\":\"Author " + Math.floorMod(variant, 500) + "\",\"category\":\"" + word + "\"}";
+    }
+
+    /**
+     * One simulated client. Latencies are only recorded between {@code measureFrom} and {@code stopAt}.
+     */
+    private record Client(HttpClient http, URI base, Random random, AtomicLong nextId, AtomicLong errors,
+                          long measureFrom, long stopAt) {
+
+        long[] run() {
+            long[] latencies = new long[1024];
+            int count = 0;
+            long now;
+            while ((now = System.nanoTime()) < stopAt) {
+                Op op = pick();
+                boolean ok;
+                try {
+                    HttpResponse<Void> response = http.send(request(op), HttpResponse.BodyHandlers.discarding());
+                    ok = expected(op, response.statusCode());
+                } catch (IOException e) {
+                    ok = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                long end = System.nanoTime();
+                if (now >= measureFrom) {
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = end - now;
+                    if (!ok) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }
+            return Arrays.copyOf(latencies, count);
+        }
+
+        private Op pick() {
+            int roll = random.nextInt(100);
+            for (Op op : Op.values()) {
+                roll -= op.weight;
+                if (roll < 0) {
+                    return op;
+                }
+            }
+            return Op.GET_BY_ID;
+        }
+
+        private HttpRequest request(Op op) {
+            long id = 1 + (long) (random.nextDouble() * nextId.get());
+            int variant = random.nextInt(1_000_000);
+            return switch (op) {
+                case GET_BY_ID -> get("/api/items/" + id);
+                case GET_PAGE -> get("/api/items?after=" + id + "&limit=20");
+                case SEARCH_NAME -> get("/api/items/search?name=" + variant % 1000);
+                case SEARCH_TEXT -> get("/api/items/search/text?q=" + WORDS[variant % WORDS.length] + "&limit=10");
+                case CREATE -> send("POST", "/api/items", json("Load " + nextId.incrementAndGet() + "-" + variant, variant));
+                case UPDATE -> send("PUT", "/api/items/" + id, json("Updated " + id + "-" + variant, variant));
+                case DELETE -> HttpRequest.newBuilder(base.resolve("/api/items/" + id)).DELETE().build();
+            };
+        }
+
+        /**
+         * Misses and name clashes are normal under random traffic; only other statuses count as errors.
+         */
+        private static boolean expected(Op op, int status) {
+            return switch (op) {
+                case GET_BY_ID, DELETE -> status < 300 || status == 404;
+                case CREATE, UPDATE -> status < 300 || status == 404 || status == 409;
+                default -> status == 200;
+            };
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).GET().build();
+        }
+
+        private HttpRequest send(String method, String path, String body) {
+            return HttpRequest.newBuilder(base.resolve(path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    /**
+     * Throughput and latency percentiles of one run.
+     */
+    private record Result(String label, long requests, long errors, double seconds, long[] sorted) {
+
+        static Result of(String label, List<long[]> perClient, long errors, Duration duration) {
+            long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(label, all.length, errors, duration.toNanos() / 1e9, all);
+        }
+
+        String format() {
+            return String.format("%-10s %,12.0f %10.2f %10.2f %10.2f %10.2f %10.2f %8d",
+                    label, requests / seconds, percentile(0.50), percentile(0.90), percentile(0.99),
+                    percentile(0.999), percentile(1.0), errors);
+        }
+
+        private double percentile(double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Payload size and end-to-end latency of {@code GET /api/items} in each
+ * encoding, with and without gzip.
+ * <p>
+ * Run with {@code ./gradlew encodingBenchmark} (optionally
+ * {@code -Ploadtest.args="sizes=10000,100000 rounds=20"}). The app runs
+ * in-process on a random port, so the network is loopback: latency here is
+ * encoding, compression, copying and decoding, not a slow link, where the
+ * smaller payloads would gain much more. Latency is the median from sending
+ * the request to holding the decoded quotes.
+ */
+public final class QuoteEncodingBenchmark {
+
+    private static final List<String> ACCEPTS = List.of("application/json", "application/cbor", QuoteFormat.SMILE_VALUE);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = Arrays.stream(option(args, "sizes", "10000,100000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int rounds = Integer.parseInt(option(args, "rounds", "20"));
+
+        // Benchmark traffic must not be shed or throttled
+        ConfigurableApplicationContext context = SpringApplication.run(TrackerApplication.class,
+                "--server.port=0", "--tracker.admission.enabled=false", "--logging.level.edu.trincoll=INFO");
+        try {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/items";
+            QuoteStore store = context.getBean(QuoteStore.class);
+            HttpClient http = HttpClient.newHttpClient();
+
+            System.out.printf("%n%-28s %8s %6s %12s %10s%n", "format", "quotes", "gzip", "bytes", "median ms");
+            for (int size : sizes) {
+                store.clear();
+                store.load(quotes(size), size + 1);
+                for (String accept : ACCEPTS) {
+                    for (boolean gzip : new boolean[]{false, true}) {
+                        ObjectReader reader = reader(accept);
+                        long bytes = 0;
+                        long[] nanos = new long[rounds];
+                        // Warm-up rounds first, then the measured ones
+                        for (int round = -5; round < rounds; round++) {
+                            long start = System.nanoTime();
+                            HttpResponse<byte[]> response = get(http, base, accept, gzip);
+                            Quote[] decoded = reader.readValue(body(response));
+                            long elapsed = System.nanoTime() - start;
+                            if (decoded.length != size) {
+                                throw new IllegalStateException("Decoded " + decoded.length + " of " + size + " quotes");
+                            }
+                            if (round >= 0) {
+                                nanos[round] = elapsed;
+                            }
+                            bytes = response.body().length;
+                        }
+                        Arrays.sort(nanos);
+                        System.out.printf("%-28s %8d %6s %12d %10.1f%n",
+                                accept, size, gzip ? "yes" : "no", bytes, nanos[rounds / 2] / 1e6);
+                    }
+                }
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static HttpResponse<byte[]> get(HttpClient http, String base, String accept, boolean gzip)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base)).header("Accept", accept);
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        HttpResponse<byte[]> response = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + base + " as " + accept + " answered " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static InputStream body(HttpResponse<byte[]> response) throws IOException {
+        InputStream raw = new ByteArrayInputStream(response.body());
+        boolean gzipped = response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isPresent();
+        return gzipped ? new GZIPInputStream(raw) : raw;
+    }
+
+    private static ObjectReader reader(String accept) {
+        Jackson2ObjectMapperBuilder builder = switch (accept) {
+            case "application/cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            case QuoteFormat.SMILE_VALUE -> Jackson2ObjectMapperBuilder.smile();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+        return builder.build().readerFor(Quote[].class);
+    }
+
+    private static List<Quote> quotes(int size) {
+        LocalDateTime t0 = LocalDateTime.of(2025, 1, 1, 0, 0);
+        List<Quote> quotes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Quote quote = new Quote();
+            quote.setId((long) i + 1);
+            quote.setVersion(1L);
+            quote.setCreatedAt(t0.plusSeconds(i));
+            quote.setQuoteName("Quote number " + i);
+            quote.setQuoteContent("The only thing we have to fear is fear itself, variation " + i);
+            quote.setAuthor("Author " + (i % 500));
+            quote.setSource("Source " + (i % 50));
+            quote.setCategory(List.of("life", "work", "love", "humor", "wisdom").get(i % 5));
+            quote.setCompleted(i % 3 == 0);
+            quotes.add(quote);
+        }
+        return quotes;
+    }
+
+    private static String option(String[] args, String name, String fallback) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,81 @@
+package edu.trincoll.tracker;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Heap retained per quote by the API object against the store's compact form.
+ * <p>
+ * Run with {@code ./gradlew footprintBenchmark} (optionally
+ * {@code -Ploadtest.args="quotes=1000000"}, default 500000). Every string is a
+ * fresh instance, as it would be after JSON deserialization, so the
+ * {@link Quote} side shows what storing request objects directly costs.
+ */
+public final class QuoteFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int quotes = intOption(args, "quotes", 500_000);
+
+        double quoteBytes = retainedPerQuote(quotes, QuoteFootprintBenchmark::parsed);
+        StringDictionary strings = new StringDictionary();
+        double storedBytes = retainedPerQuote(quotes, i ->
+                StoredQuote.of(i, System.currentTimeMillis(), parsed(i), strings));
+
+        System.out.printf("%n%,d quotes, %,d distinct dictionary strings%n", quotes, strings.size());
+        System.out.printf("%-12s %12s%n", "form", "bytes/quote");
+        System.out.printf("%-12s %12.1f%n", "Quote", quoteBytes);
+        System.out.printf("%-12s %12.1f%n", "StoredQuote", storedBytes);
+        System.out.printf("ratio %.2fx%n", quoteBytes / storedBytes);
+    }
+
+    private static double retainedPerQuote(int quotes, IntFunction<Object> factory) {
+        long before = usedAfterGc();
+        Object[] retained = new Object[quotes];
+        for (int i = 0; i < quotes; i++) {
+            retained[i] = factory.apply(i);
+        }
+        long after = usedAfterGc();
+        // Keep the array reachable until after the measurement, and don't count its own slots
+        long arrayBytes = 16L + 4L * retained.length;
+        if (retained[quotes - 1] == null) {
+            throw new IllegalStateException("Quotes were not retained");
+        }
+        return (double) (after - before - arrayBytes) / quotes;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Several rounds, since one System.gc() is only a hint
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static Quote parsed(int i) {
+        Quote quote = new Quote();
+        quote.setId((long) i + 1);
+        quote.setQuoteName(fresh("Quote number " + i));
+        quote.setQuoteContent(fresh("The only thing we have to fear is fear itself, variation " + i));
+        quote.setAuthor(fresh("Author " + (i % 500)));
+        quote.setSource(fresh("Source " + (i % 50)));
+        quote.setCategory(fresh(List.of("life", "work", "love", "humor", "wisdom").get(i % 5)));
+        quote.setCompleted(i % 3 == 0);
+        return quote;
+    }
+
+    private static String fresh(String value) {
+        return new String(value.toCharArray());
+    }
+
+    private static int intOption(String[] args, String name, int fallback) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return Integer.parseInt(arg.substring(name.length() + 1));
+            }
+        }
+        return fallback;
+    }
+}
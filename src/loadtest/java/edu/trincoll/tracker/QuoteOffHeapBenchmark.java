@@ -0,0 +1,134 @@
+package edu.trincoll.tracker;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Heap held, full-GC pause and collector work of the heap and off-heap store
+ * backends at the same size.
+ * <p>
+ * Run with {@code ./gradlew offHeapBenchmark} (optionally
+ * {@code -Ploadtest.args="quotes=2000000 operations=5000000"}, defaults 500000
+ * and 2000000). Each backend is filled, its retained heap measured after GC,
+ * and a full GC timed with the store live, since tracing the live set is what
+ * grows with it. Then a mixed workload (90% reads by id, 10% updates) runs
+ * while the collectors' own counts and times are sampled, so the pauses the
+ * workload causes are compared too.
+ */
+public final class QuoteOffHeapBenchmark {
+
+    private record Result(long heapBytes, long offHeapBytes, double fullGcMillis,
+                          long workloadGcs, long workloadGcMillis, double workloadMillis) {
+    }
+
+    public static void main(String[] args) {
+        int quotes = intOption(args, "quotes", 500_000);
+        int operations = intOption(args, "operations", 2_000_000);
+
+        Result heap = run("heap", quotes, operations);
+        Result offHeap = run("off-heap", quotes, operations);
+
+        System.out.printf("%n%,d quotes, %,d operations (90%% reads, 10%% updates)%n", quotes, operations);
+        System.out.printf("%-9s %12s %12s %10s %9s %11s %11s%n",
+                "backend", "heap MB", "off-heap MB", "full GC ms", "GCs", "GC time ms", "run ms");
+        print("heap", heap);
+        print("off-heap", offHeap);
+    }
+
+    private static Result run(String backend, int quotes, int operations) {
+        long baseline = usedAfterGc();
+        QuoteStore store = new QuoteStore(1, backend);
+        List<Long> ids = new ArrayList<>(quotes);
+        for (int i = 0; i < quotes; i++) {
+            ids.add(store.create(quote(i, 0)).quote().getId());
+        }
+        // The id list is the benchmark's, not the store's
+        long heapBytes = usedAfterGc() - baseline - 20L * quotes;
+
+        double fullGcMillis = Double.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            System.gc();
+            fullGcMillis = Math.min(fullGcMillis, (System.nanoTime() - start) / 1e6);
+        }
+
+        long gcsBefore = collections();
+        long gcMillisBefore = collectionMillis();
+        SplittableRandom random = new SplittableRandom(23);
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (int op = 0; op < operations; op++) {
+            int i = random.nextInt(quotes);
+            if (random.nextInt(10) == 0) {
+                store.update(ids.get(i), quote(i, op));
+            } else {
+                checksum += store.get(ids.get(i)).getQuoteContent().length();
+            }
+        }
+        double workloadMillis = (System.nanoTime() - start) / 1e6;
+        if (checksum <= 0) {
+            throw new IllegalStateException("Reads returned no content");
+        }
+
+        Result result = new Result(heapBytes, store.offHeapBytes(), fullGcMillis,
+                collections() - gcsBefore, collectionMillis() - gcMillisBefore, workloadMillis);
+        store.clear();
+        return result;
+    }
+
+    private static void print(String backend, Result result) {
+        System.out.printf("%-9s %12.1f %12.1f %10.1f %9d %11d %11.0f%n", backend,
+                result.heapBytes() / 1048576.0, result.offHeapBytes() / 1048576.0, result.fullGcMillis(),
+                result.workloadGcs(), result.workloadGcMillis(), result.workloadMillis());
+    }
+
+    private static long collections() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sum += Math.max(0, gc.getCollectionCount());
+        }
+        return sum;
+    }
+
+    private static long collectionMillis() {
+        long sum = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sum += Math.max(0, gc.getCollectionTime());
+        }
+        return sum;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Several rounds, since one System.gc() is only a hint
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static Quote quote(int i, int edit) {
+        Quote quote = new Quote();
+        quote.setQuoteName("Quote number " + i);
+        quote.setQuoteContent("The only thing we have to fear is fear itself, variation " + i + "." + edit);
+        quote.setAuthor("Author " + (i % 500));
+        quote.setSource("Source " + (i % 50));
+        quote.setCategory(List.of("life", "work", "love", "humor", "wisdom").get(i % 5));
+        quote.setCompleted(i % 3 == 0);
+        return quote;
+    }
+
+    private static int intOption(String[] args, String name, int fallback) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return Integer.parseInt(arg.substring(name.length() + 1));
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,170 @@
+package edu.trincoll.tracker;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory and latency of the listing endpoints while many clients read them slowly.
+ * <p>
+ * Run with {@code ./gradlew slowConsumerBenchmark -Ploadtest.args="consumers=200 seconds=20"}.
+ * The app runs in-process. For each endpoint, {@code consumers} clients fetch
+ * the full list through small socket buffers at about {@code rate} KB/s each.
+ * Meanwhile a probe measures {@code GET /api/items/1} and the heap is sampled.
+ * Every variant is compared under the same load:
+ * <ul>
+ *   <li>the servlet list ({@code /api/items}), serialized by Jackson on the request thread</li>
+ *   <li>the servlet stream ({@code /api/items/stream}), a {@code StreamingResponseBody}</li>
+ *   <li>the reactive stream ({@code /api/reactive/items/stream}), a backpressured {@code Flux}</li>
+ * </ul>
+ * Other options: {@code quotes} (seeded, default 100000) and {@code rate} (default 256).
+ */
+public final class SlowConsumerBenchmark {
+
+    private static final String[] ENDPOINTS = {"/api/items", "/api/items/stream", "/api/reactive/items/stream"};
+
+    public static void main(String[] args) throws Exception {
+        int consumers = intOption(args, "consumers", 200);
+        int seconds = intOption(args, "seconds", 20);
+        int quotes = intOption(args, "quotes", 100_000);
+        int rateKb = intOption(args, "rate", 256);
+
+        ConfigurableApplicationContext context = SpringApplication.run(TrackerApplication.class,
+                "--server.port=0", "--tracker.admission.enabled=false", "--logging.level.edu.trincoll=INFO");
+        try {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            HttpClient http = HttpClient.newHttpClient();
+            seed(http, port, quotes);
+
+            List<String> rows = new ArrayList<>();
+            for (String endpoint : ENDPOINTS) {
+                rows.add(run(http, port, endpoint, consumers, seconds, rateKb));
+            }
+            System.out.printf("%n%,d quotes, %d slow consumers at %d KB/s, %ds per endpoint%n",
+                    quotes, consumers, rateKb, seconds);
+            System.out.printf("%-28s %12s %12s %10s %10s %14s%n",
+                    "endpoint", "peak heap MB", "avg heap MB", "probe p50", "probe p99", "MB delivered");
+            rows.forEach(System.out::println);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String run(HttpClient http, int port, String endpoint, int consumers, int seconds, int rateKb)
+            throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong delivered = new AtomicLong();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < consumers; i++) {
+            readers.add(Thread.ofVirtual().start(() -> readSlowly(port, endpoint, rateKb, deadline, delivered)));
+        }
+
+        long[] probes = new long[1 << 16];
+        int probeCount = 0;
+        long peak = 0;
+        long total = 0;
+        int samples = 0;
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/items/1")).build();
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            http.send(probe, HttpResponse.BodyHandlers.discarding());
+            if (probeCount < probes.length) {
+                probes[probeCount++] = System.nanoTime() - start;
+            }
+            long used = memory.getHeapMemoryUsage().getUsed();
+            peak = Math.max(peak, used);
+            total += used;
+            samples++;
+            Thread.sleep(20);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        long[] sorted = Arrays.copyOf(probes, probeCount);
+        Arrays.sort(sorted);
+        return String.format("%-28s %12.1f %12.1f %8.2fms %8.2fms %14.1f", endpoint,
+                peak / 1e6, total / 1e6 / Math.max(1, samples),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), delivered.get() / 1e6);
+    }
+
+    /**
+     * Reads the response through a small receive buffer at roughly {@code rateKb} KB/s until the deadline.
+     */
+    private static void readSlowly(int port, String endpoint, int rateKb, long deadline, AtomicLong delivered) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(8 * 1024);
+            socket.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + endpoint + " HTTP/1.1\r\nHost: localhost\r\nAccept: */*\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] chunk = new byte[4 * 1024];
+            // One chunk per interval gives the target rate
+            long interval = Math.max(1, 4_000 / rateKb);
+            while (System.nanoTime() < deadline) {
+                int read = in.read(chunk);
+                if (read < 0) {
+                    return;
+                }
+                delivered.addAndGet(read);
+                Thread.sleep(interval);
+            }
+        } catch (IOException e) {
+            // The server may give up on a stalled client; that only shows up as fewer bytes delivered
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void seed(HttpClient http, int port, int quotes) throws IOException, InterruptedException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < quotes; i++) {
+            ndjson.append("{\"op\":\"create\",\"item\":{\"name\":\"Quote ").append(i)
+                    .append("\",\"description\":\"The only thing we have to fear is fear itself, variation ").append(i)
+                    .append("\",\"author\":\"Author ").append(i % 500).append("\"}}\n");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/items/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                .build();
+        http.send(request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static int intOption(String[] args, String name, int fallback) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return Integer.parseInt(arg.substring(name.length() + 1));
+            }
+        }
+        return fallback;
+    }
+}
@@ -0,0 +1,142 @@
+package edu.trincoll.tracker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps how many requests run at once, queueing the rest with reads ahead of writes.
+ * <p>
+ * A freed slot always goes to the oldest waiting read, and only to a write
+ * when no read is waiting. When the queue is full a new write is turned away
+ * at once, while a new read takes the place of the newest waiting write, which
+ * is turned away instead. Waiting is bounded, so under sustained overload
+ * requests are shed within the timeout rather than piling up.
+ * <p>
+ * Each waiter has its own condition, so a freed slot wakes exactly the
+ * request it goes to. A lock rather than {@code synchronized} keeps waiting
+ * virtual threads from pinning their carriers.
+ */
+final class AdmissionQueue {
+
+    enum Priority { READ, WRITE }
+
+    private static final int WAITING = 0;
+    private static final int ADMITTED = 1;
+    private static final int SHED = 2;
+
+    private final class Waiter {
+        final Condition signal = lock.newCondition();
+        // Guarded by lock
+        int state = WAITING;
+    }
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Deque<Waiter> reads = new ArrayDeque<>();
+    private final Deque<Waiter> writes = new ArrayDeque<>();
+    private int active;
+
+    AdmissionQueue(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Need at least one concurrent request and a non-negative queue, was "
+                    + maxConcurrent + " and " + maxQueued);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code timeoutNanos} for one. Returns false
+     * if the request was shed; otherwise the caller must {@link #release()} the slot.
+     */
+    boolean acquire(Priority priority, long timeoutNanos) throws InterruptedException {
+        Waiter waiter = new Waiter();
+        Deque<Waiter> queue = priority == Priority.READ ? reads : writes;
+        lock.lock();
+        try {
+            if (active < maxConcurrent && reads.isEmpty() && writes.isEmpty()) {
+                active++;
+                return true;
+            }
+            if (reads.size() + writes.size() >= maxQueued) {
+                if (priority == Priority.WRITE || writes.isEmpty()) {
+                    return false;
+                }
+                shed(writes.pollLast());
+            }
+            queue.addLast(waiter);
+            long remaining = timeoutNanos;
+            try {
+                while (waiter.state == WAITING && remaining > 0) {
+                    remaining = waiter.signal.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.state == ADMITTED) {
+                    handOff();
+                }
+                queue.remove(waiter);
+                throw e;
+            }
+            if (waiter.state == WAITING) {
+                queue.remove(waiter);
+                return false;
+            }
+            return waiter.state == ADMITTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees a slot taken by {@link #acquire}, handing it to the next waiter if there is one.
+     */
+    void release() {
+        lock.lock();
+        try {
+            handOff();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int queued(Priority priority) {
+        lock.lock();
+        try {
+            return (priority == Priority.READ ? reads : writes).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int active() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The slot passes straight to the next waiter, so active only drops when nobody waits
+    private void handOff() {
+        Waiter next = reads.pollFirst();
+        if (next == null) {
+            next = writes.pollFirst();
+        }
+        if (next == null) {
+            active--;
+            return;
+        }
+        next.state = ADMITTED;
+        next.signal.signal();
+    }
+
+    private void shed(Waiter waiter) {
+        waiter.state = SHED;
+        waiter.signal.signal();
+    }
+}
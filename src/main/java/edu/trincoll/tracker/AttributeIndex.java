@@ -0,0 +1,154 @@
+package edu.trincoll.tracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exact-match indexes on author, source, category and completed.
+ * <p>
+ * Each distinct value maps to the {@link IdBitmap} of the quotes that have
+ * it, so a filter on several fields is answered by intersecting a few
+ * bitmaps instead of scanning the store. Values are never removed from the
+ * maps, even once no quote has them, which keeps writers free of races on
+ * the map entries; like the {@link StringDictionary} the set of distinct
+ * values only shrinks on {@link #clear()}.
+ * <p>
+ * Each bitmap tracks its own size as bits flip, so per-value counts come
+ * straight from the index in O(number of values).
+ */
+class AttributeIndex {
+
+    private final Map<String, IdBitmap> authors = new ConcurrentHashMap<>();
+    private final Map<String, IdBitmap> sources = new ConcurrentHashMap<>();
+    private final Map<String, IdBitmap> categories = new ConcurrentHashMap<>();
+    private final IdBitmap completed = new IdBitmap();
+    private final IdBitmap open = new IdBitmap();
+
+    void add(StoredQuote quote) {
+        add(authors, quote.author(), quote.id());
+        add(sources, quote.source(), quote.id());
+        add(categories, quote.category(), quote.id());
+        (quote.completed() ? completed : open).add(quote.id());
+    }
+
+    void remove(StoredQuote quote) {
+        remove(authors, quote.author(), quote.id());
+        remove(sources, quote.source(), quote.id());
+        remove(categories, quote.category(), quote.id());
+        (quote.completed() ? completed : open).remove(quote.id());
+    }
+
+    /**
+     * Moves an updated quote between values, touching only the fields that
+     * changed. The new value is added before the old one is dropped, so a
+     * concurrent query never loses the quote from both.
+     */
+    void replace(StoredQuote old, StoredQuote updated) {
+        long id = updated.id();
+        if (!Objects.equals(old.author(), updated.author())) {
+            add(authors, updated.author(), id);
+            remove(authors, old.author(), id);
+        }
+        if (!Objects.equals(old.source(), updated.source())) {
+            add(sources, updated.source(), id);
+            remove(sources, old.source(), id);
+        }
+        if (!Objects.equals(old.category(), updated.category())) {
+            add(categories, updated.category(), id);
+            remove(categories, old.category(), id);
+        }
+        if (old.completed() != updated.completed()) {
+            (updated.completed() ? completed : open).add(id);
+            (old.completed() ? completed : open).remove(id);
+        }
+    }
+
+    /**
+     * The bitmaps to intersect for {@code filter}; empty if the filter matches
+     * nothing because one of its values was never indexed.
+     */
+    List<IdBitmap> select(QuoteStore.Filter filter) {
+        List<IdBitmap> sets = new ArrayList<>(4);
+        if (!select(authors, filter.author(), sets)
+                || !select(sources, filter.source(), sets)
+                || !select(categories, filter.category(), sets)) {
+            return List.of();
+        }
+        if (filter.completed() != null) {
+            sets.add(filter.completed() ? completed : open);
+        }
+        return sets;
+    }
+
+    SortedMap<String, Long> authorCounts() {
+        return counts(authors);
+    }
+
+    SortedMap<String, Long> sourceCounts() {
+        return counts(sources);
+    }
+
+    SortedMap<String, Long> categoryCounts() {
+        return counts(categories);
+    }
+
+    long completedCount() {
+        return completed.cardinality();
+    }
+
+    long openCount() {
+        return open.cardinality();
+    }
+
+    void clear() {
+        authors.clear();
+        sources.clear();
+        categories.clear();
+        completed.clear();
+        open.clear();
+    }
+
+    // Values no quote has any more are left out
+    private static SortedMap<String, Long> counts(Map<String, IdBitmap> index) {
+        SortedMap<String, Long> counts = new TreeMap<>();
+        index.forEach((value, ids) -> {
+            long count = ids.cardinality();
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return counts;
+    }
+
+    private static boolean select(Map<String, IdBitmap> index, String value, List<IdBitmap> sets) {
+        if (value == null) {
+            return true;
+        }
+        IdBitmap ids = index.get(value);
+        if (ids == null) {
+            return false;
+        }
+        sets.add(ids);
+        return true;
+    }
+
+    private static void add(Map<String, IdBitmap> index, String value, long id) {
+        if (value != null) {
+            index.computeIfAbsent(value, v -> new IdBitmap()).add(id);
+        }
+    }
+
+    private static void remove(Map<String, IdBitmap> index, String value, long id) {
+        if (value != null) {
+            IdBitmap ids = index.get(value);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+}
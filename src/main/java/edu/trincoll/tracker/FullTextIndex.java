@@ -0,0 +1,793 @@
+package edu.trincoll.tracker;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inverted keyword index over a quote's description, author, source and category.
+ * <p>
+ * Each term maps to the ids containing it along with the term frequency, which
+ * is enough to score matches with BM25 without touching the quotes themselves.
+ * A query only walks the posting lists of its own terms, rarest first, and
+ * keeps the best {@code offset + limit} hits in a bounded heap. Common terms
+ * that can no longer lift an unseen quote into those hits only rescore the
+ * candidates already found (MaxScore pruning).
+ * <p>
+ * Postings are parallel primitive arrays per term, ids ascending with their
+ * term frequencies beside them, and document lengths sit in an int array
+ * indexed by id, so neither costs a boxed entry per quote.
+ * <p>
+ * Between {@link #defer()} and {@link #flush()} posting changes are collected
+ * per term instead, and then applied with one update of each term's posting,
+ * however many quotes of the batch use it.
+ */
+class FullTextIndex {
+
+    // Standard BM25 tuning constants
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Posting changes held back before a flush, at most this many in all
+    private static final int MAX_DEFERRED = 1 << 16;
+
+    /**
+     * One scored search hit.
+     */
+    record Hit(long id, double score) {
+    }
+
+    /**
+     * Search order: descending score, ties by id.
+     */
+    static final Comparator<Hit> RANK = Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::id);
+
+    /**
+     * Number of documents, their summed length and the document frequency of
+     * each query term.
+     */
+    record Corpus(long documents, long totalLength, Map<String, Integer> docFreqs) {
+
+        Corpus plus(Corpus other) {
+            Map<String, Integer> summed = new HashMap<>(docFreqs);
+            other.docFreqs.forEach((term, docFreq) -> summed.merge(term, docFreq, Integer::sum));
+            return new Corpus(documents + other.documents, totalLength + other.totalLength, summed);
+        }
+    }
+
+    /**
+     * Receives one posting: an id and the term's frequency in it.
+     */
+    @FunctionalInterface
+    private interface PostingVisitor {
+        void visit(long id, int tf);
+    }
+
+    /**
+     * Ids containing one term, with the term's frequency in each at the same
+     * index: a main run in ascending id order, plus a short sorted run of ids
+     * that arrived out of order, merged into the main one once it reaches about
+     * the square root of its size. Only written inside
+     * {@link ConcurrentHashMap#compute}, which serializes writers per term.
+     * <p>
+     * Arrays change under readers in three ways only: entries appended to the
+     * main run past the size of every published posting, a frequency rewritten
+     * in place, and a removed id's frequency zeroed in the main run. Anything
+     * else copies. Readers skip zeroed entries; a merge drops them once they
+     * make up half of the posting.
+     */
+    private static final class Posting {
+        private static final long[] NO_IDS = {};
+        private static final int[] NO_TFS = {};
+
+        final long[] ids;
+        final int[] tfs;
+        final int size;
+        // Out-of-order arrivals since the last merge, ascending and exactly sized
+        final long[] lateIds;
+        final int[] lateTfs;
+        // Entries with a non-zero frequency: the term's document frequency
+        final int live;
+
+        Posting(long[] ids, int[] tfs, int size, long[] lateIds, int[] lateTfs, int live) {
+            this.ids = ids;
+            this.tfs = tfs;
+            this.size = size;
+            this.lateIds = lateIds;
+            this.lateTfs = lateTfs;
+            this.live = live;
+        }
+
+        static Posting of(long id, int tf) {
+            return new Posting(new long[]{id}, new int[]{tf}, 1, NO_IDS, NO_TFS, 1);
+        }
+
+        /**
+         * Entries a full walk examines, zeroed ones included.
+         */
+        int entries() {
+            return size + lateIds.length;
+        }
+
+        int tf(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return tfs[at];
+            }
+            at = Arrays.binarySearch(lateIds, id);
+            return at < 0 ? 0 : lateTfs[at];
+        }
+
+        /**
+         * Visits every id with a non-zero frequency, in no particular order.
+         */
+        void forEach(PostingVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                int tf = tfs[i];
+                if (tf != 0) {
+                    visitor.visit(ids[i], tf);
+                }
+            }
+            for (int i = 0; i < lateIds.length; i++) {
+                visitor.visit(lateIds[i], lateTfs[i]);
+            }
+        }
+
+        Posting with(long id, int tf) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                boolean revived = tfs[at] == 0;
+                tfs[at] = tf;
+                return revived ? new Posting(ids, tfs, size, lateIds, lateTfs, live + 1) : this;
+            }
+            int late = Arrays.binarySearch(lateIds, id);
+            if (late >= 0) {
+                lateTfs[late] = tf;
+                return this;
+            }
+            if (-at - 1 == size) {
+                if (size < ids.length) {
+                    // Past the end of every published posting, so no reader sees it until the new one is
+                    ids[size] = id;
+                    tfs[size] = tf;
+                    return new Posting(ids, tfs, size + 1, lateIds, lateTfs, live + 1);
+                }
+                return merged(id, tf);
+            }
+            if (lateIds.length + 1 >= Math.max(32, (int) Math.sqrt(size))) {
+                return merged(id, tf);
+            }
+            late = -late - 1;
+            long[] newIds = new long[lateIds.length + 1];
+            int[] newTfs = new int[newIds.length];
+            System.arraycopy(lateIds, 0, newIds, 0, late);
+            System.arraycopy(lateTfs, 0, newTfs, 0, late);
+            newIds[late] = id;
+            newTfs[late] = tf;
+            System.arraycopy(lateIds, late, newIds, late + 1, lateIds.length - late);
+            System.arraycopy(lateTfs, late, newTfs, late + 1, lateIds.length - late);
+            return new Posting(ids, tfs, size, newIds, newTfs, live + 1);
+        }
+
+        /**
+         * This posting without {@code id}, or null if nothing is left.
+         */
+        Posting without(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0 && tfs[at] != 0) {
+                if (live == 1) {
+                    return null;
+                }
+                tfs[at] = 0;
+                Posting removed = new Posting(ids, tfs, size, lateIds, lateTfs, live - 1);
+                return removed.live * 2 < removed.entries() ? removed.merged(0, 0) : removed;
+            }
+            int late = Arrays.binarySearch(lateIds, id);
+            if (late < 0) {
+                return this;
+            }
+            if (live == 1) {
+                return null;
+            }
+            long[] newIds = new long[lateIds.length - 1];
+            int[] newTfs = new int[newIds.length];
+            System.arraycopy(lateIds, 0, newIds, 0, late);
+            System.arraycopy(lateTfs, 0, newTfs, 0, late);
+            System.arraycopy(lateIds, late + 1, newIds, late, newIds.length - late);
+            System.arraycopy(lateTfs, late + 1, newTfs, late, newIds.length - late);
+            return new Posting(ids, tfs, size, newIds, newTfs, live - 1);
+        }
+
+        /**
+         * A posting with one main run holding every live entry, plus {@code id}
+         * unless {@code tf} is 0, with room to append a half as many again.
+         */
+        private Posting merged(long id, int tf) {
+            int total = live + (tf != 0 ? 1 : 0);
+            long[] newIds = new long[total + (total >> 1)];
+            int[] newTfs = new int[newIds.length];
+            int count = 0;
+            int main = 0;
+            int late = 0;
+            boolean pending = tf != 0;
+            while (count < total) {
+                long next = Long.MAX_VALUE;
+                int source = -1;
+                while (main < size && tfs[main] == 0) {
+                    main++;
+                }
+                if (main < size) {
+                    next = ids[main];
+                    source = 0;
+                }
+                if (late < lateIds.length && lateIds[late] < next) {
+                    next = lateIds[late];
+                    source = 1;
+                }
+                if (pending && id < next) {
+                    next = id;
+                    source = 2;
+                }
+                newIds[count] = next;
+                switch (source) {
+                    case 0 -> newTfs[count] = tfs[main++];
+                    case 1 -> newTfs[count] = lateTfs[late++];
+                    default -> {
+                        newTfs[count] = tf;
+                        pending = false;
+                    }
+                }
+                count++;
+            }
+            return new Posting(newIds, newTfs, count, NO_IDS, NO_TFS, count);
+        }
+    }
+
+    /**
+     * Posting changes of one term held back since {@link #defer()}, in the
+     * order they were made; a frequency of 0 removes the id.
+     */
+    private static final class Changes {
+        long[] ids = new long[4];
+        int[] tfs = new int[4];
+        int size;
+
+        void add(long id, int tf) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            ids[size] = id;
+            tfs[size++] = tf;
+        }
+    }
+
+    /**
+     * Document lengths by id, in pages of {@link QuoteShard#BLOCK_SIZE} ids so a
+     * shard only allocates pages for its own id blocks, and drops a page once
+     * it is empty. A length is stored plus one, zero meaning no document.
+     * Writes are synchronized; reads are not, and a writer stores a length
+     * before publishing the postings that lead to it.
+     */
+    private static final class DocLengths {
+
+        private static final int PAGE_SIZE = (int) QuoteShard.BLOCK_SIZE;
+
+        private volatile int[][] pages = new int[0][];
+        // Documents per page, so empty pages can be dropped; guarded by this
+        private int[] counts = new int[0];
+        private volatile int documents;
+
+        int get(long id) {
+            int[][] current = pages;
+            long page = (id - 1) / PAGE_SIZE;
+            if (page >= current.length) {
+                return 0;
+            }
+            int[] lengths = current[(int) page];
+            return lengths == null ? 0 : Math.max(0, lengths[(int) ((id - 1) % PAGE_SIZE)] - 1);
+        }
+
+        int documents() {
+            return documents;
+        }
+
+        /**
+         * Stores a document's length and returns its previous one, 0 if it had none.
+         */
+        synchronized int put(long id, int length) {
+            int page = Math.toIntExact((id - 1) / PAGE_SIZE);
+            int[][] current = pages;
+            if (page >= current.length) {
+                current = Arrays.copyOf(current, Math.max(page + 1, current.length + (current.length >> 1)));
+                counts = Arrays.copyOf(counts, current.length);
+                pages = current;
+            }
+            if (current[page] == null) {
+                current[page] = new int[PAGE_SIZE];
+            }
+            int slot = (int) ((id - 1) % PAGE_SIZE);
+            int previous = current[page][slot];
+            current[page][slot] = length + 1;
+            if (previous == 0) {
+                counts[page]++;
+                documents++;
+            }
+            return Math.max(0, previous - 1);
+        }
+
+        /**
+         * Forgets a document's length and returns it, 0 if it had none.
+         */
+        synchronized int remove(long id) {
+            long page = (id - 1) / PAGE_SIZE;
+            int[][] current = pages;
+            if (page >= current.length || current[(int) page] == null) {
+                return 0;
+            }
+            int slot = (int) ((id - 1) % PAGE_SIZE);
+            int previous = current[(int) page][slot];
+            if (previous == 0) {
+                return 0;
+            }
+            current[(int) page][slot] = 0;
+            documents--;
+            if (--counts[(int) page] == 0) {
+                current[(int) page] = null;
+            }
+            return previous - 1;
+        }
+
+        synchronized void clear() {
+            pages = new int[0][];
+            counts = new int[0];
+            documents = 0;
+        }
+    }
+
+    private final Map<String, Posting> postings = new ConcurrentHashMap<>();
+    private final DocLengths docLengths = new DocLengths();
+    private final AtomicLong totalLength = new AtomicLong();
+    // Postings walked by searches so far, a measure of search cost
+    private final LongAdder scanned = new LongAdder();
+    // Changes held back per term while deferring, else null. Only touched by the
+    // one thread allowed to write, like the writes themselves
+    private Map<String, Changes> deferred;
+    private int deferredCount;
+
+    /**
+     * Term frequencies of the searchable fields of a quote.
+     */
+    static Map<String, Integer> terms(StoredQuote quote) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(quote.content(), terms);
+        tokenize(quote.author(), terms);
+        tokenize(quote.source(), terms);
+        tokenize(quote.category(), terms);
+        return terms;
+    }
+
+    /**
+     * Splits text into lowercased runs of letters and digits.
+     */
+    static void tokenize(String text, Map<String, Integer> into) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                into.merge(lower.substring(start, i), 1, Integer::sum);
+                start = -1;
+            }
+        }
+    }
+
+    void add(long id, Map<String, Integer> terms) {
+        int length = 0;
+        for (int tf : terms.values()) {
+            length += tf;
+        }
+        // Stored before the postings, so a search that finds this id also sees its length
+        totalLength.addAndGet(length - docLengths.put(id, length));
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            addPosting(term.getKey(), id, term.getValue());
+        }
+    }
+
+    void remove(long id, Map<String, Integer> terms) {
+        for (String term : terms.keySet()) {
+            removePosting(term, id);
+        }
+        totalLength.addAndGet(-docLengths.remove(id));
+    }
+
+    /**
+     * Re-indexes a changed quote. Terms it keeps have their frequency rewritten
+     * in place, so searches for them never miss it and common terms shared by
+     * both versions cost no copying.
+     */
+    void replace(long id, Map<String, Integer> oldTerms, Map<String, Integer> newTerms) {
+        if (oldTerms.equals(newTerms)) {
+            return;
+        }
+        int length = 0;
+        for (int tf : newTerms.values()) {
+            length += tf;
+        }
+        totalLength.addAndGet(length - docLengths.put(id, length));
+        for (Map.Entry<String, Integer> term : newTerms.entrySet()) {
+            if (!term.getValue().equals(oldTerms.get(term.getKey()))) {
+                addPosting(term.getKey(), id, term.getValue());
+            }
+        }
+        for (String term : oldTerms.keySet()) {
+            if (!newTerms.containsKey(term)) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    private void addPosting(String term, long id, int tf) {
+        if (deferred != null) {
+            deferChange(term, id, tf);
+            return;
+        }
+        // compute (not computeIfAbsent + put) so a concurrent remove can't drop the list under us
+        postings.compute(term, (t, posting) -> posting == null
+                ? Posting.of(id, tf)
+                : posting.with(id, tf));
+    }
+
+    private void removePosting(String term, long id) {
+        if (deferred != null) {
+            deferChange(term, id, 0);
+            return;
+        }
+        postings.computeIfPresent(term, (t, posting) -> posting.without(id));
+    }
+
+    /**
+     * Holds back posting changes until {@link #flush()}; document lengths are
+     * still stored at once. The caller must keep every other writer out until
+     * then, and searches meanwhile go by the postings as they were.
+     */
+    void defer() {
+        deferred = new HashMap<>();
+        deferredCount = 0;
+    }
+
+    /**
+     * Applies the posting changes held back since {@link #defer()}, one
+     * update per term, and stops deferring.
+     */
+    void flush() {
+        applyDeferred();
+        deferred = null;
+    }
+
+    private void applyDeferred() {
+        for (Map.Entry<String, Changes> term : deferred.entrySet()) {
+            Changes changes = term.getValue();
+            // In the order made, which puts a batch's new ids in ascending order, so they are appended
+            postings.compute(term.getKey(), (t, posting) -> {
+                for (int i = 0; i < changes.size; i++) {
+                    long id = changes.ids[i];
+                    int tf = changes.tfs[i];
+                    if (tf != 0) {
+                        posting = posting == null ? Posting.of(id, tf) : posting.with(id, tf);
+                    } else if (posting != null) {
+                        posting = posting.without(id);
+                    }
+                }
+                return posting;
+            });
+        }
+        deferred.clear();
+        deferredCount = 0;
+    }
+
+    private void deferChange(String term, long id, int tf) {
+        deferred.computeIfAbsent(term, t -> new Changes()).add(id, tf);
+        if (++deferredCount >= MAX_DEFERRED) {
+            applyDeferred();
+        }
+    }
+
+    /**
+     * Distinct keywords of a query.
+     */
+    static Set<String> queryTerms(String query) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(query, terms);
+        return terms.keySet();
+    }
+
+    /**
+     * Collection statistics BM25 needs for the given query terms. Statistics
+     * of several indexes add up, so indexes over disjoint sets of quotes can be
+     * searched with the figures of the whole collection and score alike.
+     */
+    Corpus corpus(Set<String> queryTerms) {
+        Map<String, Integer> docFreqs = new HashMap<>();
+        for (String term : queryTerms) {
+            Posting posting = postings.get(term);
+            docFreqs.put(term, posting == null ? 0 : posting.live);
+        }
+        return new Corpus(docLengths.documents(), totalLength.get(), docFreqs);
+    }
+
+    /**
+     * The best {@code keep} hits for the query terms in rank order, scored with
+     * the statistics of {@code corpus} rather than this index's own.
+     * <p>
+     * Terms are scored rarest first into one partial score per candidate. No
+     * term adds more than {@code idf * (K1 + 1)} to a score, so once the terms
+     * left could add less in total than the {@code keep}-th best partial score,
+     * a quote not yet seen can't make the cut: the remaining terms then only
+     * add to existing candidates, probing the smaller of the candidates and
+     * the posting list. A query for rare and common words together thus walks
+     * the rare lists, not the common ones. Queries whose terms are all common
+     * still score every posting, one primitive slot each.
+     */
+    List<Hit> top(Set<String> queryTerms, Corpus corpus, int keep) {
+        if (queryTerms.isEmpty() || corpus.documents() == 0 || keep <= 0) {
+            return List.of();
+        }
+        double avgLength = Math.max(1.0, (double) corpus.totalLength() / corpus.documents());
+
+        List<TermPostings> terms = new ArrayList<>();
+        for (String term : queryTerms) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            // Floored at this index's own count, in case a write landed after the statistics were taken
+            long docFreq = Math.max(posting.live, corpus.docFreqs().getOrDefault(term, 0));
+            double idf = Math.log(1 + (Math.max(0, corpus.documents() - docFreq) + 0.5) / (docFreq + 0.5));
+            terms.add(new TermPostings(posting, idf));
+        }
+        terms.sort(Comparator.comparingDouble(TermPostings::idf).reversed());
+        // remaining[i]: the most terms i and later can add to any one score
+        double[] remaining = new double[terms.size() + 1];
+        for (int i = terms.size() - 1; i >= 0; i--) {
+            remaining[i] = remaining[i + 1] + terms.get(i).idf() * (K1 + 1);
+        }
+
+        // Every id of the rarest list becomes a candidate, so start with room for them
+        Candidates candidates = new Candidates(keep, terms.isEmpty() ? 0 : terms.get(0).posting().live);
+        boolean closed = false;
+        for (int i = 0; i < terms.size(); i++) {
+            Posting posting = terms.get(i).posting();
+            double idf = terms.get(i).idf();
+            closed = closed || remaining[i] < candidates.threshold();
+            if (!closed) {
+                scanned.add(posting.entries());
+                posting.forEach((id, tf) -> candidates.add(id, score(idf, tf, id, avgLength)));
+            } else if (candidates.size() < posting.live) {
+                scanned.add(candidates.size());
+                for (int slot = 0; slot < candidates.capacity(); slot++) {
+                    long id = candidates.id(slot);
+                    int tf = id == 0 ? 0 : posting.tf(id);
+                    if (tf != 0) {
+                        candidates.raise(slot, score(idf, tf, id, avgLength));
+                    }
+                }
+            } else {
+                scanned.add(posting.entries());
+                posting.forEach((id, tf) -> candidates.addIfPresent(id, score(idf, tf, id, avgLength)));
+            }
+        }
+        return candidates.ranked();
+    }
+
+    /**
+     * Partial scores of one query's candidates, in open-addressed parallel
+     * arrays keyed by id, and a min-heap of the slots of the best {@code keep}
+     * by {@link #RANK}. Scores only grow, so the heap stays exact with a sift
+     * whenever a score in it, or one overtaking its root, is raised; the root
+     * is then the running threshold an unseen quote would have to beat.
+     */
+    private static final class Candidates {
+        private final int keep;
+        // Quote ids start at 1, so 0 marks a free slot
+        private long[] ids;
+        private double[] scores;
+        // Position of each slot in the heap, or -1 if it isn't among the best
+        private int[] heapAt;
+        private int size;
+        // Grown as needed, since keep includes the offset of a deep page
+        private int[] heap;
+        private int heapSize;
+
+        Candidates(int keep, int expected) {
+            this.keep = keep;
+            this.heap = new int[Math.min(keep, 64)];
+            // At most half full
+            int capacity = Integer.highestOneBit(Math.max(32, expected) * 2 - 1) * 2;
+            ids = new long[capacity];
+            scores = new double[capacity];
+            heapAt = new int[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+
+        /**
+         * The id in {@code slot}, or 0 if it is free.
+         */
+        long id(int slot) {
+            return ids[slot];
+        }
+
+        /**
+         * The {@code keep}-th best score so far, or minus infinity while there
+         * are fewer candidates than that.
+         */
+        double threshold() {
+            return heapSize < keep ? Double.NEGATIVE_INFINITY : scores[heap[0]];
+        }
+
+        void add(long id, double score) {
+            int slot = slot(id);
+            if (ids[slot] == 0) {
+                if (size * 2 >= ids.length) {
+                    grow();
+                    slot = slot(id);
+                }
+                ids[slot] = id;
+                heapAt[slot] = -1;
+                size++;
+            }
+            raise(slot, score);
+        }
+
+        void addIfPresent(long id, double score) {
+            int slot = slot(id);
+            if (ids[slot] != 0) {
+                raise(slot, score);
+            }
+        }
+
+        void raise(int slot, double score) {
+            scores[slot] += score;
+            int at = heapAt[slot];
+            if (at >= 0) {
+                siftDown(at);
+            } else if (heapSize < keep) {
+                if (heapSize == heap.length) {
+                    heap = Arrays.copyOf(heap, (int) Math.min(keep, heapSize * 2L));
+                }
+                heap[heapSize] = slot;
+                heapAt[slot] = heapSize;
+                siftUp(heapSize++);
+            } else if (better(slot, heap[0])) {
+                heapAt[heap[0]] = -1;
+                heap[0] = slot;
+                heapAt[slot] = 0;
+                siftDown(0);
+            }
+        }
+
+        List<Hit> ranked() {
+            List<Hit> ranked = new ArrayList<>(heapSize);
+            for (int i = 0; i < heapSize; i++) {
+                ranked.add(new Hit(ids[heap[i]], scores[heap[i]]));
+            }
+            ranked.sort(RANK);
+            return ranked;
+        }
+
+        // The slot holding id, or the free slot it would go in
+        private int slot(long id) {
+            int mask = ids.length - 1;
+            int slot = (int) (id ^ id >>> 32) & mask;
+            while (ids[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldIds = ids;
+            double[] oldScores = scores;
+            int[] oldHeapAt = heapAt;
+            ids = new long[oldIds.length * 2];
+            scores = new double[ids.length];
+            heapAt = new int[ids.length];
+            for (int old = 0; old < oldIds.length; old++) {
+                if (oldIds[old] != 0) {
+                    int slot = slot(oldIds[old]);
+                    ids[slot] = oldIds[old];
+                    scores[slot] = oldScores[old];
+                    heapAt[slot] = oldHeapAt[old];
+                    if (heapAt[slot] >= 0) {
+                        heap[heapAt[slot]] = slot;
+                    }
+                }
+            }
+        }
+
+        // Ranks ahead by RANK: higher score, then lower id
+        private boolean better(int a, int b) {
+            return scores[a] > scores[b] || (scores[a] == scores[b] && ids[a] < ids[b]);
+        }
+
+        private void siftUp(int at) {
+            int slot = heap[at];
+            while (at > 0) {
+                int parent = (at - 1) >>> 1;
+                if (!better(heap[parent], slot)) {
+                    break;
+                }
+                place(at, heap[parent]);
+                at = parent;
+            }
+            place(at, slot);
+        }
+
+        private void siftDown(int at) {
+            int slot = heap[at];
+            while (true) {
+                int child = 2 * at + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && better(heap[child], heap[child + 1])) {
+                    child++;
+                }
+                if (!better(slot, heap[child])) {
+                    break;
+                }
+                place(at, heap[child]);
+                at = child;
+            }
+            place(at, slot);
+        }
+
+        private void place(int at, int slot) {
+            heap[at] = slot;
+            heapAt[slot] = at;
+        }
+    }
+
+    /**
+     * A query term's postings and inverse document frequency.
+     */
+    private record TermPostings(Posting posting, double idf) {
+    }
+
+    /**
+     * BM25 contribution of one term to one quote's score.
+     */
+    private double score(double idf, int tf, long id, double avgLength) {
+        int length = docLengths.get(id);
+        return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+    }
+
+    /**
+     * Total postings examined by all searches so far.
+     */
+    long scanned() {
+        return scanned.sum();
+    }
+
+    void clear() {
+        postings.clear();
+        docLengths.clear();
+        totalLength.set(0);
+        if (deferred != null) {
+            deferred.clear();
+            deferredCount = 0;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package edu.trincoll.tracker;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * A set of quote ids stored as a bitmap over the id sequence.
+ * <p>
+ * Ids are handed out densely from 1, so one bit per id is far smaller than a
+ * set of boxed longs. The bitmap is split into chunks of 65,536 ids (8 KiB),
+ * allocated the first time an id in their range is added, so a set only
+ * costs memory for the id ranges it actually touches. Bits are flipped
+ * atomically, so writers on different ids never block each other.
+ * <p>
+ * Sets are combined by {@link #intersect ANDing} them word by word, 64 ids at
+ * a time, driven by the chunks of the smallest set.
+ */
+final class IdBitmap {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int WORDS_PER_CHUNK = (1 << CHUNK_SHIFT) / Long.SIZE;
+
+    private final ConcurrentNavigableMap<Long, AtomicLongArray> chunks = new ConcurrentSkipListMap<>();
+    private final LongAdder cardinality = new LongAdder();
+
+    void add(long id) {
+        AtomicLongArray words = chunks.computeIfAbsent(id >>> CHUNK_SHIFT, chunk -> new AtomicLongArray(WORDS_PER_CHUNK));
+        long bit = 1L << id;
+        if ((words.getAndAccumulate(word(id), bit, (current, mask) -> current | mask) & bit) == 0) {
+            cardinality.increment();
+        }
+    }
+
+    void remove(long id) {
+        AtomicLongArray words = chunks.get(id >>> CHUNK_SHIFT);
+        if (words == null) {
+            return;
+        }
+        long bit = 1L << id;
+        if ((words.getAndAccumulate(word(id), bit, (current, mask) -> current & ~mask) & bit) != 0) {
+            cardinality.decrement();
+        }
+    }
+
+    boolean contains(long id) {
+        AtomicLongArray words = chunks.get(id >>> CHUNK_SHIFT);
+        return words != null && (words.get(word(id)) & (1L << id)) != 0;
+    }
+
+    void clear() {
+        chunks.clear();
+        cardinality.reset();
+    }
+
+    /**
+     * Number of ids in the set, kept as the bits flip rather than counted.
+     */
+    long cardinality() {
+        return cardinality.sum();
+    }
+
+    /**
+     * Heap the chunks of a set holding ids from {@code first} to {@code last} take at most.
+     */
+    static long bytesSpanning(long first, long last) {
+        return ((last >>> CHUNK_SHIFT) - (first >>> CHUNK_SHIFT) + 1) * WORDS_PER_CHUNK * Long.BYTES;
+    }
+
+    /**
+     * Number of ids present in every one of {@code sets}.
+     */
+    static long intersectionSize(List<IdBitmap> sets) {
+        if (sets.size() == 1) {
+            return sets.get(0).cardinality();
+        }
+        long[] count = {0};
+        intersect(sets, 0, (chunkBase, word, bits) -> {
+            count[0] += Long.bitCount(bits);
+            return true;
+        });
+        return count[0];
+    }
+
+    /**
+     * Calls {@code action} with each id greater than {@code afterId} that is
+     * present in every one of {@code sets}, in ascending order, until it returns false.
+     */
+    static void forEach(List<IdBitmap> sets, long afterId, LongPredicate action) {
+        intersect(sets, afterId, (chunkBase, word, bits) -> {
+            long remaining = bits;
+            while (remaining != 0) {
+                long id = chunkBase + (long) word * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+                if (!action.test(id)) {
+                    return false;
+                }
+                remaining &= remaining - 1;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * The smallest id in the set greater than {@code afterId}, or -1 if there is none.
+     */
+    long next(long afterId) {
+        long[] found = {-1};
+        intersect(List.of(this), Math.max(afterId, -1), (chunkBase, word, bits) -> {
+            found[0] = chunkBase + (long) word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            return false;
+        });
+        return found[0];
+    }
+
+    @FunctionalInterface
+    private interface WordVisitor {
+        boolean visit(long chunkBase, int word, long bits);
+    }
+
+    /**
+     * Visits every non-zero word of the intersection above {@code afterId}, in id order.
+     */
+    private static void intersect(List<IdBitmap> sets, long afterId, WordVisitor visitor) {
+        IdBitmap[] ordered = sets.toArray(IdBitmap[]::new);
+        // The smallest set drives; others are only probed for the chunks it has
+        Arrays.sort(ordered, (a, b) -> Long.compare(a.cardinality(), b.cardinality()));
+        long firstId = afterId + 1;
+        long firstChunk = firstId >>> CHUNK_SHIFT;
+        AtomicLongArray[] others = new AtomicLongArray[ordered.length - 1];
+
+        Iterator<Map.Entry<Long, AtomicLongArray>> driver = ordered[0].chunks.tailMap(firstChunk, true).entrySet().iterator();
+        chunks:
+        while (driver.hasNext()) {
+            Map.Entry<Long, AtomicLongArray> chunk = driver.next();
+            long key = chunk.getKey();
+            for (int i = 1; i < ordered.length; i++) {
+                others[i - 1] = ordered[i].chunks.get(key);
+                if (others[i - 1] == null) {
+                    continue chunks;
+                }
+            }
+            long chunkBase = key << CHUNK_SHIFT;
+            int startWord = key == firstChunk ? word(firstId) : 0;
+            for (int w = startWord; w < WORDS_PER_CHUNK; w++) {
+                long bits = chunk.getValue().get(w);
+                for (int i = 0; bits != 0 && i < others.length; i++) {
+                    bits &= others[i].get(w);
+                }
+                if (w == startWord && key == firstChunk) {
+                    // Drop the ids at or below afterId that share the first word
+                    bits &= -1L << firstId;
+                }
+                if (bits != 0 && !visitor.visit(chunkBase, w, bits)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int word(long id) {
+        return (int) (id & ((1L << CHUNK_SHIFT) - 1)) >>> 6;
+    }
+}
@@ -0,0 +1,467 @@
+package edu.trincoll.tracker;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted n-gram index over quote names for case-insensitive substring search.
+ * <p>
+ * Every 1-, 2- and 3-character gram of a lowercased name points at the ids
+ * whose name contains it. Queries of up to three characters are answered
+ * straight from one posting list; longer queries intersect the posting lists
+ * of their trigrams and verify the survivors against the stored lowercased name.
+ * Posting lists are kept in id order, so results come back sorted by id.
+ * <p>
+ * A posting list is a sorted {@code long[]}, 8 bytes per id, until it would
+ * outgrow an {@link IdBitmap} over the same id range; then it becomes that
+ * bitmap, one bit per id. Rare grams thus cost a few longs and the grams
+ * nearly every name shares cost a bit per quote.
+ * <p>
+ * Between {@link #defer()} and {@link #flush()} posting changes are collected
+ * per gram instead, and then applied with one rewrite of each gram's posting,
+ * however many names of the batch share it.
+ */
+class NameSearchIndex {
+
+    private static final int MAX_GRAM = 3;
+    // Posting changes held back before a flush, at most this many in all
+    private static final int MAX_DEFERRED = 1 << 16;
+
+    /**
+     * Ids containing one gram. Only written inside {@link ConcurrentHashMap#compute},
+     * which serializes writers per gram. A sorted list is never changed where a
+     * reader could see it: new ids past the end are written beyond {@code size}
+     * of the postings already published, and any other change copies the array.
+     * A bitmap flips its bits in place, atomically.
+     */
+    private static final class Posting {
+        // Ascending ids, of which the first size are live; null once this is a bitmap
+        final long[] ids;
+        final int size;
+        final IdBitmap bitmap;
+
+        Posting(long[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+            this.bitmap = null;
+        }
+
+        Posting(IdBitmap bitmap) {
+            this.ids = null;
+            this.size = 0;
+            this.bitmap = bitmap;
+        }
+
+        long size() {
+            return bitmap != null ? bitmap.cardinality() : size;
+        }
+
+        boolean contains(long id) {
+            return bitmap != null ? bitmap.contains(id) : Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /**
+         * Calls {@code action} with each id in ascending order until it returns false.
+         */
+        void forEach(LongPredicate action) {
+            if (bitmap != null) {
+                IdBitmap.forEach(List.of(bitmap), 0, action);
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!action.test(ids[i])) {
+                    return;
+                }
+            }
+        }
+
+        Posting with(long id) {
+            if (bitmap != null) {
+                bitmap.add(id);
+                return this;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return this;
+            }
+            at = -at - 1;
+            long first = Math.min(ids[0], id);
+            long last = Math.max(ids[size - 1], id);
+            if ((size + 1L) * Long.BYTES > IdBitmap.bytesSpanning(first, last)) {
+                IdBitmap promoted = new IdBitmap();
+                for (int i = 0; i < size; i++) {
+                    promoted.add(ids[i]);
+                }
+                promoted.add(id);
+                return new Posting(promoted);
+            }
+            if (at == size && size < ids.length) {
+                // Past the end of every published posting, so no reader sees it until the new one is
+                ids[size] = id;
+                return new Posting(ids, size + 1);
+            }
+            long[] grown = new long[Math.max(size + 1, size + (size >> 1))];
+            System.arraycopy(ids, 0, grown, 0, at);
+            grown[at] = id;
+            System.arraycopy(ids, at, grown, at + 1, size - at);
+            return new Posting(grown, size + 1);
+        }
+
+        /**
+         * This posting with every id of {@code added} and none of {@code removed},
+         * both ascending and disjoint, or null if nothing is left. Rewrites a sorted
+         * list at most once, where a change per id would copy it every time.
+         */
+        Posting updated(long[] added, long[] removed) {
+            if (bitmap != null) {
+                for (long id : added) {
+                    bitmap.add(id);
+                }
+                for (long id : removed) {
+                    bitmap.remove(id);
+                }
+                return bitmap.cardinality() == 0 ? null : this;
+            }
+            if (removed.length == 0 && added.length > 0 && size > 0 && added[0] > ids[size - 1]
+                    && size + added.length <= ids.length
+                    && (size + added.length) * (long) Long.BYTES <= IdBitmap.bytesSpanning(ids[0], added[added.length - 1])) {
+                // Past the end of every published posting, so no reader sees them until the new one is
+                System.arraycopy(added, 0, ids, size, added.length);
+                return new Posting(ids, size + added.length);
+            }
+            // With room to append half as many again, like with()
+            int most = size + added.length;
+            long[] merged = new long[most + (most >> 1)];
+            int count = 0;
+            int a = 0;
+            int r = 0;
+            for (int i = 0; i <= size; i++) {
+                long next = i < size ? ids[i] : Long.MAX_VALUE;
+                while (a < added.length && added[a] < next) {
+                    merged[count++] = added[a++];
+                }
+                while (r < removed.length && removed[r] < next) {
+                    r++;
+                }
+                if (i == size) {
+                    break;
+                }
+                if (r < removed.length && removed[r] == next) {
+                    r++;
+                } else {
+                    merged[count++] = next;
+                }
+                if (a < added.length && added[a] == next) {
+                    a++;
+                }
+            }
+            if (count == 0) {
+                return null;
+            }
+            if (count * (long) Long.BYTES > IdBitmap.bytesSpanning(merged[0], merged[count - 1])) {
+                IdBitmap promoted = new IdBitmap();
+                for (int i = 0; i < count; i++) {
+                    promoted.add(merged[i]);
+                }
+                return new Posting(promoted);
+            }
+            return new Posting(merged, count);
+        }
+
+        /**
+         * This posting without {@code id}, or null if nothing is left.
+         */
+        Posting without(long id) {
+            if (bitmap != null) {
+                bitmap.remove(id);
+                return bitmap.cardinality() == 0 ? null : this;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return null;
+            }
+            long[] shrunk = new long[size - 1];
+            System.arraycopy(ids, 0, shrunk, 0, at);
+            System.arraycopy(ids, at + 1, shrunk, at, size - at - 1);
+            return new Posting(shrunk, size - 1);
+        }
+    }
+
+    /**
+     * Posting changes of one gram held back since {@link #defer()}, in the
+     * order they were made: each id shifted left once, low bit set if the id
+     * joins the posting and clear if it leaves.
+     */
+    private static final class Changes {
+        long[] entries = new long[4];
+        int size;
+
+        void add(long id, boolean present) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = id << 1 | (present ? 1 : 0);
+        }
+    }
+
+    private static final Posting EMPTY = new Posting(new long[0], 0);
+
+    // Grams packed by gram(), so that neither indexing nor lookups build a string per gram
+    private final Map<Long, Posting> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> lowerNames = new ConcurrentHashMap<>();
+    // Posting entries walked by searches so far, a measure of search cost
+    private final LongAdder scanned = new LongAdder();
+    // Changes held back per gram while deferring, else null. Only touched by the
+    // one thread allowed to write, like the writes themselves
+    private Map<Long, Changes> deferred;
+    private int deferredCount;
+
+    void add(long id, String name) {
+        String lower = lower(name);
+        lowerNames.put(id, lower);
+        for (long gram : grams(lower)) {
+            addPosting(gram, id);
+        }
+    }
+
+    /**
+     * Re-indexes a renamed quote. New grams are added before stale ones are
+     * dropped so that concurrent searches never miss a gram both names share.
+     */
+    void rename(long id, String oldName, String newName) {
+        String oldLower = lower(oldName);
+        String newLower = lower(newName);
+        long[] newGrams = grams(newLower);
+        for (long gram : newGrams) {
+            addPosting(gram, id);
+        }
+        lowerNames.put(id, newLower);
+        for (long gram : grams(oldLower)) {
+            if (Arrays.binarySearch(newGrams, gram) < 0) {
+                removePosting(gram, id);
+            }
+        }
+    }
+
+    void remove(long id) {
+        String lower = lowerNames.remove(id);
+        if (lower == null) {
+            return;
+        }
+        for (long gram : grams(lower)) {
+            removePosting(gram, id);
+        }
+    }
+
+    /**
+     * Returns the ids, in ascending order, whose lowercased name contains the
+     * lowercased query. An empty query matches every indexed id.
+     */
+    List<Long> search(String query) {
+        String lower = lower(query);
+        if (lower.isEmpty()) {
+            List<Long> all = new ArrayList<>(lowerNames.keySet());
+            Collections.sort(all);
+            scanned.add(all.size());
+            return all;
+        }
+        if (lower.length() <= MAX_GRAM) {
+            Posting posting = postings.get(gram(lower, 0, lower.length()));
+            if (posting == null) {
+                return List.of();
+            }
+            List<Long> ids = new ArrayList<>();
+            posting.forEach(ids::add);
+            scanned.add(ids.size());
+            return ids;
+        }
+
+        List<Posting> lists = new ArrayList<>();
+        for (long gram : grams(lower, MAX_GRAM, MAX_GRAM)) {
+            Posting posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        // Drive the intersection from the rarest gram
+        lists.sort(Comparator.comparingLong(Posting::size));
+        Posting smallest = lists.get(0);
+
+        List<Long> results = new ArrayList<>();
+        int[] candidateCount = {0};
+        smallest.forEach(id -> {
+            candidateCount[0]++;
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    return true;
+                }
+            }
+            // Sharing all trigrams is necessary but not sufficient for containment
+            String name = lowerNames.get(id);
+            if (name != null && name.contains(lower)) {
+                results.add(id);
+            }
+            return true;
+        });
+        scanned.add(candidateCount[0]);
+        return results;
+    }
+
+    /**
+     * Total posting entries examined by all searches so far.
+     */
+    long scanned() {
+        return scanned.sum();
+    }
+
+    void clear() {
+        postings.clear();
+        lowerNames.clear();
+        if (deferred != null) {
+            deferred.clear();
+            deferredCount = 0;
+        }
+    }
+
+    /**
+     * Holds back posting changes until {@link #flush()}. The caller must keep
+     * every other writer out until then, and searches meanwhile go by the
+     * postings as they were.
+     */
+    void defer() {
+        deferred = new HashMap<>();
+        deferredCount = 0;
+    }
+
+    /**
+     * Applies the posting changes held back since {@link #defer()}, one
+     * rewrite per gram, and stops deferring.
+     */
+    void flush() {
+        applyDeferred();
+        deferred = null;
+    }
+
+    private void applyDeferred() {
+        for (Map.Entry<Long, Changes> gram : deferred.entrySet()) {
+            Changes changes = gram.getValue();
+            long[] sorted = Arrays.copyOf(changes.entries, changes.size);
+            Arrays.sort(sorted);
+            boolean repeated = false;
+            int added = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                repeated |= i > 0 && sorted[i] >>> 1 == sorted[i - 1] >>> 1;
+                added += (int) (sorted[i] & 1);
+            }
+            if (repeated) {
+                // An id changed twice, by several writes to one quote: replay them in order
+                postings.compute(gram.getKey(), (g, posting) -> {
+                    for (int i = 0; i < changes.size; i++) {
+                        long id = changes.entries[i] >>> 1;
+                        if ((changes.entries[i] & 1) != 0) {
+                            posting = posting == null ? new Posting(new long[]{id}, 1) : posting.with(id);
+                        } else if (posting != null) {
+                            posting = posting.without(id);
+                        }
+                    }
+                    return posting;
+                });
+                continue;
+            }
+            long[] addedIds = new long[added];
+            long[] removedIds = new long[sorted.length - added];
+            int a = 0;
+            int r = 0;
+            for (long entry : sorted) {
+                if ((entry & 1) != 0) {
+                    addedIds[a++] = entry >>> 1;
+                } else {
+                    removedIds[r++] = entry >>> 1;
+                }
+            }
+            postings.compute(gram.getKey(), (g, posting) -> (posting == null ? EMPTY : posting).updated(addedIds, removedIds));
+        }
+        deferred.clear();
+        deferredCount = 0;
+    }
+
+    private void addPosting(long gram, long id) {
+        if (deferred != null) {
+            deferChange(gram, id, true);
+            return;
+        }
+        postings.compute(gram, (g, posting) -> posting == null ? new Posting(new long[]{id}, 1) : posting.with(id));
+    }
+
+    private void removePosting(long gram, long id) {
+        if (deferred != null) {
+            deferChange(gram, id, false);
+            return;
+        }
+        postings.computeIfPresent(gram, (g, posting) -> posting.without(id));
+    }
+
+    private void deferChange(long gram, long id, boolean present) {
+        deferred.computeIfAbsent(gram, g -> new Changes()).add(id, present);
+        if (++deferredCount >= MAX_DEFERRED) {
+            applyDeferred();
+        }
+    }
+
+    private static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The characters {@code from} to {@code to} (at most three) packed into a
+     * long: a leading 1 bit, then 16 bits per character. The packing is then
+     * multiplied by an odd constant, which keeps grams distinct and spreads
+     * them over the bits {@link Long#hashCode()} looks at.
+     */
+    private static long gram(String lower, int from, int to) {
+        long gram = 1;
+        for (int i = from; i < to; i++) {
+            gram = gram << Character.SIZE | lower.charAt(i);
+        }
+        return gram * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Every distinct 1- to 3-character gram of a lowercased name, packed and in ascending order.
+     */
+    private static long[] grams(String lower) {
+        return grams(lower, 1, MAX_GRAM);
+    }
+
+    /**
+     * Every distinct gram of {@code shortest} to {@code longest} characters, packed and in ascending order.
+     */
+    private static long[] grams(String lower, int shortest, int longest) {
+        int length = lower.length();
+        int count = 0;
+        for (int n = shortest; n <= longest; n++) {
+            count += Math.max(0, length - n + 1);
+        }
+        long[] grams = new long[count];
+        int at = 0;
+        for (int n = shortest; n <= longest; n++) {
+            for (int i = 0; i + n <= length; i++) {
+                grams[at++] = gram(lower, i, i + n);
+            }
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return distinct == grams.length ? grams : Arrays.copyOf(grams, distinct);
+    }
+}
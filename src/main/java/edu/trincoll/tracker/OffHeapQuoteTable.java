@@ -0,0 +1,429 @@
+package edu.trincoll.tracker;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link QuoteTable} that keeps quotes outside the Java heap, so millions of
+ * them add no objects for the garbage collector to trace.
+ * <p>
+ * Each quote is one {@link QuoteCodec} record, prefixed with its length, in a
+ * block of a direct {@link ByteBuffer} slab. Blocks come in power-of-two size
+ * classes from 64 bytes to a whole 1 MiB slab and are carved off the current
+ * slab in turn. A freed block goes on its class's free list and is reused by
+ * the next record of that class. An update that stays in its size class
+ * overwrites its block in place. Records too large for a slab get a direct
+ * buffer of their own, which is released on delete.
+ * <p>
+ * The heap only holds the slab handles, a primitive open-addressing map from
+ * id to block address, and an {@link IdBitmap} of the ids for iteration in id
+ * order: a few bytes per quote and no per-quote objects. Records are decoded
+ * into a short-lived {@link StoredQuote} on every read.
+ * <p>
+ * A read-write lock guards the slabs and the map, so reads run in parallel
+ * and never see a block being rewritten. Writes within a shard take turns,
+ * since they share the allocator; sharding the store spreads them out again.
+ */
+final class OffHeapQuoteTable implements QuoteTable {
+
+    static final int SLAB_SIZE = 1 << 20;
+
+    private static final int MIN_BLOCK_SHIFT = 6;
+    private static final int CLASSES = Integer.numberOfTrailingZeros(SLAB_SIZE) - MIN_BLOCK_SHIFT + 1;
+    private static final int HUGE = -1;
+    private static final long NONE = -1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IdBitmap ids = new IdBitmap();
+    // Everything below is guarded by lock
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    // Slab slots left empty by released huge records
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final LongStack[] free = new LongStack[CLASSES];
+    private final LongLongMap addresses = new LongLongMap();
+    private int current = -1;
+    private int bump;
+    private long reserved;
+
+    OffHeapQuoteTable() {
+        for (int i = 0; i < CLASSES; i++) {
+            free[i] = new LongStack();
+        }
+    }
+
+    @Override
+    public StoredQuote get(long id) {
+        lock.readLock().lock();
+        try {
+            long address = addresses.get(id);
+            if (address == NONE) {
+                return null;
+            }
+            ByteBuffer slab = slabs.get(slot(address));
+            int offset = offset(address);
+            int length = slab.getInt(offset);
+            return QuoteCodec.decodeStored(slab.slice(offset + Integer.BYTES, length));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(long id) {
+        return ids.contains(id);
+    }
+
+    @Override
+    public void put(StoredQuote quote) {
+        if (quote.id() <= 0) {
+            throw new IllegalArgumentException("Off-heap quote ids must be positive, was " + quote.id());
+        }
+        // Encoded before taking the lock, so writers only hold it to copy bytes
+        byte[] record = QuoteCodec.encode(quote);
+        int size = Integer.BYTES + record.length;
+        lock.writeLock().lock();
+        try {
+            long old = addresses.get(quote.id());
+            int sizeClass = sizeClass(size);
+            if (old != NONE && sizeClass != HUGE && sizeClass == sizeClass(blockSize(old))) {
+                write(old, record);
+            } else {
+                long address = allocate(size, sizeClass);
+                write(address, record);
+                addresses.put(quote.id(), address);
+                if (old != NONE) {
+                    release(old);
+                }
+            }
+            ids.add(quote.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            long address = addresses.remove(id);
+            if (address != NONE) {
+                release(address);
+                ids.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<StoredQuote> valuesAfter(long afterId) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<StoredQuote> iterator() {
+                return new Iterator<>() {
+                    private long cursor = afterId;
+                    private StoredQuote next = advance();
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public StoredQuote next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        StoredQuote current = next;
+                        next = advance();
+                        return current;
+                    }
+
+                    private StoredQuote advance() {
+                        long id;
+                        while ((id = ids.next(cursor)) >= 0) {
+                            cursor = id;
+                            StoredQuote quote = get(id);
+                            // Null if deleted since the bitmap was read
+                            if (quote != null) {
+                                return quote;
+                            }
+                        }
+                        return null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                if (afterId < 1) {
+                    return (int) ids.cardinality();
+                }
+                int[] count = {0};
+                IdBitmap.forEach(List.of(ids), afterId, id -> {
+                    count[0]++;
+                    return true;
+                });
+                return count[0];
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return !hasAfter(afterId);
+            }
+        };
+    }
+
+    @Override
+    public boolean hasAfter(long afterId) {
+        return ids.next(afterId) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ids.cardinality() == 0;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            // Direct buffers are freed once unreachable
+            slabs.clear();
+            freeSlots.clear();
+            for (LongStack stack : free) {
+                stack.clear();
+            }
+            addresses.clear();
+            ids.clear();
+            current = -1;
+            bump = 0;
+            reserved = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return reserved;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long allocate(int size, int sizeClass) {
+        if (sizeClass == HUGE) {
+            ByteBuffer own = ByteBuffer.allocateDirect(size);
+            reserved += size;
+            Integer slot = freeSlots.poll();
+            if (slot == null) {
+                slabs.add(own);
+                return address(slabs.size() - 1, 0);
+            }
+            slabs.set(slot, own);
+            return address(slot, 0);
+        }
+        if (!free[sizeClass].isEmpty()) {
+            return free[sizeClass].pop();
+        }
+        int block = 1 << (sizeClass + MIN_BLOCK_SHIFT);
+        if (current < 0 || bump + block > SLAB_SIZE) {
+            // The rest of the old slab is too small for this block and stays unused
+            Integer slot = freeSlots.poll();
+            ByteBuffer slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+            if (slot == null) {
+                slabs.add(slab);
+                current = slabs.size() - 1;
+            } else {
+                slabs.set(slot, slab);
+                current = slot;
+            }
+            reserved += SLAB_SIZE;
+            bump = 0;
+        }
+        long address = address(current, bump);
+        bump += block;
+        return address;
+    }
+
+    private void release(long address) {
+        int sizeClass = sizeClass(blockSize(address));
+        if (sizeClass == HUGE) {
+            int slot = slot(address);
+            reserved -= slabs.get(slot).capacity();
+            slabs.set(slot, null);
+            freeSlots.push(slot);
+        } else {
+            free[sizeClass].push(address);
+        }
+    }
+
+    private void write(long address, byte[] record) {
+        ByteBuffer slab = slabs.get(slot(address));
+        int offset = offset(address);
+        slab.putInt(offset, record.length);
+        slab.put(offset + Integer.BYTES, record);
+    }
+
+    // Bytes the record at address needs, which determines its block's size class
+    private int blockSize(long address) {
+        return Integer.BYTES + slabs.get(slot(address)).getInt(offset(address));
+    }
+
+    private static int sizeClass(int size) {
+        if (size > SLAB_SIZE) {
+            return HUGE;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return Math.max(0, shift - MIN_BLOCK_SHIFT);
+    }
+
+    private static long address(int slot, int offset) {
+        return ((long) slot << 32) | offset;
+    }
+
+    private static int slot(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Growable stack of longs.
+     */
+    private static final class LongStack {
+
+        private long[] items = new long[16];
+        private int size;
+
+        void push(long value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        long pop() {
+            return items[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            items = new long[16];
+            size = 0;
+        }
+    }
+
+    /**
+     * Open-addressing map from positive long keys to long values, with linear
+     * probing and backward-shift deletion, so it never needs tombstones.
+     * Key 0 marks an empty slot.
+     */
+    private static final class LongLongMap {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int mask = INITIAL_CAPACITY - 1;
+        private int size;
+
+        long get(long key) {
+            if (key <= 0) {
+                return NONE;
+            }
+            for (int i = home(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                if (keys[i] == 0) {
+                    return NONE;
+                }
+            }
+        }
+
+        void put(long key, long value) {
+            // Kept at most half full, so probe runs stay short
+            if (2 * (size + 1) > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = home(key);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        long remove(long key) {
+            if (key <= 0) {
+                return NONE;
+            }
+            int hole = home(key);
+            while (keys[hole] != key) {
+                if (keys[hole] == 0) {
+                    return NONE;
+                }
+                hole = (hole + 1) & mask;
+            }
+            long removed = values[hole];
+            // Pull later entries of the probe run back, so lookups never stop early at the hole
+            for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                int home = home(keys[i]);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            size--;
+            return removed;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            values = new long[INITIAL_CAPACITY];
+            mask = INITIAL_CAPACITY - 1;
+            size = 0;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[capacity];
+            values = new long[capacity];
+            mask = capacity - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private int home(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
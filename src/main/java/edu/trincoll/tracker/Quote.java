@@ -1,5 +1,6 @@
 package edu.trincoll.tracker;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -30,6 +31,10 @@ public class Quote {
     private LocalDateTime createdAt;
     
     private boolean completed;
+
+    // Bumped by every update; sent as the ETag header, not in the JSON body
+    @JsonIgnore
+    private Long version;
     
     // Constructor
     public Quote() {
@@ -89,6 +94,14 @@ public class Quote {
         this.completed = completed;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
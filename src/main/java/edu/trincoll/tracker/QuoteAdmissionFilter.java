@@ -0,0 +1,164 @@
+package edu.trincoll.tracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds load on the quote API before it piles up, so a flood of writes can't
+ * starve reads.
+ * <p>
+ * Writes are first rate limited per client (by remote address) with a
+ * {@link TokenBucket} of {@code write-rate} per second and {@code write-burst}
+ * at once. Every request under {@code /api/items} and {@code /api/reactive/items}
+ * then takes one of {@code max-concurrent} slots from an {@link AdmissionQueue},
+ * which lets reads go ahead of waiting writes. A request that can't get a
+ * slot within {@code queue-timeout}, or finds the queue full, is shed.
+ * <p>
+ * Shed requests get 429 Too Many Requests and a {@code Retry-After} header:
+ * the time until the client's bucket has a token again, or
+ * {@code retry-after} when the server is overloaded. Streams and change
+ * feeds are left alone, since they hold their connection open on purpose.
+ * <p>
+ * Configured under {@code tracker.admission}; off unless
+ * {@code tracker.admission.enabled=true}, since limits that suit one deployment
+ * (bulk importers, many clients behind one NAT address) would throttle another.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracker.admission", name = "enabled", havingValue = "true")
+public class QuoteAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Set<String> WRITES = Set.of("POST", "PUT", "PATCH", "DELETE");
+    // Above this many clients, fully refilled buckets are forgotten
+    private static final int MAX_IDLE_CLIENTS = 10_000;
+
+    private final AdmissionQueue queue;
+    private final Duration queueTimeout;
+    private final Duration retryAfter;
+    private final double writeRate;
+    private final int writeBurst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Counter rateLimited;
+    private final Counter overloadedReads;
+    private final Counter overloadedWrites;
+
+    public QuoteAdmissionFilter(MeterRegistry registry,
+                                @Value("${tracker.admission.max-concurrent:64}") int maxConcurrent,
+                                @Value("${tracker.admission.max-queued:128}") int maxQueued,
+                                @Value("${tracker.admission.queue-timeout:1s}") Duration queueTimeout,
+                                @Value("${tracker.admission.retry-after:1s}") Duration retryAfter,
+                                @Value("${tracker.admission.write-rate:100}") double writeRate,
+                                @Value("${tracker.admission.write-burst:200}") int writeBurst) {
+        if (writeRate <= 0 || writeBurst < 1) {
+            throw new IllegalArgumentException("tracker.admission.write-rate and write-burst must be positive, were "
+                    + writeRate + " and " + writeBurst);
+        }
+        this.queue = new AdmissionQueue(maxConcurrent, maxQueued);
+        this.queueTimeout = queueTimeout;
+        this.retryAfter = retryAfter;
+        this.writeRate = writeRate;
+        this.writeBurst = writeBurst;
+
+        for (AdmissionQueue.Priority priority : AdmissionQueue.Priority.values()) {
+            Gauge.builder("quotes.admission.queued", queue, q -> q.queued(priority))
+                    .description("Requests waiting for an admission slot")
+                    .tag("type", type(priority))
+                    .register(registry);
+        }
+        Gauge.builder("quotes.admission.active", queue, AdmissionQueue::active)
+                .description("Requests holding an admission slot")
+                .register(registry);
+        rateLimited = rejections(registry, "rate-limit", AdmissionQueue.Priority.WRITE);
+        overloadedReads = rejections(registry, "overload", AdmissionQueue.Priority.READ);
+        overloadedWrites = rejections(registry, "overload", AdmissionQueue.Priority.WRITE);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean api = path.equals("/api/items") || path.startsWith("/api/items/")
+                || path.equals("/api/reactive/items") || path.startsWith("/api/reactive/items/");
+        return !api || path.startsWith("/api/items/changes") || path.endsWith("/stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = WRITES.contains(request.getMethod());
+        if (write) {
+            long now = System.nanoTime();
+            long wait = bucket(request.getRemoteAddr(), now).tryTake(now);
+            if (wait > 0) {
+                rateLimited.increment();
+                reject(response, Duration.ofNanos(wait), "Write rate limit exceeded");
+                return;
+            }
+        }
+
+        AdmissionQueue.Priority priority = write ? AdmissionQueue.Priority.WRITE : AdmissionQueue.Priority.READ;
+        boolean admitted;
+        try {
+            admitted = queue.acquire(priority, queueTimeout.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            (write ? overloadedWrites : overloadedReads).increment();
+            reject(response, retryAfter, "Server is busy");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            queue.release();
+        }
+    }
+
+    private TokenBucket bucket(String client, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= MAX_IDLE_CLIENTS) {
+            buckets.values().removeIf(idle -> idle.isFull(now));
+        }
+        return buckets.computeIfAbsent(client, c -> new TokenBucket(writeRate, writeBurst, now));
+    }
+
+    private static void reject(HttpServletResponse response, Duration retryAfter, String message) throws IOException {
+        // Whole seconds, rounded up, so a client waiting that long always gets through
+        long seconds = Math.max(1, (retryAfter.toNanos() + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), message);
+    }
+
+    private static Counter rejections(MeterRegistry registry, String reason, AdmissionQueue.Priority priority) {
+        return Counter.builder("quotes.admission.rejected")
+                .description("Requests shed with 429")
+                .tag("reason", reason)
+                .tag("type", type(priority))
+                .register(registry);
+    }
+
+    private static String type(AdmissionQueue.Priority priority) {
+        return priority == AdmissionQueue.Priority.READ ? "read" : "write";
+    }
+}
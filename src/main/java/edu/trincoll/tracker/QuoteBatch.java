@@ -0,0 +1,115 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.MappingIterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Applies a batch of create/update/delete operations in one pass.
+ * <p>
+ * Each operation gets the same status its single-item endpoint would return
+ * (201/200/204, or 400/404/409) as if the operations had been sent one by one,
+ * in order. Name conflicts are resolved by the store's name index, both
+ * against existing quotes and against names claimed earlier in the same batch,
+ * so nothing is ever scanned. The whole batch runs inside
+ * {@link QuoteStore#batch}, so listeners such as the write-ahead log can
+ * acknowledge it with a single commit.
+ */
+public final class QuoteBatch {
+
+    public enum Op {
+        @JsonProperty("create") CREATE,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("delete") DELETE
+    }
+
+    /**
+     * One requested operation. {@code id} is required for update and delete,
+     * {@code item} for create and update.
+     */
+    public record Operation(Op op, Long id, Quote item) {
+    }
+
+    /**
+     * Outcome of the operation at {@code index}; {@code item} is the stored quote on success.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Result(int index, int status, Quote item) {
+    }
+
+    private QuoteBatch() {
+    }
+
+    static List<Result> apply(QuoteStore store, Iterator<Operation> operations) {
+        List<Result> results = new ArrayList<>();
+        store.batch(() -> {
+            while (operations.hasNext()) {
+                results.add(apply(store, results.size(), operations.next()));
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Up to {@code max} operations from the front of a streamed batch. Every
+     * line is parsed before any is applied, so a malformed one fails the read
+     * and the batch as a whole.
+     */
+    static List<Operation> take(MappingIterator<Operation> lines, int max) throws IOException {
+        List<Operation> taken = new ArrayList<>();
+        while (taken.size() < max && lines.hasNextValue()) {
+            taken.add(lines.nextValue());
+        }
+        return taken;
+    }
+
+    private static Result apply(QuoteStore store, int index, Operation operation) {
+        if (operation == null || operation.op() == null) {
+            return new Result(index, 400, null);
+        }
+        switch (operation.op()) {
+            case CREATE -> {
+                if (!hasName(operation.item())) {
+                    return new Result(index, 400, null);
+                }
+                QuoteStore.WriteResult result = store.create(operation.item());
+                return result.status() == QuoteStore.Status.OK
+                        ? new Result(index, 201, result.quote())
+                        : new Result(index, 409, null);
+            }
+            case UPDATE -> {
+                if (operation.id() == null) {
+                    return new Result(index, 400, null);
+                }
+                // Same check order as PUT: unknown id wins over a bad body. A good body
+                // goes straight to the store, which reports an unknown id itself
+                if (!hasName(operation.item())) {
+                    return new Result(index, store.contains(operation.id()) ? 400 : 404, null);
+                }
+                QuoteStore.WriteResult result = store.update(operation.id(), operation.item());
+                return switch (result.status()) {
+                    case OK -> new Result(index, 200, result.quote());
+                    case NOT_FOUND -> new Result(index, 404, null);
+                    case CONFLICT -> new Result(index, 409, null);
+                    case PRECONDITION_FAILED -> new Result(index, 412, null);
+                };
+            }
+            case DELETE -> {
+                if (operation.id() == null) {
+                    return new Result(index, 400, null);
+                }
+                return new Result(index, store.delete(operation.id()) ? 204 : 404, null);
+            }
+            default -> throw new IllegalStateException("Unhandled batch op " + operation.op());
+        }
+    }
+
+    private static boolean hasName(Quote quote) {
+        return quote != null && quote.getQuoteName() != null && !quote.getQuoteName().isBlank();
+    }
+}
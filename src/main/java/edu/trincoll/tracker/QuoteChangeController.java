@@ -0,0 +1,139 @@
+package edu.trincoll.tracker;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Change feed for clients that keep a copy of the quotes, so they can follow
+ * writes instead of re-downloading {@code GET /api/items}.
+ * <p>
+ * Both endpoints read the {@link QuoteChangeLog}. A client starts by noting
+ * the {@code latest} sequence number, loads the full list, then tails from
+ * that number. Whenever it is told to resync it repeats those steps.
+ */
+@RestController
+@RequestMapping(value = "/api/items/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+public class QuoteChangeController {
+
+    private static final int MAX_BATCH = 1000;
+    private static final long MAX_WAIT_SECONDS = 60;
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final QuoteChangeLog changeLog;
+
+    public QuoteChangeController(QuoteChangeLog changeLog) {
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * GET /api/items/changes?since=seq&wait=30&limit=n
+     * Long-poll for the changes after sequence number {@code since}, oldest first
+     * - Answers as soon as there is at least one change, or after {@code wait} seconds with none
+     * - Without since, answers right away with no changes and the current latest number
+     * - Return 410 Gone with "resync": true if changes after since were already dropped:
+     *   reload GET /api/items, then continue with since=latest
+     * - Return 400 if since, wait or limit is out of range
+     */
+    @GetMapping
+    public DeferredResult<ResponseEntity<QuoteChangeLog.Page>> poll(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "wait", defaultValue = "30") long wait,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        DeferredResult<ResponseEntity<QuoteChangeLog.Page>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait));
+        if ((since != null && since < 0) || wait < 0 || wait > MAX_WAIT_SECONDS || limit < 1 || limit > MAX_BATCH) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+        long from = since == null ? changeLog.latest() : since;
+        if (since == null || wait == 0) {
+            result.setResult(respond(changeLog.read(from, limit)));
+            return result;
+        }
+        Runnable cancel = changeLog.onChanges(from, limit, page -> result.setResult(respond(page)));
+        result.onTimeout(() -> {
+            cancel.run();
+            result.setResult(respond(changeLog.read(from, limit)));
+        });
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    /**
+     * GET /api/items/changes/stream?since=seq
+     * Server-Sent Events with every change after {@code since} (or Last-Event-ID), then each new one
+     * - Event id is the sequence number, event name the change type (create, update, delete)
+     * - A "resync" event, followed by the end of the stream, means changes were missed
+     * - Without since, starts with the next change
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestParam(value = "since", required = false) Long since,
+                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long from = since;
+        if (from == null && lastEventId != null) {
+            try {
+                from = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        }
+        if (from != null && from < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        long start = from == null ? changeLog.latest() : from;
+
+        // No timeout: the stream lasts until the client leaves or the log closes
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicBoolean done = new AtomicBoolean();
+        emitter.onCompletion(() -> done.set(true));
+        emitter.onTimeout(() -> done.set(true));
+        emitter.onError(error -> done.set(true));
+        // One mostly-parked thread per subscriber, so virtual: idle streams cost next to nothing
+        Thread.ofVirtual().name("quote-changes-sse").start(() -> pump(emitter, start, done));
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void pump(SseEmitter emitter, long since, AtomicBoolean done) {
+        long cursor = since;
+        try {
+            while (!done.get() && !changeLog.isClosed()) {
+                QuoteChangeLog.Page page = changeLog.await(cursor, MAX_BATCH, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (page.resync()) {
+                    emitter.send(SseEmitter.event().name("resync").data(Map.of("latest", page.latest())));
+                    break;
+                }
+                if (page.changes().isEmpty()) {
+                    // Keeps idle connections open through proxies and notices clients that left
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                    continue;
+                }
+                for (QuoteChangeLog.Change change : page.changes()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.seq()))
+                            .name(change.type().name().toLowerCase(Locale.ROOT))
+                            .data(change, MediaType.APPLICATION_JSON));
+                    cursor = change.seq();
+                }
+            }
+            emitter.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone and Spring has already completed the emitter
+        }
+    }
+
+    private static ResponseEntity<QuoteChangeLog.Page> respond(QuoteChangeLog.Page page) {
+        return page.resync() ? ResponseEntity.status(HttpStatus.GONE).body(page) : ResponseEntity.ok(page);
+    }
+}
@@ -0,0 +1,241 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Recent changes to the quote store, numbered so clients can tail them.
+ * <p>
+ * Every mutation the store reports gets the next sequence number (starting at
+ * 1) and goes into a ring buffer of {@code tracker.changes.capacity} entries,
+ * so memory stays fixed and the oldest changes are overwritten. Mutations of
+ * one quote are reported under its lock, so their sequence numbers follow the
+ * order they were applied in.
+ * <p>
+ * A reader asks for the changes after the last sequence number it saw. If some
+ * of those were already overwritten, or the number is ahead of the log (the
+ * process restarted and numbering began again), it gets
+ * {@link Page#resync() resync} instead: it has to reload the whole store
+ * (after noting {@link #latest()}) and tail from there. Clearing the store,
+ * or loading it on recovery, empties the log and sends every reader
+ * positioned before that point to resync, since no list of changes could
+ * bring it up to date.
+ * <p>
+ * Numbering starts over in every process, so each log also has a random
+ * {@link #epoch()}. A position is only meaningful together with the epoch it
+ * was read in; replication followers compare it to notice a restarted leader.
+ * <p>
+ * Readers can block until something new arrives, or register a one-shot
+ * callback, which is how the long-poll endpoint avoids holding a request thread.
+ */
+@Component
+public final class QuoteChangeLog implements QuoteMutationListener {
+
+    /**
+     * One change; {@code quote} is the full state after it, or null for deletes.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Change(long seq, QuoteMutation.Type type, long id, Quote quote) {
+    }
+
+    /**
+     * Changes after a reader's position, oldest first. {@code latest} is the
+     * newest sequence number when the page was read; with {@code resync} set
+     * there are no changes, because some the reader needed are gone.
+     */
+    public record Page(List<Change> changes, long latest, boolean resync) {
+    }
+
+    private final long epoch = new SecureRandom().nextLong();
+    private final Change[] ring;
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    // Guarded by lock
+    private long latest;
+    // Lowest sequence number still readable; everything before was dropped by a clear
+    private long floor = 1;
+    private boolean closed;
+
+    private record Waiter(long since, int max, Consumer<Page> callback) {
+    }
+
+    public QuoteChangeLog(QuoteStore store, @Value("${tracker.changes.capacity:65536}") int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.ring = new Change[size];
+        this.mask = size - 1;
+        store.addListener(this);
+    }
+
+    /**
+     * Identifies this run of the log; a different value means the numbering started over.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    @Override
+    public void onMutation(QuoteMutation mutation) {
+        lock.lock();
+        try {
+            latest++;
+            ring[(int) (latest & mask)] = new Change(latest, mutation.type(), mutation.id(), mutation.quote());
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!waiters.isEmpty()) {
+            wakeWaiters();
+        }
+    }
+
+    /**
+     * Drops every change and moves the numbering past this point, so any reader
+     * positioned at or before it, even one fully caught up, is told to resync.
+     */
+    @Override
+    public void onClear() {
+        lock.lock();
+        try {
+            Arrays.fill(ring, null);
+            // Burn a number, so readers at the old latest fall below the floor
+            latest++;
+            floor = latest + 1;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (!waiters.isEmpty()) {
+            wakeWaiters();
+        }
+    }
+
+    /**
+     * Sequence number of the newest change, 0 if there has been none.
+     */
+    public long latest() {
+        lock.lock();
+        try {
+            return latest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code max} changes with sequence numbers greater than {@code since}; never blocks.
+     */
+    public Page read(long since, int max) {
+        lock.lock();
+        try {
+            return readLocked(since, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@link #read}, but waits up to {@code timeout} for a change if
+     * there is none yet. Returns an empty page on timeout or shutdown.
+     */
+    public Page await(long since, int max, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (latest == since && !closed && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            return readLocked(since, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Calls {@code callback} once, on a writing thread, with the changes after
+     * {@code since} as soon as there are any; right away if there already are.
+     * Returns an action that cancels the callback if it hasn't run yet.
+     */
+    public Runnable onChanges(long since, int max, Consumer<Page> callback) {
+        Waiter waiter = new Waiter(since, max, callback);
+        waiters.add(waiter);
+        // A change appended before the waiter was queued would never wake it
+        recheck(waiter);
+        return () -> waiters.remove(waiter);
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes every blocked reader so streams can end before the store goes away.
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void wakeWaiters() {
+        Waiter waiter;
+        List<Waiter> notYet = new ArrayList<>();
+        while ((waiter = waiters.poll()) != null) {
+            Page page = read(waiter.since(), waiter.max());
+            if (page.resync() || !page.changes().isEmpty()) {
+                waiter.callback().accept(page);
+            } else {
+                notYet.add(waiter);
+            }
+        }
+        waiters.addAll(notYet);
+        // Another writer may have appended while these were out of the queue
+        for (Waiter pending : notYet) {
+            recheck(pending);
+        }
+    }
+
+    private void recheck(Waiter waiter) {
+        if (latest() != waiter.since() && waiters.remove(waiter)) {
+            waiter.callback().accept(read(waiter.since(), waiter.max()));
+        }
+    }
+
+    private Page readLocked(long since, int max) {
+        long oldest = Math.max(floor, latest - ring.length + 1);
+        if (since + 1 < oldest || since > latest) {
+            return new Page(List.of(), latest, true);
+        }
+        long from = Math.max(since + 1, oldest);
+        int count = (int) Math.min(Math.max(0, latest - from + 1), max);
+        List<Change> changes = new ArrayList<>(count);
+        for (long seq = from; seq < from + count; seq++) {
+            changes.add(ring[(int) (seq & mask)]);
+        }
+        return new Page(changes, latest, false);
+    }
+}
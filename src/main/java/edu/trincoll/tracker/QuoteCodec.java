@@ -0,0 +1,134 @@
+package edu.trincoll.tracker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of a {@link Quote}, shared by the write-ahead log and snapshots.
+ * <p>
+ * Layout (big-endian): id (8 bytes), createdAt as epoch millis (8), flags (1),
+ * the version (8) if the has-version flag is set, then name, description,
+ * author, source and category as length-prefixed
+ * UTF-8 strings, with a length of -1 meaning null. createdAt is a
+ * {@link LocalDateTime}, so it is encoded as if it were UTC; that round-trips
+ * exactly and involves no time zone. Records written before quotes had
+ * versions lack the flag and decode as version 1.
+ */
+final class QuoteCodec {
+
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_HAS_VERSION = 2;
+    private static final int FIXED_SIZE = Long.BYTES + Long.BYTES + 1 + Long.BYTES;
+
+    private QuoteCodec() {
+    }
+
+    static byte[] encode(Quote quote) {
+        return encode(quote.getId(), toEpochMillis(quote.getCreatedAt()),
+                quote.isCompleted(), quote.getVersion() == null ? 1 : quote.getVersion(), quote.getQuoteName(),
+                quote.getQuoteContent(), quote.getAuthor(), quote.getSource(), quote.getCategory());
+    }
+
+    /**
+     * Same record as {@link #encode(Quote)}, straight from the store's form.
+     */
+    static byte[] encode(StoredQuote quote) {
+        return encode(quote.id(), quote.createdAtMillis(), quote.completed(), quote.version(), quote.name(),
+                quote.content(), quote.author(), quote.source(), quote.category());
+    }
+
+    private static byte[] encode(long id, long createdAtMillis, boolean completed, long version, String nameText,
+                                 String contentText, String authorText, String sourceText, String categoryText) {
+        byte[] name = utf8(nameText);
+        byte[] content = utf8(contentText);
+        byte[] author = utf8(authorText);
+        byte[] source = utf8(sourceText);
+        byte[] category = utf8(categoryText);
+        int size = FIXED_SIZE + sizeOf(name) + sizeOf(content) + sizeOf(author) + sizeOf(source) + sizeOf(category);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(id);
+        buffer.putLong(createdAtMillis);
+        buffer.put((byte) (FLAG_HAS_VERSION | (completed ? FLAG_COMPLETED : 0)));
+        buffer.putLong(version);
+        putString(buffer, name);
+        putString(buffer, content);
+        putString(buffer, author);
+        putString(buffer, source);
+        putString(buffer, category);
+        return buffer.array();
+    }
+
+    /**
+     * Reads one quote starting at the buffer's position and advances past it.
+     */
+    static Quote decode(ByteBuffer buffer) {
+        Quote quote = new Quote();
+        quote.setId(buffer.getLong());
+        quote.setCreatedAt(fromEpochMillis(buffer.getLong()));
+        int flags = buffer.get();
+        quote.setCompleted((flags & FLAG_COMPLETED) != 0);
+        quote.setVersion((flags & FLAG_HAS_VERSION) != 0 ? buffer.getLong() : 1L);
+        quote.setQuoteName(getString(buffer));
+        quote.setQuoteContent(getString(buffer));
+        quote.setAuthor(getString(buffer));
+        quote.setSource(getString(buffer));
+        quote.setCategory(getString(buffer));
+        return quote;
+    }
+
+    /**
+     * Like {@link #decode}, but into the store's form, without building a {@link Quote} on the way.
+     */
+    static StoredQuote decodeStored(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        long createdAtMillis = buffer.getLong();
+        int flags = buffer.get();
+        long version = (flags & FLAG_HAS_VERSION) != 0 ? buffer.getLong() : 1L;
+        return StoredQuote.decoded(id, version, createdAtMillis, getString(buffer), getString(buffer),
+                getString(buffer), getString(buffer), getString(buffer), (flags & FLAG_COMPLETED) != 0);
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+        return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (!buffer.hasArray()) {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return s;
+    }
+}
@@ -1,13 +1,36 @@
 package edu.trincoll.tracker;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import edu.trincoll.tracker.QuoteMetrics.Endpoint;
+import edu.trincoll.tracker.QuoteMetrics.Phase;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * AI Collaboration Report:
@@ -21,35 +44,158 @@ import java.util.stream.Collectors;
 @RequestMapping(value = "/api/items", produces = MediaType.APPLICATION_JSON_VALUE) // TODO: Rename to match your domain (e.g., /api/bookmarks, /api/recipes)
 public class QuoteController {
 
-    // Simple in-memory store (will be replaced by a database later)
-    private static final Map<Long, Quote> STORE = new ConcurrentHashMap<>();
-    private static final AtomicLong ID_SEQ = new AtomicLong(1);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_OFFSET = 10_000;
+    static final int DEFAULT_MAX_BATCH_SIZE = 10_000;
+
+    // Stores of the controllers Spring has wired, one per application context, so the static test helper
+    // below can reset them; controllers built by hand in unit tests keep theirs to themselves
+    private static final Set<QuoteStore> MANAGED_STORES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    // In-memory store (will be replaced by a database later)
+    private final QuoteStore store;
+    private final QuoteMetrics metrics;
+    // Single quotes and lists go out as cached, pre-encoded JSON
+    private final QuoteJsonCache jsonCache;
+    // Streaming writes one quote at a time, so skip the per-value flush
+    private final ObjectWriter quoteWriter;
+    private final ObjectReader batchReader;
+    // Binary encodings of quote lists, configured like Spring's own CBOR and Smile converters
+    private final ObjectWriter cborWriter;
+    private final ObjectWriter smileWriter;
+    // Operations one batch request may carry; larger ones are refused whole
+    private final int maxBatchSize;
+
+    public QuoteController(QuoteStore store, ObjectMapper objectMapper, QuoteMetrics metrics, QuoteJsonCache jsonCache) {
+        this(store, objectMapper, metrics, jsonCache, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    @Autowired
+    public QuoteController(QuoteStore store, ObjectMapper objectMapper, QuoteMetrics metrics, QuoteJsonCache jsonCache,
+                           @Value("${tracker.batch.max-size:10000}") int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("tracker.batch.max-size must be at least 1, was " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.store = store;
+        this.metrics = metrics;
+        this.jsonCache = jsonCache;
+        this.quoteWriter = objectMapper.writerFor(Quote.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.batchReader = objectMapper.readerFor(QuoteBatch.Operation.class);
+        TypeReference<Collection<Quote>> quotes = new TypeReference<>() {
+        };
+        this.cborWriter = Jackson2ObjectMapperBuilder.cbor().build().writerFor(quotes);
+        this.smileWriter = Jackson2ObjectMapperBuilder.smile().build().writerFor(quotes);
+    }
+
+    @PostConstruct
+    void register() {
+        MANAGED_STORES.add(store);
+    }
+
+    /**
+     * GET /api/items?after=id&limit=n
+     * Returns all items in the system, or one page of them
+     * - Pages are keyed by id: pass the last id seen as {@code after}
+     * - A Link header with rel="next" points at the following page, if any
+     * - The body is assembled from cached JSON, so unchanged quotes aren't re-serialized
+     * - Accept: application/cbor or application/x-jackson-smile gives the same list in that binary encoding
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuoteFormat.SMILE_VALUE})
+    public ResponseEntity<byte[]> getAll(@RequestParam(value = "after", required = false) Long after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        long start = metrics.start();
+        QuoteFormat format = QuoteFormat.negotiate(accept);
+        if (after == null && limit == null) {
+            // JSON is reused as-is until the next write
+            byte[] all = format == QuoteFormat.JSON ? jsonCache.all() : encode(format, store.values());
+            metrics.phase(Endpoint.GET_ALL, Phase.INDEX, start);
+            return encoded(ResponseEntity.ok(), format, all);
+        }
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        if (afterId < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        start = metrics.phase(Endpoint.GET_ALL, Phase.VALIDATION, start);
+
+        QuoteJsonCache.Page page = format == QuoteFormat.JSON ? jsonCache.page(afterId, pageSize)
+                : encodedPage(format, store.page(afterId, pageSize));
+        metrics.phase(Endpoint.GET_ALL, Phase.INDEX, start);
+        if (page.size() == pageSize && store.hasAfter(page.lastId())) {
+            String next = "<" + requestPath("/api/items") + "?after=" + page.lastId() + "&limit=" + pageSize + ">; rel=\"next\"";
+            return encoded(ResponseEntity.ok().header(HttpHeaders.LINK, next), format, page.bytes());
+        }
+        return encoded(ResponseEntity.ok(), format, page.bytes());
+    }
 
     /**
-     * GET /api/items
-     * Returns all items in the system
+     * GET /api/items/stream?after=id
+     * Streams all items (or those after the given id) straight to the response
+     * - Accept: application/x-ndjson gives one JSON object per line
+     * - Otherwise a single JSON array is written
+     * Memory per request stays constant regardless of store size.
      */
-    @GetMapping
-    public ResponseEntity<List<Quote>> getAll() {
-        List<Quote> quotes = STORE.values()
-                .stream()
-                .sorted(Comparator.comparing(Quote::getId))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(quotes);
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(value = "after", required = false) Long after,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Collection<Quote> quotes = store.valuesAfter(after == null ? 0 : after);
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = quoteWriter.createGenerator(out)) {
+                if (!ndjson) {
+                    generator.writeStartArray();
+                }
+                for (Quote quote : quotes) {
+                    quoteWriter.writeValue(generator, quote);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (!ndjson) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /**
      * GET /api/items/{id}
      * Returns a specific item by ID
      * Return 404 if item doesn't exist
+     * - The ETag header carries the item's creation time and version, and the store's epoch once it has moved
+     * - If-None-Match with the current ETag gives 304 without a body
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Quote> getById(@PathVariable Long id) {
-        Quote quote = STORE.get(id);
+    public ResponseEntity<byte[]> getById(@PathVariable Long id,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long start = metrics.start();
+        if (ifNoneMatch != null) {
+            // Answered from the stored record alone: nothing is serialized
+            long epoch = store.epoch();
+            StoredQuote current = store.stored(id);
+            if (current != null && etagMatches(ifNoneMatch, etag(current.createdAtMillis(), current.version(), epoch), true)) {
+                metrics.phase(Endpoint.GET_BY_ID, Phase.INDEX, start);
+                metrics.notModified();
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag(current.createdAtMillis(), current.version(), epoch))
+                        .build();
+            }
+        }
+        QuoteJsonCache.Json quote = jsonCache.quote(id);
+        metrics.phase(Endpoint.GET_BY_ID, Phase.INDEX, start);
         if (quote == null) {
+            metrics.notFound(Endpoint.GET_BY_ID);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
-        return ResponseEntity.ok(quote);
+        return json(ResponseEntity.ok().eTag(etag(quote.createdAtMillis(), quote.version(), quote.epoch())), quote.bytes());
     }
 
     /**
@@ -60,28 +206,20 @@ public class QuoteController {
      */
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<Quote> create(@RequestBody Quote quote) {
+        long start = metrics.start();
         // Validate name
         if (quote.getQuoteName() == null || quote.getQuoteName().isBlank()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        // Enforce uniqueness by name
-        boolean duplicate = STORE.values().stream()
-                .anyMatch(existing -> Objects.equals(existing.getQuoteName(), quote.getQuoteName()));
-        if (duplicate) {
+        start = metrics.phase(Endpoint.CREATE, Phase.VALIDATION, start);
+        // Enforce uniqueness by name and assign new ID (ignore any provided id)
+        QuoteStore.WriteResult result = store.create(quote);
+        metrics.phase(Endpoint.CREATE, Phase.INDEX, start);
+        if (result.status() == QuoteStore.Status.CONFLICT) {
+            metrics.conflict(Endpoint.CREATE);
             return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-
-        // Assign new ID (ignore any provided id)
-        long id = ID_SEQ.getAndIncrement();
-        Quote toSave = new Quote();
-        toSave.setId(id);
-        toSave.setQuoteName(quote.getQuoteName());
-        toSave.setQuoteContent(quote.getQuoteContent());
-        toSave.setCompleted(quote.isCompleted());
-        // Keep server-controlled createdAt from constructor; do not override from client
-
-        STORE.put(id, toSave);
-        return ResponseEntity.status(HttpStatus.CREATED).body(toSave);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(result.quote())).body(result.quote());
     }
 
     /**
@@ -90,30 +228,38 @@ public class QuoteController {
      * - Validate required fields (name)
      * - Return 404 if item doesn't exist
      * - Reject duplicates by name (409 Conflict) if changing to an existing name
+     * - With If-Match, only update if the ETag is still current (412 otherwise)
      */
     @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Quote> update(@PathVariable Long id, @RequestBody Quote update) {
-        Quote existing = STORE.get(id);
-        if (existing == null) {
+    public ResponseEntity<Quote> update(@PathVariable Long id, @RequestBody Quote update,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long start = metrics.start();
+        if (!store.contains(id)) {
+            metrics.notFound(Endpoint.UPDATE);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
         if (update.getQuoteName() == null || update.getQuoteName().isBlank()) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
+        start = metrics.phase(Endpoint.UPDATE, Phase.VALIDATION, start);
         // Prevent changing to a name that duplicates another item's name
-        boolean duplicateName = STORE.values().stream()
-                .anyMatch(other -> !Objects.equals(other.getId(), id)
-                        && Objects.equals(other.getQuoteName(), update.getQuoteName()));
-        if (duplicateName) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).build();
-        }
-
-        existing.setQuoteName(update.getQuoteName());
-        existing.setQuoteContent(update.getQuoteContent());
-        existing.setCompleted(update.isCompleted());
-        // Keep original createdAt (ignore client-sent value)
-
-        return ResponseEntity.ok(existing);
+        QuoteStore.WriteResult result = store.update(id, update, versionCheck(ifMatch));
+        metrics.phase(Endpoint.UPDATE, Phase.INDEX, start);
+        return switch (result.status()) {
+            case NOT_FOUND -> {
+                metrics.notFound(Endpoint.UPDATE);
+                yield ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            case CONFLICT -> {
+                metrics.conflict(Endpoint.UPDATE);
+                yield ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            case PRECONDITION_FAILED -> {
+                metrics.preconditionFailed(Endpoint.UPDATE);
+                yield ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            case OK -> ResponseEntity.ok().eTag(etag(result.quote())).body(result.quote());
+        };
     }
 
     /**
@@ -121,37 +267,359 @@ public class QuoteController {
      * Deletes an item
      * - Return 204 No Content on successful delete
      * - Return 404 if not found
+     * - With If-Match, only delete if the ETag is still current (412 otherwise)
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
-        Quote removed = STORE.remove(id);
-        if (removed == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        long start = metrics.start();
+        QuoteStore.Status status = store.delete(id, versionCheck(ifMatch));
+        metrics.phase(Endpoint.DELETE, Phase.INDEX, start);
+        return switch (status) {
+            case NOT_FOUND -> {
+                metrics.notFound(Endpoint.DELETE);
+                yield ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            }
+            case PRECONDITION_FAILED -> {
+                metrics.preconditionFailed(Endpoint.DELETE);
+                yield ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            case OK -> ResponseEntity.noContent().build();
+            case CONFLICT -> throw new IllegalStateException("Deletes never conflict");
+        };
+    }
+
+    /**
+     * POST /api/items/batch
+     * Applies a JSON array of operations in order, e.g.
+     * [{"op":"create","item":{...}}, {"op":"update","id":1,"item":{...}}, {"op":"delete","id":2}]
+     * - Returns one result per operation with the status its single-item call would give
+     * - The batch is committed together, so it costs one durable write instead of one per item
+     * - Return 413 if it holds more than tracker.batch.max-size operations; none are applied
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<QuoteBatch.Result>> batch(@RequestBody List<QuoteBatch.Operation> operations) {
+        long start = metrics.start();
+        if (operations.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+        }
+        start = metrics.phase(Endpoint.BATCH, Phase.VALIDATION, start);
+        List<QuoteBatch.Result> results = QuoteBatch.apply(store, operations.iterator());
+        metrics.phase(Endpoint.BATCH, Phase.INDEX, start);
+        return ResponseEntity.ok(countFailures(results));
+    }
+
+    /**
+     * POST /api/items/batch (Content-Type: application/x-ndjson)
+     * Same as above with one operation per line, read as a stream
+     * - Return 400 if any line is malformed; none are applied
+     * - Return 413 if it holds more than tracker.batch.max-size lines; none are applied
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<List<QuoteBatch.Result>> batchNdjson(InputStream body) throws IOException {
+        long start = metrics.start();
+        try (MappingIterator<QuoteBatch.Operation> lines = batchReader.readValues(body)) {
+            // Read no further than one line past the limit, so an oversized body is neither buffered nor half applied
+            List<QuoteBatch.Operation> operations;
+            try {
+                operations = QuoteBatch.take(lines, maxBatchSize + 1);
+            } catch (JsonProcessingException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            if (operations.size() > maxBatchSize) {
+                return ResponseEntity.status(HttpStatus.CONTENT_TOO_LARGE).build();
+            }
+            start = metrics.phase(Endpoint.BATCH, Phase.VALIDATION, start);
+            List<QuoteBatch.Result> results = QuoteBatch.apply(store, operations.iterator());
+            metrics.phase(Endpoint.BATCH, Phase.INDEX, start);
+            return ResponseEntity.ok(countFailures(results));
         }
-        return ResponseEntity.noContent().build();
     }
 
     /**
      * GET /api/items/search?name=value
      * Searches items by name (case-insensitive contains)
      * BONUS endpoint
+     * - Accept: application/cbor or application/x-jackson-smile gives a binary encoding
      */
-    @GetMapping("/search")
+    @GetMapping(value = "/search",
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuoteFormat.SMILE_VALUE})
     public ResponseEntity<List<Quote>> searchByName(@RequestParam("name") String name) {
+        long start = metrics.start();
         if (name == null) {
             return ResponseEntity.badRequest().build();
         }
-        String query = name.toLowerCase(Locale.ROOT);
-        List<Quote> results = STORE.values().stream()
-                .filter(it -> it.getQuoteName() != null && it.getQuoteName().toLowerCase(Locale.ROOT).contains(query))
-                .sorted(Comparator.comparing(Quote::getId))
-                .collect(Collectors.toList());
+        start = metrics.phase(Endpoint.SEARCH_NAME, Phase.VALIDATION, start);
+        List<Quote> results = store.searchByName(name);
+        metrics.phase(Endpoint.SEARCH_NAME, Phase.INDEX, start);
+        metrics.nameSearchResults(results.size());
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(results);
+    }
+
+    /**
+     * GET /api/items/search/text?q=words&limit=20&offset=0
+     * Keyword search over description, author, source and category
+     * - Results ranked by relevance (BM25), best first
+     * - Return 400 if the query is blank or paging is out of range
+     */
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Quote>> searchFullText(@RequestParam("q") String q,
+                                                      @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                      @RequestParam(value = "offset", defaultValue = "0") int offset) {
+        long start = metrics.start();
+        if (q.isBlank() || limit < 1 || limit > MAX_PAGE_SIZE || offset < 0 || offset > MAX_SEARCH_OFFSET) {
+            return ResponseEntity.badRequest().build();
+        }
+        start = metrics.phase(Endpoint.SEARCH_TEXT, Phase.VALIDATION, start);
+        List<Quote> results = store.searchFullText(q, limit, offset);
+        metrics.phase(Endpoint.SEARCH_TEXT, Phase.INDEX, start);
+        metrics.textSearchResults(results.size());
         return ResponseEntity.ok(results);
     }
 
+    /**
+     * Pre-encoded JSON body; written by the byte array converter without touching Jackson.
+     */
+    private static ResponseEntity<byte[]> json(ResponseEntity.BodyBuilder response, byte[] body) {
+        return response.contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Body already encoded in {@code format}; the encoding depends on Accept, so caches must key on it.
+     */
+    private static ResponseEntity<byte[]> encoded(ResponseEntity.BodyBuilder response, QuoteFormat format, byte[] body) {
+        return response.varyBy(HttpHeaders.ACCEPT).contentType(format.mediaType()).body(body);
+    }
+
+    private byte[] encode(QuoteFormat format, Collection<Quote> quotes) {
+        try {
+            return (format == QuoteFormat.CBOR ? cborWriter : smileWriter).writeValueAsBytes(quotes);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private QuoteJsonCache.Page encodedPage(QuoteFormat format, List<Quote> quotes) {
+        long lastId = quotes.isEmpty() ? 0 : quotes.get(quotes.size() - 1).getId();
+        return new QuoteJsonCache.Page(encode(format, quotes), quotes.size(), lastId);
+    }
+
+    /**
+     * Matching items plus how many match in total, independent of paging.
+     */
+    public record QueryResult(long total, List<Quote> items) {
+    }
+
+    /**
+     * GET /api/items/query?category=X&author=Y&completed=false&after=id&limit=n
+     * Filters items by exact author, source, category and/or completed
+     * - At least one filter is required (400 otherwise); filters combine with AND
+     * - Returns the total match count plus one page of matches in id order
+     * - limit=0 returns just the total, which is counted without loading any item
+     * - A Link header with rel="next" points at the following page, if any
+     */
+    @GetMapping("/query")
+    public ResponseEntity<QueryResult> query(@RequestParam(value = "author", required = false) String author,
+                                             @RequestParam(value = "source", required = false) String source,
+                                             @RequestParam(value = "category", required = false) String category,
+                                             @RequestParam(value = "completed", required = false) Boolean completed,
+                                             @RequestParam(value = "after", required = false) Long after,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        long start = metrics.start();
+        QuoteStore.Filter filter = new QuoteStore.Filter(author, source, category, completed);
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? MAX_PAGE_SIZE : limit;
+        if (filter.isEmpty() || afterId < 0 || pageSize < 0 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        start = metrics.phase(Endpoint.QUERY, Phase.VALIDATION, start);
+
+        long total = store.count(filter);
+        List<Quote> items = pageSize == 0 ? List.of() : store.query(filter, afterId, pageSize);
+        metrics.phase(Endpoint.QUERY, Phase.INDEX, start);
+        QueryResult result = new QueryResult(total, items);
+        if (pageSize > 0 && items.size() == pageSize) {
+            long lastId = items.get(items.size() - 1).getId();
+            if (!store.query(filter, lastId, 1).isEmpty()) {
+                String next = "<" + requestPath("/api/items/query") + "?" + filterQuery(filter)
+                        + "after=" + lastId + "&limit=" + pageSize + ">; rel=\"next\"";
+                return ResponseEntity.ok().header(HttpHeaders.LINK, next).body(result);
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /api/items/created?from=2025-01-01T00:00:00&to=2025-02-01T00:00:00&limit=n
+     * Returns items created at or after {@code from} and before {@code to}, oldest first
+     * - Either bound may be left out to leave that end open
+     * - A Link header with rel="next" carries a cursor for the following page, if any
+     * - Return 400 if from is after to, or the cursor or limit is invalid
+     */
+    @GetMapping("/created")
+    public ResponseEntity<List<Quote>> createdBetween(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        long start = metrics.start();
+        QuoteStore.TimeCursor after = cursor == null ? null : QuoteStore.TimeCursor.parse(cursor);
+        if ((from != null && to != null && from.isAfter(to)) || (cursor != null && after == null) || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        start = metrics.phase(Endpoint.CREATED_BETWEEN, Phase.VALIDATION, start);
+        QuoteStore.TimePage page = store.createdBetween(from, to, after, limit);
+        metrics.phase(Endpoint.CREATED_BETWEEN, Phase.INDEX, start);
+
+        StringBuilder next = new StringBuilder(requestPath("/api/items/created")).append('?');
+        if (from != null) {
+            next.append("from=").append(from).append('&');
+        }
+        if (to != null) {
+            next.append("to=").append(to).append('&');
+        }
+        return timePage(page, next, limit);
+    }
+
+    /**
+     * GET /api/items/recent?limit=100
+     * Returns the most recently created items, newest first
+     * - A Link header with rel="next" carries a cursor for the following (older) page, if any
+     * - Return 400 if the cursor or limit is invalid
+     */
+    @GetMapping("/recent")
+    public ResponseEntity<List<Quote>> recent(@RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        long start = metrics.start();
+        QuoteStore.TimeCursor before = cursor == null ? null : QuoteStore.TimeCursor.parse(cursor);
+        if ((cursor != null && before == null) || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        start = metrics.phase(Endpoint.RECENT, Phase.VALIDATION, start);
+        QuoteStore.TimePage page = store.newest(before, limit);
+        metrics.phase(Endpoint.RECENT, Phase.INDEX, start);
+        return timePage(page, new StringBuilder(requestPath("/api/items/recent")).append('?'), limit);
+    }
+
+    /**
+     * GET /api/items/stats
+     * Returns item counts: total, completed vs not, and per category, author, source and creation day
+     * - Counts are maintained on every write, so this costs the same at any store size
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<QuoteStore.Stats> stats() {
+        long start = metrics.start();
+        QuoteStore.Stats stats = store.stats();
+        metrics.phase(Endpoint.STATS, Phase.INDEX, start);
+        return ResponseEntity.ok(stats);
+    }
+
+    private static ResponseEntity<List<Quote>> timePage(QuoteStore.TimePage page, StringBuilder nextUrl, int limit) {
+        if (page.next() == null) {
+            return ResponseEntity.ok(page.quotes());
+        }
+        nextUrl.append("cursor=").append(page.next()).append("&limit=").append(limit);
+        return ResponseEntity.ok().header(HttpHeaders.LINK, "<" + nextUrl + ">; rel=\"next\"").body(page.quotes());
+    }
+
+    /**
+     * The path the current request came in on, so a Link points back at the
+     * route that was called, such as {@link ReactiveQuoteController}'s;
+     * {@code fallback} when called outside a request.
+     */
+    private static String requestPath(String fallback) {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest().getRequestURI()
+                : fallback;
+    }
+
+    /**
+     * Strong entity tag for one state of a quote.
+     * <p>
+     * Versions restart at 1 for every quote, and ids restart at 1 after a
+     * clear or a restart without persistence, so the version alone would let a
+     * tag taken before match a different quote now under the same id. The
+     * creation time (in base 36 milliseconds, kept by persistence and
+     * replication) tells those apart, short of a quote recreated under the
+     * same id within the same millisecond.
+     * <p>
+     * Where the two may stand for other content than before, the store's
+     * {@link QuoteStore#epoch() epoch} has moved, and it is appended once it
+     * is no longer 0. Until then tags are the same on every node.
+     */
+    static String etag(long createdAtMillis, long version, long epoch) {
+        String tag = Long.toString(createdAtMillis, 36) + "-" + version;
+        return "\"" + (epoch == 0 ? tag : tag + "-" + epoch) + "\"";
+    }
+
+    // Read after the write, so the tag can't carry an epoch from before it
+    private String etag(Quote quote) {
+        return etag(QuoteCodec.toEpochMillis(quote.getCreatedAt()), quote.getVersion(), store.epoch());
+    }
+
+    /**
+     * Precondition for an If-Match header; no header or {@code *} accepts any state.
+     * If-Match uses strong comparison, so weak tags never match.
+     */
+    private Predicate<StoredQuote> versionCheck(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return QuoteStore.ANY_STATE;
+        }
+        // Checked with the quote's lock held, so only a write to another quote can move the epoch meanwhile
+        return current -> etagMatches(ifMatch, etag(current.createdAtMillis(), current.version(), store.epoch()), false);
+    }
+
+    /**
+     * True if the comma-separated entity tags in {@code header} include
+     * {@code expected}, or the header is {@code *}. Weak tags ({@code W/"..."})
+     * only count when {@code weak} comparison is allowed.
+     */
+    static boolean etagMatches(String header, String expected, boolean weak) {
+        for (String tag : header.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(expected)) {
+                return true;
+            }
+            if (weak && trimmed.startsWith("W/") && trimmed.substring(2).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The filter's parameters for a Link URL, each followed by '&'.
+     */
+    private static String filterQuery(QuoteStore.Filter filter) {
+        StringBuilder query = new StringBuilder();
+        appendParam(query, "author", filter.author());
+        appendParam(query, "source", filter.source());
+        appendParam(query, "category", filter.category());
+        appendParam(query, "completed", filter.completed() == null ? null : filter.completed().toString());
+        return query.toString();
+    }
+
+    private static void appendParam(StringBuilder query, String name, String value) {
+        if (value != null) {
+            query.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8)).append('&');
+        }
+    }
+
+    private List<QuoteBatch.Result> countFailures(List<QuoteBatch.Result> results) {
+        for (QuoteBatch.Result result : results) {
+            if (result.status() == HttpStatus.NOT_FOUND.value()) {
+                metrics.notFound(Endpoint.BATCH);
+            } else if (result.status() == HttpStatus.CONFLICT.value()) {
+                metrics.conflict(Endpoint.BATCH);
+            }
+        }
+        return results;
+    }
+
     // Test helper method - only for testing purposes
     static void clearStore() {
-        STORE.clear();
-        ID_SEQ.set(1);
+        synchronized (MANAGED_STORES) {
+            MANAGED_STORES.forEach(QuoteStore::clear);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package edu.trincoll.tracker;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Set;
+
+/**
+ * On a follower, sends quote writes to the leader, the only node that accepts them.
+ * <p>
+ * POST, PUT, PATCH and DELETE under {@code /api/items} and
+ * {@code /api/reactive/items} get a 307 Temporary Redirect to the same path on
+ * the leader. Unlike 302, a 307 tells the
+ * client to repeat the same method and body there. Reads are served locally.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracker.replication", name = "role", havingValue = "follower")
+public class QuoteFollowerWriteFilter extends OncePerRequestFilter {
+
+    private static final Set<String> WRITES = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final URI leader;
+
+    public QuoteFollowerWriteFilter(@Value("${tracker.replication.leader-url}") URI leader) {
+        this.leader = leader;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !WRITES.contains(request.getMethod()) || !(under(path, "/api/items") || under(path, "/api/reactive/items"));
+    }
+
+    private static boolean under(String path, String base) {
+        return path.equals(base) || path.startsWith(base + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String target = request.getRequestURI().substring(request.getContextPath().length());
+        if (request.getQueryString() != null) {
+            target += "?" + request.getQueryString();
+        }
+        response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+        response.setHeader(HttpHeaders.LOCATION, leader.resolve(target).toString());
+    }
+}
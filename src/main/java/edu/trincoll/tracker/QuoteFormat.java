@@ -0,0 +1,55 @@
+package edu.trincoll.tracker;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Encodings the bulk quote reads can answer in, picked from the Accept header.
+ * <p>
+ * JSON is the default. CBOR and Smile are binary encodings of the same
+ * Jackson data model, smaller on the wire and cheaper to parse, written by
+ * Jackson's CBOR and Smile data formats.
+ */
+enum QuoteFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(MediaType.valueOf(QuoteFormat.SMILE_VALUE));
+
+    /**
+     * Smile's media type, as Spring's Smile message converter registers it.
+     */
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    private final MediaType mediaType;
+
+    QuoteFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The format a client asked for: the highest-quality one the Accept header
+     * names, with wildcards standing for JSON. Ties go to the one listed first.
+     */
+    static QuoteFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        QuoteFormat best = JSON;
+        double bestQuality = 0;
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            for (QuoteFormat format : values()) {
+                boolean named = type.equalsTypeAndSubtype(format.mediaType);
+                boolean wildcard = format == JSON && type.includes(JSON.mediaType);
+                if ((named || wildcard) && type.getQualityValue() > bestQuality) {
+                    best = format;
+                    bestQuality = type.getQualityValue();
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,269 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Quotes encoded as JSON once and served as bytes, so reads mostly copy
+ * instead of running Jackson.
+ * <p>
+ * Each entry remembers the creation time and version of the quote it was
+ * encoded from, and the store's {@link QuoteStore#epoch() epoch} read before
+ * the quote. Every write bumps the version, and the epoch moves whenever a
+ * creation time and version come to stand for other content, as when a
+ * leader's snapshot overwrites a quote. So an entry is only served for the
+ * state it encodes; a stale entry can't be returned even if a read races the
+ * write that replaced it. These rather than the stored objects themselves are
+ * compared because the off-heap backend decodes a fresh object on every read. Writes
+ * also drop their quote's entry right away, so the budget isn't spent on dead
+ * versions, and clearing the store drops them all, since ids and versions
+ * start over.
+ * <p>
+ * Entries share a budget of {@code tracker.cache.max-bytes}. Once it is
+ * exceeded, a CLOCK sweep evicts entries that haven't been read since the hand
+ * last passed them, which approximates LRU without reordering anything on reads.
+ * <p>
+ * The full list behind {@code GET /api/items} is cached too, tagged with the
+ * store's {@link QuoteStore#generation() generation}. It is rebuilt from the
+ * per-quote entries, so after a single write only that quote is re-encoded.
+ * The list has its own slot of up to the same budget, and is not cached if larger.
+ */
+@Component
+public final class QuoteJsonCache implements QuoteMutationListener {
+
+    // Rough per-entry cost of the map node, entry and array headers
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * A quote's JSON plus the creation time, version and store epoch it encodes.
+     */
+    record Json(long createdAtMillis, long version, long epoch, byte[] bytes) {
+    }
+
+    /**
+     * Up to {@code size} quotes as a JSON array; {@code lastId} is the last one's id.
+     */
+    record Page(byte[] bytes, int size, long lastId) {
+    }
+
+    private static final class Entry {
+        final long id;
+        final long version;
+        final long createdAtMillis;
+        final long epoch;
+        final byte[] json;
+        // Set on every hit, cleared by the sweep; a lost update only costs an early eviction
+        boolean referenced;
+
+        Entry(StoredQuote quote, long epoch, byte[] json) {
+            this.id = quote.id();
+            this.version = quote.version();
+            this.createdAtMillis = quote.createdAtMillis();
+            this.epoch = epoch;
+            this.json = json;
+        }
+
+        boolean encodes(StoredQuote quote, long epoch) {
+            return version == quote.version() && createdAtMillis == quote.createdAtMillis() && this.epoch == epoch;
+        }
+
+        long cost() {
+            return json.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private record Encoded(long generation, byte[] json) {
+    }
+
+    private final QuoteStore store;
+    private final ObjectWriter writer;
+    private final long maxBytes;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final ReentrantLock sweeping = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile Encoded all;
+    // Only moved by the thread holding the sweeping lock
+    private Iterator<Entry> hand;
+
+    public QuoteJsonCache(QuoteStore store, ObjectMapper objectMapper,
+                          @Value("${tracker.cache.max-bytes:64MB}") DataSize maxBytes) {
+        this.store = store;
+        this.writer = objectMapper.writerFor(Quote.class);
+        this.maxBytes = maxBytes.toBytes();
+        store.addListener(this);
+    }
+
+    /**
+     * The quote with the given id as JSON, or null if there is none.
+     */
+    Json quote(long id) {
+        long epoch = store.epoch();
+        StoredQuote stored = store.stored(id);
+        return stored == null ? null : new Json(stored.createdAtMillis(), stored.version(), epoch, encode(stored, epoch));
+    }
+
+    /**
+     * All quotes as one JSON array, in id order.
+     */
+    byte[] all() {
+        long generation = store.generation();
+        Encoded cached = all;
+        if (cached != null && cached.generation() == generation) {
+            return cached.json();
+        }
+        // Tagged with the generation read before the walk: any write the walk missed moves it on
+        byte[] json = array(store.storedAfter(0), Integer.MAX_VALUE, cached == null ? 1024 : cached.json().length).bytes();
+        if (json.length <= maxBytes) {
+            all = new Encoded(generation, json);
+        }
+        return json;
+    }
+
+    /**
+     * Up to {@code limit} quotes with ids greater than {@code afterId}, as a JSON array.
+     */
+    Page page(long afterId, int limit) {
+        return array(store.storedAfter(afterId), limit, 1024);
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Bytes currently held by per-quote entries (approximate, includes overhead).
+     */
+    long size() {
+        return bytes.get();
+    }
+
+    @Override
+    public void onMutation(QuoteMutation mutation) {
+        Entry removed = entries.remove(mutation.id());
+        if (removed != null) {
+            bytes.addAndGet(-removed.cost());
+        }
+    }
+
+    @Override
+    public void onClear() {
+        for (Entry entry : entries.values()) {
+            remove(entry);
+        }
+        all = null;
+    }
+
+    private Page array(Iterable<StoredQuote> quotes, int limit, int expectedSize) {
+        // Read before the walk reaches any quote, like quote(id) does
+        long epoch = store.epoch();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(expectedSize);
+        out.write('[');
+        int size = 0;
+        long lastId = 0;
+        for (StoredQuote quote : quotes) {
+            if (size == limit) {
+                break;
+            }
+            if (size > 0) {
+                out.write(',');
+            }
+            out.writeBytes(encode(quote, epoch));
+            lastId = quote.id();
+            size++;
+        }
+        out.write(']');
+        return new Page(out.toByteArray(), size, lastId);
+    }
+
+    private byte[] encode(StoredQuote stored, long epoch) {
+        Entry entry = entries.get(stored.id());
+        if (entry != null && entry.encodes(stored, epoch)) {
+            entry.referenced = true;
+            hits.increment();
+            return entry.json;
+        }
+        misses.increment();
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(stored.toQuote());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        Entry fresh = new Entry(stored, epoch, json);
+        if (fresh.cost() > maxBytes) {
+            return json;
+        }
+        Entry replaced = entries.put(stored.id(), fresh);
+        bytes.addAndGet(fresh.cost() - (replaced == null ? 0 : replaced.cost()));
+        // A write may have replaced the quote (and dropped its entry) while this one was encoded
+        StoredQuote current = store.stored(stored.id());
+        if (current == null || !fresh.encodes(current, store.epoch())) {
+            remove(fresh);
+        }
+        if (bytes.get() > maxBytes) {
+            sweep();
+        }
+        return json;
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.id, entry)) {
+            bytes.addAndGet(-entry.cost());
+        }
+    }
+
+    /**
+     * Evicts entries until the budget is met again. Only one thread sweeps at
+     * a time; the others carry on, briefly leaving the cache over budget.
+     */
+    private void sweep() {
+        if (!sweeping.tryLock()) {
+            return;
+        }
+        try {
+            // Two full turns of the hand clear every reference bit, so this always terminates
+            long steps = 2L * entries.size() + 1;
+            while (bytes.get() > maxBytes && steps-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = entries.values().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                Entry entry = hand.next();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (entries.remove(entry.id, entry)) {
+                    bytes.addAndGet(-entry.cost());
+                    evictions.increment();
+                }
+            }
+        } finally {
+            sweeping.unlock();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package edu.trincoll.tracker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quote-specific meters, published through the actuator's Prometheus endpoint.
+ * <p>
+ * Per-endpoint latency histograms come from Spring's own
+ * {@code http.server.requests} timer (see {@code application.yml}); this class
+ * adds what Spring can't see: the store size, conflict and not-found counts,
+ * search result sizes, how many index entries searches walk and how well the
+ * JSON cache is doing.
+ * <p>
+ * With {@code tracker.metrics.detailed-timing} on, endpoints also record how
+ * long each phase of a request took (validation, index work, serialization)
+ * as {@code quotes.request.phase}. Every meter is created up front, so
+ * recording never allocates, and with detailed timing off the phase calls
+ * return before even reading the clock.
+ */
+@Component
+public class QuoteMetrics {
+
+    /**
+     * Instrumented endpoints, named after their handler methods.
+     */
+    enum Endpoint {
+        GET_ALL("getAll"),
+        GET_BY_ID("getById"),
+        CREATE("create"),
+        UPDATE("update"),
+        DELETE("delete"),
+        BATCH("batch"),
+        SEARCH_NAME("searchByName"),
+        SEARCH_TEXT("searchFullText"),
+        QUERY("query"),
+        CREATED_BETWEEN("createdBetween"),
+        RECENT("recent"),
+        STATS("stats");
+
+        private static final Map<String, Endpoint> BY_HANDLER = new HashMap<>();
+
+        static {
+            for (Endpoint endpoint : values()) {
+                BY_HANDLER.put(endpoint.handler, endpoint);
+            }
+            BY_HANDLER.put("batchNdjson", BATCH);
+        }
+
+        final String handler;
+
+        Endpoint(String handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * The endpoint served by the named controller method, or null if it isn't instrumented.
+         */
+        static Endpoint forHandler(String method) {
+            return BY_HANDLER.get(method);
+        }
+    }
+
+    enum Phase { VALIDATION, INDEX, SERIALIZATION }
+
+    private final boolean detailedTiming;
+    private final Counter[] conflicts = new Counter[Endpoint.values().length];
+    private final Counter[] notFound = new Counter[Endpoint.values().length];
+    private final Counter[] preconditionFailed = new Counter[Endpoint.values().length];
+    private final Counter notModified;
+    private final DistributionSummary nameResults;
+    private final DistributionSummary textResults;
+    // [endpoint][phase], only filled when detailed timing is on
+    private final Timer[][] phaseTimers;
+
+    public QuoteMetrics(MeterRegistry registry, QuoteStore store, QuoteJsonCache jsonCache,
+                        @Value("${tracker.metrics.detailed-timing:false}") boolean detailedTiming) {
+        this.detailedTiming = detailedTiming;
+
+        Gauge.builder("quotes.store.size", store, QuoteStore::size)
+                .description("Quotes currently stored")
+                .register(registry);
+        Gauge.builder("quotes.store.offheap", store, QuoteStore::offHeapBytes)
+                .description("Bytes of quote records held outside the Java heap")
+                .baseUnit("bytes")
+                .register(registry);
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.CREATE, Endpoint.UPDATE, Endpoint.BATCH}) {
+            conflicts[endpoint.ordinal()] = Counter.builder("quotes.conflicts")
+                    .description("Writes rejected because the name was taken")
+                    .tag("endpoint", endpoint.handler)
+                    .register(registry);
+        }
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.GET_BY_ID, Endpoint.UPDATE, Endpoint.DELETE, Endpoint.BATCH}) {
+            notFound[endpoint.ordinal()] = Counter.builder("quotes.not.found")
+                    .description("Requests for an id that doesn't exist")
+                    .tag("endpoint", endpoint.handler)
+                    .register(registry);
+        }
+
+        for (Endpoint endpoint : new Endpoint[]{Endpoint.UPDATE, Endpoint.DELETE}) {
+            preconditionFailed[endpoint.ordinal()] = Counter.builder("quotes.precondition.failed")
+                    .description("Conditional writes rejected because the ETag was stale")
+                    .tag("endpoint", endpoint.handler)
+                    .register(registry);
+        }
+        notModified = Counter.builder("quotes.not.modified")
+                .description("Conditional reads answered with 304")
+                .tag("endpoint", Endpoint.GET_BY_ID.handler)
+                .register(registry);
+
+        nameResults = searchResults(registry, "name");
+        textResults = searchResults(registry, "text");
+        FunctionCounter.builder("quotes.search.scanned", store, QuoteStore::nameSearchScanned)
+                .description("Index entries walked by searches")
+                .tag("type", "name")
+                .register(registry);
+        FunctionCounter.builder("quotes.search.scanned", store, QuoteStore::fullTextScanned)
+                .description("Index entries walked by searches")
+                .tag("type", "text")
+                .register(registry);
+
+        FunctionCounter.builder("quotes.json.cache.requests", jsonCache, QuoteJsonCache::hits)
+                .description("Quote encodings looked up in the JSON cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("quotes.json.cache.requests", jsonCache, QuoteJsonCache::misses)
+                .description("Quote encodings looked up in the JSON cache")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("quotes.json.cache.evictions", jsonCache, QuoteJsonCache::evictions)
+                .description("JSON cache entries evicted to stay within the byte budget")
+                .register(registry);
+        Gauge.builder("quotes.json.cache.size", jsonCache, QuoteJsonCache::size)
+                .description("Bytes held by cached quote encodings")
+                .baseUnit("bytes")
+                .register(registry);
+
+        phaseTimers = detailedTiming ? phaseTimers(registry) : null;
+    }
+
+    void conflict(Endpoint endpoint) {
+        conflicts[endpoint.ordinal()].increment();
+    }
+
+    void notFound(Endpoint endpoint) {
+        notFound[endpoint.ordinal()].increment();
+    }
+
+    void preconditionFailed(Endpoint endpoint) {
+        preconditionFailed[endpoint.ordinal()].increment();
+    }
+
+    void notModified() {
+        notModified.increment();
+    }
+
+    void nameSearchResults(int count) {
+        nameResults.record(count);
+    }
+
+    void textSearchResults(int count) {
+        textResults.record(count);
+    }
+
+    boolean detailedTiming() {
+        return detailedTiming;
+    }
+
+    /**
+     * Start of a timed request: the current time when detailed timing is on, 0 otherwise.
+     */
+    long start() {
+        return detailedTiming ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the phase that began at {@code start} and returns its end, which
+     * is where the next phase begins. A no-op returning 0 when detailed timing is off.
+     */
+    long phase(Endpoint endpoint, Phase phase, long start) {
+        if (!detailedTiming) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        phaseTimers[endpoint.ordinal()][phase.ordinal()].record(now - start, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    private static DistributionSummary searchResults(MeterRegistry registry, String type) {
+        return DistributionSummary.builder("quotes.search.results")
+                .description("Quotes returned per search")
+                .tag("type", type)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer[][] phaseTimers(MeterRegistry registry) {
+        Timer[][] timers = new Timer[Endpoint.values().length][Phase.values().length];
+        for (Endpoint endpoint : Endpoint.values()) {
+            for (Phase phase : Phase.values()) {
+                timers[endpoint.ordinal()][phase.ordinal()] = Timer.builder("quotes.request.phase")
+                        .description("Time spent in one phase of a request")
+                        .tag("endpoint", endpoint.handler)
+                        .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                        .publishPercentileHistogram()
+                        .register(registry);
+            }
+        }
+        return timers;
+    }
+}
@@ -0,0 +1,25 @@
+package edu.trincoll.tracker;
+
+/**
+ * One committed change to the quote store.
+ * <p>
+ * {@code quote} is a private object holding the quote's full state after the change
+ * (null for deletes), so applying the same mutations again in order always
+ * yields the same store.
+ */
+public record QuoteMutation(Type type, long id, Quote quote) {
+
+    public enum Type { CREATE, UPDATE, DELETE }
+
+    static QuoteMutation created(StoredQuote quote) {
+        return new QuoteMutation(Type.CREATE, quote.id(), quote.toQuote());
+    }
+
+    static QuoteMutation updated(StoredQuote quote) {
+        return new QuoteMutation(Type.UPDATE, quote.id(), quote.toQuote());
+    }
+
+    static QuoteMutation deleted(long id) {
+        return new QuoteMutation(Type.DELETE, id, null);
+    }
+}
@@ -0,0 +1,65 @@
+package edu.trincoll.tracker;
+
+/**
+ * Receives every mutation applied to a {@link QuoteStore}.
+ * <p>
+ * Called synchronously on the writing thread, after the change is visible
+ * in the store and before the write returns. The quote's lock is still held,
+ * so mutations of the same quote are delivered in the order they were applied.
+ * A listener that throws from {@link #onMutation} is logged and skipped: the
+ * change is already made, and the other listeners still hear of it.
+ */
+@FunctionalInterface
+public interface QuoteMutationListener {
+
+    void onMutation(QuoteMutation mutation);
+
+    /**
+     * Called on the writing thread with the quote's lock held, before the
+     * change becomes visible. Throwing aborts the write and leaves the store
+     * as it was, so this is where a change is made durable.
+     */
+    default void beforeMutation(QuoteMutation mutation) {
+    }
+
+    /**
+     * Called on the writing thread before a batch of writes. Until the matching
+     * {@link #afterBatch()}, mutations on this thread may be acknowledged lazily,
+     * {@link #beforeMutation} included.
+     */
+    default void beforeBatch() {
+    }
+
+    /**
+     * Called on the writing thread once a batch is done; must not return until
+     * every mutation of the batch has been fully handled. Throwing rolls back
+     * the batch's writes.
+     */
+    default void afterBatch() {
+    }
+
+    /**
+     * Called with the quote's lock held before the store takes back
+     * {@code undone}, a write of a batch whose {@link #afterBatch()} failed,
+     * by applying {@code undo}. Throwing leaves the write in place. By default
+     * the undo is offered like any other write.
+     */
+    default void beforeUndo(QuoteMutation undone, QuoteMutation undo) {
+        beforeMutation(undo);
+    }
+
+    /**
+     * Called on the writing thread once every write of a failed batch has
+     * been taken back or left in place.
+     */
+    default void afterRollback() {
+    }
+
+    /**
+     * Called after {@link QuoteStore#clear()} has removed every quote, or
+     * {@link QuoteStore#load} has bulk-loaded recovered ones; neither is
+     * reported as individual mutations.
+     */
+    default void onClear() {
+    }
+}
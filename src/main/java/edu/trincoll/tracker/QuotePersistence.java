@@ -0,0 +1,310 @@
+package edu.trincoll.tracker;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Makes the quote store durable with a write-ahead log plus periodic snapshots.
+ * <p>
+ * On startup the newest snapshot is loaded and every later WAL segment is replayed
+ * on top of it. After that, each mutation is appended to the WAL and fsynced
+ * before the store applies it, so a single write is never visible without being
+ * durable: a failed append fails the write instead. Batches wait for their
+ * fsyncs at the end and are rolled back by the store if one fails. A batch
+ * can span several group commits, so the undo of each write is logged too, and
+ * recovery takes back whatever part of the batch did reach the disk. A snapshot
+ * rotates the WAL first, waits for writes already logged to be applied, and then
+ * dumps the live store. The dump may already include some changes from the new
+ * segment; replaying them again is harmless because records carry the full quote state.
+ * <p>
+ * Enabled with {@code tracker.persistence.enabled=true}. The WAL writer and the
+ * snapshotter run on virtual threads when {@code spring.threads.virtual.enabled}
+ * is set, like request handling.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracker.persistence", name = "enabled", havingValue = "true")
+public class QuotePersistence implements QuoteMutationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QuotePersistence.class);
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final QuoteStore store;
+    private final Path directory;
+    private final Duration snapshotInterval;
+    private final int groupCommitMaxBatch;
+    private final boolean virtualThreads;
+    private final AtomicLong changesSinceSnapshot = new AtomicLong();
+    // Appends of the current thread's batch by mutation, awaited together in afterBatch()
+    private final ThreadLocal<Map<QuoteMutation, CompletableFuture<Long>>> batchAppends = new ThreadLocal<>();
+    // Mutations of the current thread's failed batch that never reached the log, until afterRollback()
+    private final ThreadLocal<Set<QuoteMutation>> unlogged = new ThreadLocal<>();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    public QuotePersistence(QuoteStore store,
+                            @Value("${tracker.persistence.directory:data}") String directory,
+                            @Value("${tracker.persistence.snapshot-interval:5m}") Duration snapshotInterval,
+                            @Value("${tracker.persistence.group-commit-max-batch:1024}") int groupCommitMaxBatch,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.store = store;
+        this.directory = Path.of(directory);
+        this.snapshotInterval = snapshotInterval;
+        this.groupCommitMaxBatch = groupCommitMaxBatch;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        long lastSegment = recover();
+        wal = new WriteAheadLog(directory, lastSegment + 1, groupCommitMaxBatch, threads("quote-wal-writer"));
+        store.addListener(this);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(threads("quote-snapshotter"));
+        long period = snapshotInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            // A final snapshot keeps the next startup from replaying a long WAL tail. It is
+            // taken while still listening, so writes racing it land in the WAL's new segment
+            snapshot();
+        } finally {
+            // The listener stays attached: with the log closed it refuses every later
+            // write, rather than letting one through that neither file would keep
+            wal.close();
+        }
+    }
+
+    /**
+     * Named daemon threads; virtual threads are always daemon.
+     */
+    private ThreadFactory threads(String name) {
+        return virtualThreads
+                ? Thread.ofVirtual().name(name).factory()
+                : Thread.ofPlatform().name(name).daemon().factory();
+    }
+
+    // Test helper method - stops logging as if the process died, without a final snapshot
+    void closeWithoutSnapshot() throws IOException {
+        scheduler.shutdownNow();
+        store.removeListener(this);
+        wal.close();
+    }
+
+    // Test helper method - closes the log under a running store, so every later append fails
+    void closeLog() throws IOException {
+        wal.close();
+    }
+
+    // Test helper method - fails the first group commit that starts after the next `records` records
+    void failCommitAfter(int records) {
+        wal.failCommitAfter(records);
+    }
+
+    @Override
+    public void beforeMutation(QuoteMutation mutation) {
+        CompletableFuture<Long> appended = wal.append(mutation);
+        changesSinceSnapshot.incrementAndGet();
+        Map<QuoteMutation, CompletableFuture<Long>> batch = batchAppends.get();
+        if (batch != null) {
+            batch.put(mutation, appended);
+        } else {
+            // Blocks until the group commit containing this record has been fsynced
+            appended.join();
+        }
+    }
+
+    @Override
+    public void onMutation(QuoteMutation mutation) {
+        // Already logged in beforeMutation
+    }
+
+    @Override
+    public void beforeBatch() {
+        batchAppends.set(new IdentityHashMap<>());
+    }
+
+    @Override
+    public void afterBatch() {
+        Map<QuoteMutation, CompletableFuture<Long>> batch = batchAppends.get();
+        batchAppends.remove();
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        try {
+            // Records were queued in order, so this is usually one or two fsyncs for the whole batch
+            CompletableFuture.allOf(batch.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // allOf() only fails once every append is done, so each one's fate is known here
+            Set<QuoteMutation> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            batch.forEach((mutation, appended) -> {
+                if (appended.isCompletedExceptionally()) {
+                    failed.add(mutation);
+                }
+            });
+            unlogged.set(failed);
+            throw e;
+        }
+    }
+
+    /**
+     * Logs the undo and waits for its fsync, since {@code undone} may be durable
+     * already. If the log can't take it, the undo may still go ahead when
+     * {@code undone} itself never reached the log.
+     */
+    @Override
+    public void beforeUndo(QuoteMutation undone, QuoteMutation undo) {
+        try {
+            // Outside the batch now, so this blocks until the record is fsynced
+            beforeMutation(undo);
+        } catch (RuntimeException e) {
+            Set<QuoteMutation> failed = unlogged.get();
+            if (failed == null || !failed.contains(undone)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void afterRollback() {
+        unlogged.remove();
+    }
+
+    /**
+     * Rotates the WAL, writes a snapshot covering every closed segment and
+     * deletes the files it supersedes. Does nothing if nothing changed.
+     */
+    synchronized void snapshot() throws IOException {
+        long changes = changesSinceSnapshot.get();
+        if (changes == 0) {
+            return;
+        }
+        long covered = wal.rotate().join();
+        // Records logged before the rotation may not be applied yet; the dump must include them
+        store.awaitWritesInFlight();
+        QuoteSnapshot.write(directory.resolve(snapshotName(covered)), store.nextId(), store.size(), store.values());
+
+        for (Path segment : WriteAheadLog.segments(directory)) {
+            if (WriteAheadLog.segmentNumber(segment) <= covered) {
+                Files.deleteIfExists(segment);
+            }
+        }
+        for (Path snapshot : snapshots()) {
+            if (snapshotNumber(snapshot) < covered) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        changesSinceSnapshot.addAndGet(-changes);
+        log.debug("Snapshot {} written after {} changes", covered, changes);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Snapshot failed; the WAL still has every change", e);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot plus the WAL tail into the store.
+     * Returns the highest segment number seen on disk.
+     */
+    private long recover() throws IOException {
+        QuoteSnapshot.Contents contents = null;
+        long covered = 0;
+        List<Path> snapshots = snapshots();
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            contents = QuoteSnapshot.read(latest);
+            covered = snapshotNumber(latest);
+        }
+
+        long nextId = contents == null ? 1 : contents.nextId();
+        Map<Long, Quote> recovered = HashMap.newHashMap(contents == null ? 0 : contents.quotes().size());
+        if (contents != null) {
+            for (Quote quote : contents.quotes()) {
+                recovered.put(quote.getId(), quote);
+            }
+        }
+
+        long lastSegment = covered;
+        long replayed = 0;
+        long[] maxId = {nextId - 1};
+        for (Path segment : WriteAheadLog.segments(directory)) {
+            long number = WriteAheadLog.segmentNumber(segment);
+            lastSegment = Math.max(lastSegment, number);
+            if (number <= covered) {
+                continue;
+            }
+            replayed += WriteAheadLog.replay(segment, mutation -> {
+                if (mutation.type() == QuoteMutation.Type.DELETE) {
+                    recovered.remove(mutation.id());
+                } else {
+                    recovered.put(mutation.id(), mutation.quote());
+                }
+                maxId[0] = Math.max(maxId[0], mutation.id());
+            });
+        }
+
+        store.load(recovered.values(), maxId[0] + 1);
+        log.info("Recovered {} quotes (snapshot {} + {} WAL records) from {}",
+                recovered.size(), covered, replayed, directory.toAbsolutePath());
+        return lastSegment;
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(snapshotNumber(a), snapshotNumber(b)))
+                    .toList();
+        }
+    }
+
+    private static String snapshotName(long coveredSegment) {
+        return String.format("%s%016d%s", SNAPSHOT_PREFIX, coveredSegment, SNAPSHOT_SUFFIX);
+    }
+
+    private static long snapshotNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
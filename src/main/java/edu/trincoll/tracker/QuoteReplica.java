@@ -0,0 +1,213 @@
+package edu.trincoll.tracker;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps this node's store a copy of a leader's, so followers behind a load
+ * balancer can serve reads.
+ * <p>
+ * On startup, and whenever it has fallen too far behind, the follower copies
+ * the leader's {@code /api/replication/snapshot}. Quotes missing from the copy
+ * are deleted here, and the copy overwrites local quotes whatever their
+ * version. After that it long-polls {@code /api/replication/changes}
+ * from the snapshot's offset and applies each batch as one store batch, in the
+ * leader's order. Every change carries the quote's full state and version, and
+ * {@link QuoteStore#replicate} ignores versions it already has, so applying a
+ * change twice is harmless.
+ * <p>
+ * Offsets and versions only mean something within one run of the leader: a
+ * restarted leader without persistence numbers its changes, ids and versions
+ * from scratch. Both responses carry the leader's change log epoch, and a
+ * new epoch sends the follower back to copying the snapshot. Leader errors are retried every
+ * {@code retry-interval}. The local store keeps serving reads throughout;
+ * writes are sent to the leader by {@link QuoteFollowerWriteFilter}.
+ * <p>
+ * Enabled with {@code tracker.replication.role=follower} and
+ * {@code tracker.replication.leader-url}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "tracker.replication", name = "role", havingValue = "follower")
+public class QuoteReplica {
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteReplica.class);
+
+    private final QuoteStore store;
+    private final URI leader;
+    private final Duration pollWait;
+    private final Duration retryInterval;
+    private final HttpClient http;
+    // Leader change log position applied so far, and the leader's latest one seen; -1 before the first snapshot
+    private volatile long appliedOffset = -1;
+    private volatile long leaderLatest = -1;
+    // Epoch of the leader run appliedOffset belongs to
+    private volatile long leaderEpoch;
+    private volatile boolean running;
+    private Thread worker;
+
+    public QuoteReplica(QuoteStore store, MeterRegistry registry,
+                        @Value("${tracker.replication.leader-url}") URI leader,
+                        @Value("${tracker.replication.poll-wait:30s}") Duration pollWait,
+                        @Value("${tracker.replication.retry-interval:1s}") Duration retryInterval) {
+        if (pollWait.isNegative() || pollWait.toSeconds() > QuoteReplicationController.MAX_WAIT_SECONDS) {
+            // The leader answers a longer wait with 400, which would be retried forever
+            throw new IllegalArgumentException("tracker.replication.poll-wait must be between 0 and "
+                    + QuoteReplicationController.MAX_WAIT_SECONDS + "s, was " + pollWait);
+        }
+        this.store = store;
+        this.leader = leader;
+        this.pollWait = pollWait;
+        this.retryInterval = retryInterval;
+        this.http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Gauge.builder("quotes.replication.lag", this, replica -> Math.max(0, replica.leaderLatest - replica.appliedOffset))
+                .description("Leader changes this follower has not applied yet")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        // Blocks on the network nearly all the time, so virtual
+        worker = Thread.ofVirtual().name("quote-replica").start(this::run);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(Duration.ofSeconds(10));
+    }
+
+    long appliedOffset() {
+        return appliedOffset;
+    }
+
+    long leaderLatest() {
+        return leaderLatest;
+    }
+
+    private void run() {
+        boolean resync = true;
+        while (running) {
+            try {
+                if (resync) {
+                    copySnapshot();
+                    resync = false;
+                }
+                resync = !tail();
+            } catch (IOException | UncheckedIOException e) {
+                log.warn("Replication from {} failed, retrying in {}: {}", leader, retryInterval, e.toString());
+                if (!pause()) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void copySnapshot() throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = http.send(request("/api/replication/snapshot", Duration.ofMinutes(5)),
+                HttpResponse.BodyHandlers.ofInputStream());
+        QuoteReplicationCodec.Snapshot snapshot;
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Snapshot request answered " + response.statusCode());
+            }
+            snapshot = QuoteReplicationCodec.readSnapshot(body);
+        }
+
+        Set<Long> ids = HashSet.newHashSet(snapshot.quotes().size());
+        store.batch(() -> {
+            for (Quote quote : snapshot.quotes()) {
+                ids.add(quote.getId());
+                // A quote left from an earlier leader run may carry a higher version
+                store.replicate(quote, true);
+            }
+            for (Quote local : store.values()) {
+                if (!ids.contains(local.getId())) {
+                    store.delete(local.getId());
+                }
+            }
+        });
+        store.advanceNextId(snapshot.nextId());
+        leaderEpoch = snapshot.epoch();
+        appliedOffset = snapshot.offset();
+        leaderLatest = snapshot.offset();
+        log.info("Copied {} quotes from {} at offset {}", snapshot.quotes().size(), leader, snapshot.offset());
+    }
+
+    /**
+     * Applies one batch of changes, waiting for it if there is none yet.
+     * Returns false if the leader no longer has the changes after our offset,
+     * or is a new run whose offsets don't match ours.
+     */
+    private boolean tail() throws IOException, InterruptedException {
+        String path = "/api/replication/changes?since=" + appliedOffset + "&epoch=" + leaderEpoch
+                + "&wait=" + Math.max(1, pollWait.toSeconds());
+        HttpResponse<byte[]> response = http.send(request(path, pollWait.plusSeconds(10)),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() == 410) {
+            log.info("Leader {} dropped changes after offset {} or restarted; copying a new snapshot",
+                    leader, appliedOffset);
+            return false;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Change request answered " + response.statusCode());
+        }
+        QuoteReplicationCodec.Changes batch = QuoteReplicationCodec.decodeChanges(response.body());
+        if (batch.epoch() != leaderEpoch) {
+            // Restarted while we were waiting
+            log.info("Leader {} restarted; copying a new snapshot", leader);
+            return false;
+        }
+        QuoteChangeLog.Page page = batch.page();
+        List<QuoteChangeLog.Change> changes = page.changes();
+        if (!changes.isEmpty()) {
+            store.batch(() -> {
+                for (QuoteChangeLog.Change change : changes) {
+                    if (change.type() == QuoteMutation.Type.DELETE) {
+                        store.delete(change.id());
+                    } else {
+                        store.replicate(change.quote());
+                    }
+                }
+            });
+            appliedOffset = changes.get(changes.size() - 1).seq();
+        }
+        leaderLatest = page.latest();
+        return true;
+    }
+
+    private HttpRequest request(String path, Duration timeout) {
+        return HttpRequest.newBuilder(leader.resolve(path)).timeout(timeout).GET().build();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(retryInterval);
+            return running;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
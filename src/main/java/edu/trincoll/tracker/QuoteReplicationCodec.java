@@ -0,0 +1,116 @@
+package edu.trincoll.tracker;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire formats between a replication leader and its followers.
+ * <p>
+ * Both are big-endian and reuse the record encodings of the persistence layer:
+ * <pre>
+ *   snapshot  magic (4) | epoch (8) | offset (8) | next id (8) | size hint (4) | per quote: length (4) | {@link QuoteCodec} record | -1 (4)
+ *   changes   magic (4) | epoch (8) | latest (8) | count (4) | per change: seq (8) | length (4) | {@link WriteAheadLog} record
+ * </pre>
+ * A snapshot's {@code offset} is the leader's change log position read before
+ * the quotes were walked, so replaying every change after it on top of the
+ * snapshot reaches the leader's state, even if the walk already saw some of them.
+ * The {@code epoch} is the leader's {@link QuoteChangeLog#epoch()}: offsets are
+ * only comparable while it stays the same.
+ */
+final class QuoteReplicationCodec {
+
+    private static final int SNAPSHOT_MAGIC = 0x51525350; // "QRSP"
+    private static final int CHANGES_MAGIC = 0x51524348; // "QRCH"
+
+    /**
+     * A full copy of the leader's quotes and the change log position it covers.
+     */
+    record Snapshot(long epoch, long offset, long nextId, List<Quote> quotes) {
+    }
+
+    /**
+     * A batch of the leader's changes and the epoch their sequence numbers belong to.
+     */
+    record Changes(long epoch, QuoteChangeLog.Page page) {
+    }
+
+    private QuoteReplicationCodec() {
+    }
+
+    static void writeSnapshot(OutputStream target, long epoch, long offset, long nextId, int count,
+                              Iterable<Quote> quotes) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 64 * 1024));
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeLong(epoch);
+        out.writeLong(offset);
+        out.writeLong(nextId);
+        // Only a size hint, read before the walk; the reader stops at the -1 end marker
+        out.writeInt(count);
+        for (Quote quote : quotes) {
+            byte[] record = QuoteCodec.encode(quote);
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        out.writeInt(-1);
+        out.flush();
+    }
+
+    static Snapshot readSnapshot(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 64 * 1024));
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a replication snapshot");
+        }
+        long epoch = in.readLong();
+        long offset = in.readLong();
+        long nextId = in.readLong();
+        List<Quote> quotes = new ArrayList<>(Math.max(0, in.readInt()));
+        int length;
+        while ((length = in.readInt()) >= 0) {
+            quotes.add(QuoteCodec.decode(ByteBuffer.wrap(in.readNBytes(length))));
+        }
+        return new Snapshot(epoch, offset, nextId, quotes);
+    }
+
+    static byte[] encodeChanges(long epoch, QuoteChangeLog.Page page) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * (page.changes().size() + 1));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CHANGES_MAGIC);
+            out.writeLong(epoch);
+            out.writeLong(page.latest());
+            out.writeInt(page.changes().size());
+            for (QuoteChangeLog.Change change : page.changes()) {
+                byte[] record = WriteAheadLog.encode(new QuoteMutation(change.type(), change.id(), change.quote()));
+                out.writeLong(change.seq());
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a batch of changes; never a resync page, which travels as a status code instead.
+     */
+    static Changes decodeChanges(byte[] body) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        if (in.remaining() < Integer.BYTES || in.getInt() != CHANGES_MAGIC) {
+            throw new IOException("Not a replication change batch");
+        }
+        long epoch = in.getLong();
+        long latest = in.getLong();
+        int count = in.getInt();
+        List<QuoteChangeLog.Change> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long seq = in.getLong();
+            int length = in.getInt();
+            QuoteMutation mutation = WriteAheadLog.decode(in.slice(in.position(), length));
+            in.position(in.position() + length);
+            changes.add(new QuoteChangeLog.Change(seq, mutation.type(), mutation.id(), mutation.quote()));
+        }
+        return new Changes(epoch, new QuoteChangeLog.Page(changes, latest, false));
+    }
+}
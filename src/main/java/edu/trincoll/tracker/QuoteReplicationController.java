@@ -0,0 +1,117 @@
+package edu.trincoll.tracker;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds followers replicating this node's quotes (see {@link QuoteReplica}).
+ * <p>
+ * A follower copies {@code /snapshot}, then long-polls {@code /changes} from
+ * the snapshot's offset, applying each batch in order. Both use the binary
+ * formats of {@link QuoteReplicationCodec}, which unlike the JSON feed carry
+ * quote versions. Followers serve the same endpoints from their own change
+ * log, so followers can also be chained.
+ */
+@RestController
+@RequestMapping("/api/replication")
+public class QuoteReplicationController {
+
+    private static final int MAX_BATCH = 10_000;
+    // Longest long poll a follower may ask for
+    static final long MAX_WAIT_SECONDS = 60;
+
+    /**
+     * This node's role and change log position; for a follower, also how far
+     * it has applied the leader's changes and the leader's latest position it saw.
+     */
+    public record Status(String role, long latest, Long appliedOffset, Long leaderLatest) {
+    }
+
+    private final QuoteStore store;
+    private final QuoteChangeLog changeLog;
+    private final Optional<QuoteReplica> replica;
+    private final String role;
+
+    public QuoteReplicationController(QuoteStore store, QuoteChangeLog changeLog, Optional<QuoteReplica> replica,
+                                      @Value("${tracker.replication.role:leader}") String role) {
+        this.store = store;
+        this.changeLog = changeLog;
+        this.replica = replica;
+        this.role = role;
+    }
+
+    /**
+     * GET /api/replication/snapshot
+     * Every quote plus the change log offset to tail from, streamed as it is encoded
+     */
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> snapshot() {
+        // Read before the walk: changes after it may already be in the copy, and replaying them is harmless
+        long offset = changeLog.latest();
+        long nextId = store.nextId();
+        long epoch = changeLog.epoch();
+        StreamingResponseBody body = out ->
+                QuoteReplicationCodec.writeSnapshot(out, epoch, offset, nextId, store.size(), store.values());
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * GET /api/replication/changes?since=offset&epoch=e&wait=30&limit=n
+     * Long-poll for a batch of changes after {@code since}, like GET /api/items/changes
+     * - Return 410 Gone if changes after since were already dropped: copy the snapshot again
+     * - Also 410 if epoch, when given, isn't this log's: since belongs to an earlier run
+     * - Return 400 if since, wait or limit is out of range
+     */
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public DeferredResult<ResponseEntity<byte[]>> changes(
+            @RequestParam("since") long since,
+            @RequestParam(value = "epoch", required = false) Long epoch,
+            @RequestParam(value = "wait", defaultValue = "30") long wait,
+            @RequestParam(value = "limit", defaultValue = "10000") int limit) {
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait));
+        if (since < 0 || wait < 0 || wait > MAX_WAIT_SECONDS || limit < 1 || limit > MAX_BATCH) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+        if (epoch != null && epoch != changeLog.epoch()) {
+            result.setResult(ResponseEntity.status(HttpStatus.GONE).build());
+            return result;
+        }
+        if (wait == 0) {
+            result.setResult(respond(changeLog.read(since, limit)));
+            return result;
+        }
+        Runnable cancel = changeLog.onChanges(since, limit, page -> result.setResult(respond(page)));
+        result.onTimeout(() -> {
+            cancel.run();
+            result.setResult(respond(changeLog.read(since, limit)));
+        });
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    /**
+     * GET /api/replication/status
+     */
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Status status() {
+        return new Status(role, changeLog.latest(),
+                replica.map(QuoteReplica::appliedOffset).orElse(null),
+                replica.map(QuoteReplica::leaderLatest).orElse(null));
+    }
+
+    private ResponseEntity<byte[]> respond(QuoteChangeLog.Page page) {
+        if (page.resync()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        return ResponseEntity.ok(QuoteReplicationCodec.encodeChanges(changeLog.epoch(), page));
+    }
+}
@@ -0,0 +1,68 @@
+package edu.trincoll.tracker;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Serialization phase of {@link QuoteMetrics}' detailed timing.
+ * <p>
+ * Response bodies are written by Spring after the controller returns, so the
+ * phase is measured from just before the body is handed to the message
+ * converter until the request completes. Only registered when
+ * {@code tracker.metrics.detailed-timing} is on, so it costs nothing otherwise.
+ */
+@ControllerAdvice(assignableTypes = QuoteController.class)
+@ConditionalOnProperty(prefix = "tracker.metrics", name = "detailed-timing", havingValue = "true")
+public class QuoteSerializationTiming implements ResponseBodyAdvice<Object>, HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String STARTED = QuoteSerializationTiming.class.getName() + ".started";
+
+    private final QuoteMetrics metrics;
+
+    public QuoteSerializationTiming(QuoteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/api/items/**");
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest().setAttribute(STARTED, System.nanoTime());
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(STARTED) instanceof Long started && handler instanceof HandlerMethod method) {
+            QuoteMetrics.Endpoint endpoint = QuoteMetrics.Endpoint.forHandler(method.getMethod().getName());
+            if (endpoint != null) {
+                metrics.phase(endpoint, QuoteMetrics.Phase.SERIALIZATION, started);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package edu.trincoll.tracker;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One partition of the {@link QuoteStore}: the quotes whose ids fall in its
+ * id blocks, with their own locks and indexes.
+ * <p>
+ * Ids are partitioned in blocks of {@link #BLOCK_SIZE}; block {@code b} (ids
+ * {@code b * BLOCK_SIZE + 1} to {@code (b + 1) * BLOCK_SIZE}) belongs to shard
+ * {@code b % shards}. The owner of an id is plain arithmetic, so a read by id
+ * goes straight to one shard. Ids themselves come from the store's one
+ * sequence, so they increase in creation order whatever the shard count, and
+ * a block keeps each shard's ids dense for its bitmaps and length pages.
+ * <p>
+ * The store holds the id's lock (from {@link #locks}) around every write here,
+ * or every lock around a batch of them.
+ */
+final class QuoteShard {
+
+    static final long BLOCK_SIZE = 4096;
+
+    private static final int LOCK_STRIPES = 256;
+
+    /**
+     * Quotes in a shard's slice of a query, plus whether the shard has more past them.
+     */
+    record Slice(List<StoredQuote> quotes, boolean more) {
+    }
+
+    final QuoteTable quotes;
+    // Serializes writes per id; held while listeners are notified, so they see each id's writes in order
+    final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    final NameSearchIndex nameSearch = new NameSearchIndex();
+    final FullTextIndex fullText = new FullTextIndex();
+    final AttributeIndex attributes = new AttributeIndex();
+    final TimeIndex createdAt = new TimeIndex();
+    // Table views may walk every entry for size(), so the count is kept separately
+    final LongAdder count = new LongAdder();
+    // Bumped right after every change becomes visible
+    final AtomicLong generation = new AtomicLong();
+
+    QuoteShard(QuoteTable quotes) {
+        this.quotes = quotes;
+    }
+
+    /**
+     * Index of the shard owning {@code id} among {@code shards} shards.
+     */
+    static int owner(long id, int shards) {
+        return (int) Math.floorMod(Math.floorDiv(id - 1, BLOCK_SIZE), (long) shards);
+    }
+
+    void insert(StoredQuote quote) {
+        quotes.put(quote);
+        generation.incrementAndGet();
+        count.increment();
+        nameSearch.add(quote.id(), quote.name());
+        fullText.add(quote.id(), FullTextIndex.terms(quote));
+        attributes.add(quote);
+        createdAt.add(quote.createdAtMillis(), quote.id());
+    }
+
+    void replace(StoredQuote existing, StoredQuote updated) {
+        long id = updated.id();
+        // The swap is the linearization point: readers see the old quote or the new one, never a mix
+        quotes.put(updated);
+        generation.incrementAndGet();
+        fullText.replace(id, FullTextIndex.terms(existing), FullTextIndex.terms(updated));
+        attributes.replace(existing, updated);
+        if (!existing.name().equals(updated.name())) {
+            nameSearch.rename(id, existing.name(), updated.name());
+        }
+    }
+
+    void remove(StoredQuote existing) {
+        long id = existing.id();
+        quotes.remove(id);
+        generation.incrementAndGet();
+        count.decrement();
+        nameSearch.remove(id);
+        fullText.remove(id, FullTextIndex.terms(existing));
+        attributes.remove(existing);
+        createdAt.remove(existing.createdAtMillis(), id);
+    }
+
+    /**
+     * Up to {@code limit} quotes with ids greater than {@code afterId}, in id order.
+     */
+    List<StoredQuote> page(long afterId, int limit) {
+        List<StoredQuote> page = new ArrayList<>(Math.min(limit, 1024));
+        for (StoredQuote quote : quotes.valuesAfter(afterId)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(quote);
+        }
+        return page;
+    }
+
+    /**
+     * Quotes whose name contains {@code query}, ignoring case, in id order.
+     */
+    List<StoredQuote> nameMatches(String query) {
+        List<StoredQuote> matches = new ArrayList<>();
+        for (Long id : nameSearch.search(query)) {
+            StoredQuote quote = quotes.get(id);
+            if (quote != null) {
+                matches.add(quote);
+            }
+        }
+        return matches;
+    }
+
+    long count(QuoteStore.Filter filter) {
+        List<IdBitmap> sets = attributes.select(filter);
+        return sets.isEmpty() ? 0 : IdBitmap.intersectionSize(sets);
+    }
+
+    /**
+     * Up to {@code limit} quotes matching a non-empty {@code filter} with ids
+     * greater than {@code afterId}, in id order. Candidates come from the index
+     * bitmaps and are checked against the stored quote, so a write racing the
+     * query can't slip in a quote that no longer matches.
+     */
+    List<StoredQuote> query(QuoteStore.Filter filter, long afterId, int limit) {
+        List<IdBitmap> sets = attributes.select(filter);
+        List<StoredQuote> results = new ArrayList<>(Math.min(limit, 1024));
+        if (sets.isEmpty() || limit <= 0) {
+            return results;
+        }
+        IdBitmap.forEach(sets, afterId, id -> {
+            StoredQuote quote = quotes.get(id);
+            if (quote != null && filter.matches(quote)) {
+                results.add(quote);
+            }
+            return results.size() < limit;
+        });
+        return results;
+    }
+
+    /**
+     * Up to {@code limit} quotes at the given time index positions, in their order.
+     */
+    Slice timeSlice(Iterable<QuoteStore.TimeCursor> positions, int limit) {
+        List<StoredQuote> slice = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<QuoteStore.TimeCursor> it = positions.iterator();
+        while (slice.size() < limit && it.hasNext()) {
+            StoredQuote quote = quotes.get(it.next().id());
+            // Null if deleted since the position was read
+            if (quote != null) {
+                slice.add(quote);
+            }
+        }
+        return new Slice(slice, it.hasNext());
+    }
+
+    /**
+     * Holds back name and full-text index upkeep until {@link #flushIndexes()},
+     * which does it once per gram and term rather than once per write. Only for
+     * a caller holding every lock in {@link #locks} until then.
+     */
+    void deferIndexes() {
+        nameSearch.defer();
+        fullText.defer();
+    }
+
+    void flushIndexes() {
+        nameSearch.flush();
+        fullText.flush();
+    }
+
+    void clear() {
+        quotes.clear();
+        generation.incrementAndGet();
+        count.reset();
+        nameSearch.clear();
+        fullText.clear();
+        attributes.clear();
+        createdAt.clear();
+    }
+}
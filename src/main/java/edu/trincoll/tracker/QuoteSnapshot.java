@@ -0,0 +1,238 @@
+package edu.trincoll.tracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Point-in-time dump of every quote plus the id sequence, written and read
+ * through memory-mapped buffers.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   header   magic (4) | version (4) | next id (8)
+ *   records  one {@link QuoteCodec} record per quote, back to back
+ *   offsets  file offset of each record (8 each)
+ *   footer   offsets position (8) | count (4) | CRC32 of everything before it (4)
+ * </pre>
+ * The offset table lets a reader split the records into ranges and decode
+ * them on several threads at once, each mapping only its own range.
+ * Files are written under a temporary name, forced and atomically renamed,
+ * and the directory is forced after the rename, so a crash never leaves a
+ * half-written snapshot behind or loses a finished one.
+ */
+final class QuoteSnapshot {
+
+    private static final int MAGIC = 0x51534E50; // "QSNP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int FOOTER_SIZE = 16;
+    // Records are written through windows of this size so huge stores never need one giant mapping
+    private static final int WRITE_WINDOW = 64 * 1024 * 1024;
+    // Upper bound for one reader's mapping; keeps every range well under the 2 GB mapping limit
+    private static final long MAX_READ_CHUNK = 256L * 1024 * 1024;
+
+    /**
+     * Contents of a snapshot file, quotes in the order they were written.
+     */
+    record Contents(List<Quote> quotes, long nextId) {
+    }
+
+    private QuoteSnapshot() {
+    }
+
+    /**
+     * Writes {@code quotes} to {@code target} through a temporary file. {@code count} is
+     * only a hint sizing the offset table, so the quotes are walked just once.
+     */
+    static void write(Path target, long nextId, int count, Iterable<Quote> quotes) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            MappedWriter out = new MappedWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(nextId);
+
+            long[] offsets = new long[Math.max(16, count)];
+            int written = 0;
+            for (Quote quote : quotes) {
+                if (written == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, written * 2);
+                }
+                offsets[written++] = out.position();
+                out.put(QuoteCodec.encode(quote));
+            }
+
+            long offsetsPosition = out.position();
+            for (int i = 0; i < written; i++) {
+                out.putLong(offsets[i]);
+            }
+            out.putLong(offsetsPosition);
+            out.putInt(written);
+            // The checksum itself is not covered by the checksum
+            out.putUnchecked((int) out.crc.getValue());
+            out.finish();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename itself must be durable before the segments it supersedes are deleted
+        WriteAheadLog.syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    static Contents read(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Snapshot too short: " + source);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a quote snapshot: " + source);
+            }
+            long nextId = header.getLong();
+
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_SIZE, FOOTER_SIZE);
+            long offsetsPosition = footer.getLong();
+            int count = footer.getInt();
+            int expectedCrc = footer.getInt();
+            if (offsetsPosition < HEADER_SIZE || offsetsPosition + (long) count * Long.BYTES != size - FOOTER_SIZE) {
+                throw new IOException("Corrupt snapshot footer: " + source);
+            }
+            if (checksum(channel, size - Integer.BYTES) != expectedCrc) {
+                throw new IOException("Snapshot checksum mismatch: " + source);
+            }
+
+            long[] offsets = new long[count + 1];
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, offsetsPosition, (long) count * Long.BYTES);
+            table.asLongBuffer().get(offsets, 0, count);
+            offsets[count] = offsetsPosition;
+
+            Quote[] quotes = new Quote[count];
+            int[] starts = chunkStarts(offsets, count, size);
+            IntStream.range(0, starts.length - 1).parallel().forEach(chunk ->
+                    decodeRange(channel, offsets, starts[chunk], starts[chunk + 1], quotes));
+            return new Contents(Arrays.asList(quotes), nextId);
+        }
+    }
+
+    /**
+     * Splits records into ranges small enough to map individually, with at
+     * least a few ranges per core so the parallel decode stays balanced.
+     */
+    private static int[] chunkStarts(long[] offsets, int count, long fileSize) {
+        int chunks = (int) Math.max(Runtime.getRuntime().availableProcessors() * 4L, fileSize / MAX_READ_CHUNK + 1);
+        chunks = Math.max(1, Math.min(chunks, count));
+        int[] starts = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            starts[i] = (int) ((long) count * i / chunks);
+        }
+        return starts;
+    }
+
+    private static void decodeRange(FileChannel channel, long[] offsets, int from, int to, Quote[] into) {
+        if (from == to) {
+            return;
+        }
+        try {
+            long base = offsets[from];
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, base, offsets[to] - base);
+            for (int i = from; i < to; i++) {
+                region.position((int) (offsets[i] - base));
+                into[i] = QuoteCodec.decode(region);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int checksum(FileChannel channel, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < length; position += MAX_READ_CHUNK) {
+            long window = Math.min(MAX_READ_CHUNK, length - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, window));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Sequential writer over a growing file, mapping one window at a time and
+     * keeping a running CRC32 of everything put through it.
+     */
+    private static final class MappedWriter {
+
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return window == null ? 0 : windowStart + window.position();
+        }
+
+        void putInt(int value) throws IOException {
+            scratch.clear();
+            scratch.putInt(value);
+            put(scratch.array(), Integer.BYTES, true);
+        }
+
+        void putLong(long value) throws IOException {
+            scratch.clear();
+            scratch.putLong(value);
+            put(scratch.array(), Long.BYTES, true);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            put(bytes, bytes.length, true);
+        }
+
+        void putUnchecked(int value) throws IOException {
+            scratch.clear();
+            scratch.putInt(value);
+            put(scratch.array(), Integer.BYTES, false);
+        }
+
+        private void put(byte[] bytes, int length, boolean checked) throws IOException {
+            ensure(length);
+            window.put(bytes, 0, length);
+            if (checked) {
+                crc.update(bytes, 0, length);
+            }
+        }
+
+        private void ensure(int length) throws IOException {
+            if (window != null && window.remaining() >= length) {
+                return;
+            }
+            long start = position();
+            if (window != null) {
+                window.force();
+            }
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.max(WRITE_WINDOW, length));
+        }
+
+        /**
+         * Forces the last window and trims the file to what was actually written.
+         */
+        void finish() throws IOException {
+            long end = position();
+            if (window != null) {
+                window.force();
+            }
+            channel.truncate(end);
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,1114 @@
+package edu.trincoll.tracker;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * In-memory store for quotes.
+ * <p>
+ * Quotes are hash-partitioned by id block over {@code tracker.store.shards}
+ * {@link QuoteShard}s, each with its own quotes, locks and indexes, so writers
+ * on different shards share nothing but the name index and the id sequence.
+ * Ids increase in creation order whatever the shard count, so an id is a
+ * stable cursor for paging through quotes in id order.
+ * A read by id goes to the one shard owning it. Listing, search, filter and
+ * time queries run on every shard in parallel on the common fork-join pool
+ * and k-way merge the per-shard results; with one shard (the default) they
+ * run inline.
+ * <p>
+ * Within a shard quotes are kept in a {@link QuoteTable} iterated in id order,
+ * so readers never need to sort, even while writers insert and delete. The
+ * {@code tracker.store.backend} picks the table: {@code heap} (the default)
+ * keeps each quote as a compact, immutable {@link StoredQuote} in a skip list
+ * whose readers never lock; {@code off-heap} keeps encoded records in direct
+ * memory ({@link OffHeapQuoteTable}), so a large store adds next to nothing
+ * for the garbage collector to trace. Either way reads hand out fresh
+ * {@link Quote} objects and writes swap in a new entry. Writers to the same id
+ * are serialized by a striped lock, so concurrent updates apply one after the
+ * other, never interleaved.
+ * <p>
+ * Keeps one name -> id index for all shards so that name uniqueness is
+ * checked and claimed in one atomic step instead of scanning every quote,
+ * plus an n-gram index for name search and a keyword index for full-text
+ * search, so that neither kind of search scans either. Author, source,
+ * category and completed are indexed as id bitmaps, so filters on them
+ * intersect bitmaps instead of scanning. A time index keeps quotes ordered
+ * by createdAt for range and newest-first queries.
+ * <p>
+ * Every successful write is reported to the registered
+ * {@link QuoteMutationListener}s before it returns: first, before the change
+ * is visible, to {@link QuoteMutationListener#beforeMutation} (which may veto
+ * it), then to {@link QuoteMutationListener#onMutation}. A batch whose
+ * listeners fail to finish it is rolled back.
+ */
+@Component
+public class QuoteStore {
+
+    /**
+     * Outcome of a write against the store.
+     */
+    public enum Status { OK, NOT_FOUND, CONFLICT, PRECONDITION_FAILED }
+
+    /**
+     * Precondition that accepts any current state, for unconditional writes.
+     */
+    static final Predicate<StoredQuote> ANY_STATE = current -> true;
+
+    private static final Logger log = LoggerFactory.getLogger(QuoteStore.class);
+
+    /**
+     * Status of a write plus the stored quote when it succeeded.
+     */
+    public record WriteResult(Status status, Quote quote) {
+
+        static WriteResult ok(Quote quote) {
+            return new WriteResult(Status.OK, quote);
+        }
+
+        static WriteResult of(Status status) {
+            return new WriteResult(status, null);
+        }
+    }
+
+    /**
+     * Exact-match filter on the indexed fields; null fields are not filtered on.
+     */
+    public record Filter(String author, String source, String category, Boolean completed) {
+
+        public boolean isEmpty() {
+            return author == null && source == null && category == null && completed == null;
+        }
+
+        boolean matches(StoredQuote quote) {
+            return (author == null || author.equals(quote.author()))
+                    && (source == null || source.equals(quote.source()))
+                    && (category == null || category.equals(quote.category()))
+                    && (completed == null || completed == quote.completed());
+        }
+    }
+
+    /**
+     * A position in createdAt order: the createdAt (epoch millis) and id of a
+     * quote. Used to resume time-ordered queries where the last page ended.
+     * Its string form is {@code <millis>.<id>}.
+     */
+    public record TimeCursor(long createdAtMillis, long id) implements Comparable<TimeCursor> {
+
+        static TimeCursor of(Quote quote) {
+            return new TimeCursor(QuoteCodec.toEpochMillis(quote.getCreatedAt()), quote.getId());
+        }
+
+        /**
+         * Parses the string form; null if {@code text} isn't a cursor.
+         */
+        public static TimeCursor parse(String text) {
+            int dot = text.indexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            try {
+                return new TimeCursor(Long.parseLong(text.substring(0, dot)), Long.parseLong(text.substring(dot + 1)));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public int compareTo(TimeCursor other) {
+            int byTime = Long.compare(createdAtMillis, other.createdAtMillis);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+
+        @Override
+        public String toString() {
+            return createdAtMillis + "." + id;
+        }
+    }
+
+    /**
+     * One page of a time-ordered query; {@code next} resumes after it, or is null on the last page.
+     */
+    public record TimePage(List<Quote> quotes, TimeCursor next) {
+    }
+
+    /**
+     * Quote counts by group. Groups without quotes are left out.
+     */
+    public record Stats(long total, long completed, long notCompleted,
+                        SortedMap<String, Long> categories, SortedMap<String, Long> authors,
+                        SortedMap<String, Long> sources, SortedMap<LocalDate, Long> createdPerDay) {
+    }
+
+    private static final Comparator<StoredQuote> BY_ID = Comparator.comparingLong(StoredQuote::id);
+    private static final Comparator<StoredQuote> BY_CREATED_AT =
+            Comparator.comparingLong(StoredQuote::createdAtMillis).thenComparingLong(StoredQuote::id);
+
+    // Shared instances of author, source and category, which repeat heavily
+    private final StringDictionary strings;
+    // Secondary index: quote name -> owning id. An entry here is what "claims" a name, whatever the shard.
+    private final Map<String, Long> nameIndex = new ConcurrentHashMap<>();
+    // See epoch()
+    private final AtomicLong epoch = new AtomicLong();
+    // The id the next created quote gets; only ever moves forward, until a clear
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final QuoteShard[] shards;
+    private final List<QuoteShard> shardList;
+    private final List<QuoteMutationListener> listeners = new CopyOnWriteArrayList<>();
+    // Writes of the calling thread's open batch, in order, to undo if the batch fails
+    private final ThreadLocal<List<Written>> batchWrites = new ThreadLocal<>();
+
+    /**
+     * A quote's state before and after one write, null where it didn't exist,
+     * and the mutation the listeners were given for it.
+     */
+    private record Written(QuoteMutation mutation, StoredQuote before, StoredQuote after) {
+
+        long id() {
+            return mutation.id();
+        }
+    }
+
+    /**
+     * A store with a single shard.
+     */
+    public QuoteStore() {
+        this(1);
+    }
+
+    /**
+     * A store with {@code shards} shards on the heap backend.
+     */
+    public QuoteStore(int shards) {
+        this(shards, "heap");
+    }
+
+    /**
+     * A store with {@code shards} shards on the given backend.
+     */
+    public QuoteStore(int shards, String backend) {
+        this(shards, backend, StringDictionary.DEFAULT_MAX_ENTRIES);
+    }
+
+    @Autowired
+    public QuoteStore(@Value("${tracker.store.shards:1}") int shards,
+                      @Value("${tracker.store.backend:heap}") String backend,
+                      @Value("${tracker.store.dictionary-max-entries:65536}") int dictionaryMaxEntries) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("tracker.store.shards must be at least 1, was " + shards);
+        }
+        this.shards = new QuoteShard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new QuoteShard(table(backend));
+        }
+        this.shardList = List.of(this.shards);
+        this.strings = new StringDictionary(dictionaryMaxEntries);
+    }
+
+    private static QuoteTable table(String backend) {
+        return switch (backend) {
+            case "heap" -> new QuoteTable.Heap();
+            case "off-heap" -> new OffHeapQuoteTable();
+            default -> throw new IllegalArgumentException(
+                    "tracker.store.backend must be heap or off-heap, was " + backend);
+        };
+    }
+
+    public void addListener(QuoteMutationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QuoteMutationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs a group of writes on the calling thread as one batch, letting
+     * listeners defer per-write work (such as waiting for an fsync) to the end.
+     * <p>
+     * The batch holds every lock of every shard while it writes, so other
+     * writers wait for it as a whole, and the name and full-text index upkeep
+     * of its writes is done together at the end, once per gram and term. Until
+     * then, searches may not find what the batch has written so far.
+     * <p>
+     * The batch's changes are visible before that work is done. If a
+     * listener's {@link QuoteMutationListener#afterBatch()} fails, every write
+     * of the batch is undone, newest first, and the failure is rethrown; a
+     * quote another write has changed since is left alone. Each undo is
+     * offered to the listeners first, so the write-ahead log records it: part
+     * of the batch may already be durable.
+     */
+    public void batch(Runnable writes) {
+        List<Written> written = new ArrayList<>();
+        // Listeners whose beforeBatch() ran, each owed its afterBatch() even if a later one refuses to start
+        List<QuoteMutationListener> started = new ArrayList<>(listeners.size());
+        RuntimeException failure = null;
+        try {
+            batchWrites.set(written);
+            for (QuoteMutationListener listener : listeners) {
+                listener.beforeBatch();
+                started.add(listener);
+            }
+            applyExclusively(writes);
+        } finally {
+            batchWrites.remove();
+            // Every listener gets to finish, even after one has failed
+            for (QuoteMutationListener listener : started) {
+                try {
+                    listener.afterBatch();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                rollBack(written, failure);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void applyExclusively(Runnable writes) {
+        for (QuoteShard shard : shards) {
+            shard.locks.lockAll();
+            shard.deferIndexes();
+        }
+        try {
+            writes.run();
+        } finally {
+            for (int i = shards.length - 1; i >= 0; i--) {
+                try {
+                    shards[i].flushIndexes();
+                } finally {
+                    shards[i].locks.unlockAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns once every write already offered to
+     * {@link QuoteMutationListener#beforeMutation} has been applied or given up,
+     * since each holds its quote's lock from the offer until then.
+     */
+    public void awaitWritesInFlight() {
+        for (QuoteShard shard : shards) {
+            shard.locks.awaitHolders();
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Bytes of quote records held outside the Java heap; 0 on the heap backend.
+     */
+    public long offHeapBytes() {
+        long sum = 0;
+        for (QuoteShard shard : shards) {
+            sum += shard.quotes.offHeapBytes();
+        }
+        return sum;
+    }
+
+    public Quote get(long id) {
+        StoredQuote stored = stored(id);
+        return stored == null ? null : stored.toQuote();
+    }
+
+    public boolean contains(long id) {
+        return shardFor(id).quotes.containsKey(id);
+    }
+
+    /**
+     * Current version of the quote with the given id, or 0 if there is none.
+     * Cheaper than {@link #get} when only the version is needed.
+     */
+    public long version(long id) {
+        StoredQuote stored = stored(id);
+        return stored == null ? 0 : stored.version();
+    }
+
+    /**
+     * The stored form of the quote with the given id, or null if there is none.
+     * Compare {@link StoredQuote#version() versions} to tell states apart: the
+     * off-heap backend returns a new instance on every call.
+     */
+    StoredQuote stored(long id) {
+        return shardFor(id).quotes.get(id);
+    }
+
+    /**
+     * Live view of the stored quotes with ids greater than {@code afterId}, in id order.
+     */
+    Collection<StoredQuote> storedAfter(long afterId) {
+        return merged(shard -> shard.quotes.valuesAfter(afterId));
+    }
+
+    /**
+     * Changes after every write. A value read before walking the store that is
+     * still current afterwards means the walk saw every change up to that point.
+     */
+    long generation() {
+        // Each shard's count only grows, so an unchanged sum means no shard moved
+        long sum = 0;
+        for (QuoteShard shard : shards) {
+            sum += shard.generation.get();
+        }
+        return sum;
+    }
+
+    /**
+     * Changes whenever a quote's creation time and version may come to stand
+     * for other content than they did before: when an update of a failed
+     * batch is undone, so the next update reuses its version, and when an
+     * overwriting {@link #replicate(Quote, boolean) replicate} puts other
+     * content under the same ones. Whatever tells quote states apart by
+     * creation time and version has to take this into account as well. Read
+     * it before the quote: it moves only once the write is in place.
+     */
+    long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Live, read-only view of all quotes in ascending id order.
+     */
+    public Collection<Quote> values() {
+        return view(merged(shard -> shard.quotes.valuesAfter(Long.MIN_VALUE)));
+    }
+
+    /**
+     * Returns up to {@code limit} quotes with ids greater than {@code afterId}, in id order.
+     */
+    public List<Quote> page(long afterId, int limit) {
+        return materialize(ShardMerge.merge(fanOut(shard -> shard.page(afterId, limit)), BY_ID, limit));
+    }
+
+    /**
+     * Live, read-only view of the quotes with ids greater than {@code afterId}, in id order.
+     */
+    public Collection<Quote> valuesAfter(long afterId) {
+        return view(storedAfter(afterId));
+    }
+
+    /**
+     * True if any quote has an id greater than {@code afterId}.
+     */
+    public boolean hasAfter(long afterId) {
+        for (QuoteShard shard : shards) {
+            if (shard.quotes.hasAfter(afterId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        long sum = 0;
+        for (QuoteShard shard : shards) {
+            sum += shard.count.sum();
+        }
+        return (int) sum;
+    }
+
+    /**
+     * Stores the given quote's fields under the next id, in the shard owning it.
+     * Returns CONFLICT if another quote already owns the name.
+     */
+    public WriteResult create(Quote quote) {
+        // The id is only drawn when the name is actually free, so conflicts don't burn ids
+        long[] assigned = {0};
+        nameIndex.computeIfAbsent(quote.getQuoteName(), name -> assigned[0] = nextId.getAndIncrement());
+        if (assigned[0] == 0) {
+            return WriteResult.of(Status.CONFLICT);
+        }
+        QuoteShard shard = shardFor(assigned[0]);
+
+        // createdAt is server-controlled; the client-sent value is ignored
+        StoredQuote toSave = StoredQuote.of(assigned[0], QuoteCodec.toEpochMillis(LocalDateTime.now()), quote, strings);
+        // Held until listeners are notified, so an update can't overtake the create
+        Lock lock = shard.locks.forKey(toSave.id());
+        lock.lock();
+        try {
+            QuoteMutation created = QuoteMutation.created(toSave);
+            try {
+                prepare(created);
+            } catch (RuntimeException e) {
+                nameIndex.remove(toSave.name(), toSave.id());
+                throw e;
+            }
+            shard.insert(toSave);
+            written(created, null, toSave);
+            notifyListeners(created);
+        } finally {
+            lock.unlock();
+        }
+        return WriteResult.ok(toSave.toQuote());
+    }
+
+    /**
+     * Replaces the client-editable fields of the quote with the given id by those of {@code update}.
+     * A rename claims the new name before releasing the old one.
+     */
+    public WriteResult update(long id, Quote update) {
+        return update(id, update, ANY_STATE);
+    }
+
+    /**
+     * Like {@link #update(long, Quote)}, but only if the quote's current state
+     * passes {@code precondition}; otherwise PRECONDITION_FAILED.
+     * Every successful update bumps the version by one.
+     */
+    WriteResult update(long id, Quote update, Predicate<StoredQuote> precondition) {
+        QuoteShard shard = shardFor(id);
+        Lock lock = shard.locks.forKey(id);
+        lock.lock();
+        try {
+            StoredQuote existing = shard.quotes.get(id);
+            if (existing == null) {
+                return WriteResult.of(Status.NOT_FOUND);
+            }
+            if (!precondition.test(existing)) {
+                return WriteResult.of(Status.PRECONDITION_FAILED);
+            }
+            String oldName = existing.name();
+            String newName = update.getQuoteName();
+            boolean renamed = !newName.equals(oldName);
+            if (renamed) {
+                Long owner = nameIndex.putIfAbsent(newName, id);
+                if (owner != null && owner != id) {
+                    return WriteResult.of(Status.CONFLICT);
+                }
+            }
+
+            // Keeps the original createdAt (ignores the client-sent value)
+            StoredQuote updated = existing.edited(update, strings);
+            QuoteMutation mutation = QuoteMutation.updated(updated);
+            try {
+                prepare(mutation);
+            } catch (RuntimeException e) {
+                if (renamed) {
+                    nameIndex.remove(newName, id);
+                }
+                throw e;
+            }
+            shard.replace(existing, updated);
+            if (renamed) {
+                nameIndex.remove(oldName, id);
+            }
+            written(mutation, existing, updated);
+            notifyListeners(mutation);
+            return WriteResult.ok(updated.toQuote());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the quote with the given id and releases its name.
+     */
+    public boolean delete(long id) {
+        return delete(id, ANY_STATE) == Status.OK;
+    }
+
+    /**
+     * Like {@link #delete(long)}, but only if the quote's current state passes {@code precondition}.
+     */
+    Status delete(long id, Predicate<StoredQuote> precondition) {
+        QuoteShard shard = shardFor(id);
+        Lock lock = shard.locks.forKey(id);
+        lock.lock();
+        try {
+            StoredQuote existing = shard.quotes.get(id);
+            if (existing == null) {
+                return Status.NOT_FOUND;
+            }
+            if (!precondition.test(existing)) {
+                return Status.PRECONDITION_FAILED;
+            }
+            QuoteMutation deleted = QuoteMutation.deleted(id);
+            prepare(deleted);
+            shard.remove(existing);
+            nameIndex.remove(existing.name(), id);
+            written(deleted, existing, null);
+            notifyListeners(deleted);
+            return Status.OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a quote's full state as shipped by a replication leader: stores
+     * it under its own id, version and createdAt, replacing an older version.
+     * Returns false, changing nothing, if this version or a newer one is
+     * already here, so replaying a change twice is harmless.
+     * <p>
+     * The leader has already enforced name uniqueness, so names are taken
+     * over rather than checked: a follower may apply one quote's rename just
+     * before the rename that freed the name.
+     */
+    public boolean replicate(Quote quote) {
+        return replicate(quote, false);
+    }
+
+    /**
+     * Like {@link #replicate(Quote)}, but with {@code overwrite} the shipped
+     * state replaces whatever is here, whatever its version. Used when copying
+     * a leader's snapshot, which is the truth even if the leader restarted and
+     * counts versions from scratch.
+     */
+    boolean replicate(Quote quote, boolean overwrite) {
+        long id = quote.getId();
+        QuoteShard shard = shardFor(id);
+        StoredQuote replicated = StoredQuote.restored(quote, strings);
+        Lock lock = shard.locks.forKey(id);
+        lock.lock();
+        try {
+            StoredQuote existing = shard.quotes.get(id);
+            if (existing != null && !overwrite && existing.version() >= replicated.version()) {
+                return false;
+            }
+            QuoteMutation mutation = existing == null ? QuoteMutation.created(replicated) : QuoteMutation.updated(replicated);
+            prepare(mutation);
+            nameIndex.put(replicated.name(), id);
+            if (existing == null) {
+                shard.insert(replicated);
+                // A follower promoted to leader must never hand out a replicated id
+                nextId.accumulateAndGet(id + 1, Math::max);
+            } else {
+                shard.replace(existing, replicated);
+                if (!existing.name().equals(replicated.name())) {
+                    nameIndex.remove(existing.name(), id);
+                }
+                if (existing.version() == replicated.version()
+                        && existing.createdAtMillis() == replicated.createdAtMillis()
+                        && !existing.sameState(replicated)) {
+                    epoch.incrementAndGet();
+                }
+            }
+            written(mutation, existing, replicated);
+            notifyListeners(mutation);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the id owning the given name, or null if the name is free.
+     */
+    public Long idForName(String name) {
+        return nameIndex.get(name);
+    }
+
+    /**
+     * Lazily iterates the quotes whose name contains {@code query}, ignoring
+     * case, in id order. Only the matching ids are collected up front; each
+     * quote is materialized as it is reached, and ones deleted meanwhile are skipped.
+     */
+    public Iterable<Quote> iterateByName(String query) {
+        if (query.isEmpty()) {
+            return values();
+        }
+        List<List<Long>> ids = fanOut(shard -> shard.nameSearch.search(query));
+        return () -> new Iterator<>() {
+            private final Iterator<Long> remaining = ShardMerge.iterator(
+                    ids.stream().map(List::iterator).toList(), Comparator.<Long>naturalOrder());
+            private Quote next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Quote next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Quote current = next;
+                next = advance();
+                return current;
+            }
+
+            private Quote advance() {
+                while (remaining.hasNext()) {
+                    Quote quote = get(remaining.next());
+                    if (quote != null) {
+                        return quote;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns quotes whose name contains {@code query}, ignoring case, in id order.
+     */
+    public List<Quote> searchByName(String query) {
+        if (query.isEmpty()) {
+            return new ArrayList<>(values());
+        }
+        return materialize(ShardMerge.merge(fanOut(shard -> shard.nameMatches(query)), BY_ID, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns quotes matching any keyword of {@code query} in their description,
+     * author, source or category, best BM25 match first.
+     * <p>
+     * Every shard scores its matches with the statistics of the whole store,
+     * gathered first, so scores agree across shards; the best hits of each are
+     * then merged.
+     */
+    public List<Quote> searchFullText(String query, int limit, int offset) {
+        Set<String> terms = FullTextIndex.queryTerms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        FullTextIndex.Corpus corpus = fanOut(shard -> shard.fullText.corpus(terms)).stream()
+                .reduce(FullTextIndex.Corpus::plus)
+                .orElseThrow();
+        int keep = offset + limit;
+        List<FullTextIndex.Hit> ranked = ShardMerge.merge(
+                fanOut(shard -> shard.fullText.top(terms, corpus, keep)), FullTextIndex.RANK, keep);
+        List<Quote> results = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            Quote quote = get(ranked.get(i).id());
+            if (quote != null) {
+                results.add(quote);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Posting entries examined by name searches so far.
+     */
+    long nameSearchScanned() {
+        long sum = 0;
+        for (QuoteShard shard : shards) {
+            sum += shard.nameSearch.scanned();
+        }
+        return sum;
+    }
+
+    /**
+     * Postings examined by full-text searches so far.
+     */
+    long fullTextScanned() {
+        long sum = 0;
+        for (QuoteShard shard : shards) {
+            sum += shard.fullText.scanned();
+        }
+        return sum;
+    }
+
+    /**
+     * Number of quotes matching {@code filter}, counted on the index bitmaps
+     * without touching a single quote.
+     */
+    public long count(Filter filter) {
+        if (filter.isEmpty()) {
+            return size();
+        }
+        return fanOut(shard -> shard.count(filter)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Up to {@code limit} quotes matching {@code filter} with ids greater than
+     * {@code afterId}, in id order. Candidates come from the index bitmaps and
+     * are checked against the stored quote, so a write racing the query can't
+     * slip in a quote that no longer matches.
+     */
+    public List<Quote> query(Filter filter, long afterId, int limit) {
+        if (filter.isEmpty()) {
+            return page(afterId, limit);
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        return materialize(ShardMerge.merge(fanOut(shard -> shard.query(filter, afterId, limit)), BY_ID, limit));
+    }
+
+    /**
+     * Up to {@code limit} quotes created at or after {@code from} and before
+     * {@code to}, oldest first, resuming after {@code after} if it is given.
+     * A null bound leaves that end of the range open.
+     */
+    public TimePage createdBetween(LocalDateTime from, LocalDateTime to, TimeCursor after, int limit) {
+        long fromMillis = epochMillis(from, Long.MIN_VALUE);
+        long toMillis = epochMillis(to, Long.MAX_VALUE);
+        return timePage(shard -> shard.timeSlice(shard.createdAt.range(fromMillis, toMillis, after), limit),
+                BY_CREATED_AT, limit);
+    }
+
+    /**
+     * Up to {@code limit} of the most recently created quotes, newest first,
+     * resuming after {@code before} if it is given.
+     */
+    public TimePage newest(TimeCursor before, int limit) {
+        return timePage(shard -> shard.timeSlice(shard.createdAt.newest(before), limit),
+                BY_CREATED_AT.reversed(), limit);
+    }
+
+    // Times too far out for epoch millis are clamped; no quote is created that far away anyway
+    private static long epochMillis(LocalDateTime time, long open) {
+        if (time == null) {
+            return open;
+        }
+        try {
+            return QuoteCodec.toEpochMillis(time);
+        } catch (ArithmeticException e) {
+            return time.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private TimePage timePage(Function<QuoteShard, QuoteShard.Slice> slice, Comparator<StoredQuote> order, int limit) {
+        List<QuoteShard.Slice> slices = fanOut(slice);
+        boolean more = false;
+        int found = 0;
+        for (QuoteShard.Slice s : slices) {
+            more |= s.more();
+            found += s.quotes().size();
+        }
+        List<Quote> page = materialize(ShardMerge.merge(
+                slices.stream().map(QuoteShard.Slice::quotes).toList(), order, limit));
+        // Another page if any shard stopped early or the merge left some out
+        TimeCursor next = (more || found > page.size()) && !page.isEmpty()
+                ? TimeCursor.of(page.get(page.size() - 1)) : null;
+        return new TimePage(page, next);
+    }
+
+    /**
+     * Counts per category, author, source, completed flag and creation day.
+     * <p>
+     * Every count is kept up to date by the writes themselves, inside the
+     * quote's lock, so this takes O(number of groups) and never walks the
+     * quotes. A write moves a quote between groups by adjusting both counts,
+     * so they never drift; stats read while writes are in flight may just not
+     * have all of them yet, like any other read. Shards are counted in
+     * parallel and their counts summed.
+     */
+    public Stats stats() {
+        List<Stats> perShard = fanOut(shard -> new Stats(shard.count.sum(),
+                shard.attributes.completedCount(), shard.attributes.openCount(),
+                shard.attributes.categoryCounts(), shard.attributes.authorCounts(),
+                shard.attributes.sourceCounts(), shard.createdAt.countsPerDay()));
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+        Stats total = new Stats(0, 0, 0, new TreeMap<>(), new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+        for (Stats shard : perShard) {
+            total = new Stats(total.total() + shard.total(), total.completed() + shard.completed(),
+                    total.notCompleted() + shard.notCompleted(),
+                    sum(total.categories(), shard.categories()), sum(total.authors(), shard.authors()),
+                    sum(total.sources(), shard.sources()), sum(total.createdPerDay(), shard.createdPerDay()));
+        }
+        return total;
+    }
+
+    private static <K> SortedMap<K, Long> sum(SortedMap<K, Long> into, Map<K, Long> counts) {
+        counts.forEach((key, count) -> into.merge(key, count, Long::sum));
+        return into;
+    }
+
+    /**
+     * The id the next created quote will get.
+     */
+    public long nextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Moves id allocation to at least {@code atLeast}, as a leader's snapshot
+     * asks of a follower: ids the leader handed out and deleted since are
+     * not in the copy, but must not be handed out again after a promotion.
+     */
+    void advanceNextId(long atLeast) {
+        nextId.accumulateAndGet(atLeast, Math::max);
+    }
+
+    /**
+     * Bulk-loads recovered quotes into an empty store, rebuilding every index,
+     * and moves id allocation to at least {@code nextId}.
+     * <p>
+     * Recovered quotes have distinct ids and names and every structure here is
+     * concurrent, so they are inserted in parallel, each into the shard owning its id.
+     * <p>
+     * They are not new changes, so listeners don't get a mutation for each: like
+     * after {@link #clear()}, they are told through
+     * {@link QuoteMutationListener#onClear()} that the contents were replaced.
+     */
+    public void load(Collection<Quote> recovered, long nextId) {
+        for (QuoteShard shard : shards) {
+            if (!shard.quotes.isEmpty()) {
+                throw new IllegalStateException("load() requires an empty store");
+            }
+        }
+        long maxId = recovered.parallelStream()
+                .mapToLong(this::restore)
+                .max()
+                .orElse(0);
+        this.nextId.accumulateAndGet(Math.max(nextId, maxId + 1), Math::max);
+        notifyCleared();
+    }
+
+    public void clear() {
+        for (QuoteShard shard : shards) {
+            shard.clear();
+        }
+        nextId.set(1);
+        nameIndex.clear();
+        strings.clear();
+        notifyCleared();
+    }
+
+    private long restore(Quote recovered) {
+        StoredQuote quote = StoredQuote.restored(recovered, strings);
+        shardFor(quote.id()).insert(quote);
+        nameIndex.put(quote.name(), quote.id());
+        return quote.id();
+    }
+
+    private QuoteShard shardFor(long id) {
+        return shards.length == 1 ? shards[0] : shards[QuoteShard.owner(id, shards.length)];
+    }
+
+    /**
+     * Runs {@code task} on every shard, in parallel on the common fork-join
+     * pool when there are several, and returns the results in shard order.
+     */
+    private <T> List<T> fanOut(Function<QuoteShard, T> task) {
+        if (shards.length == 1) {
+            return List.of(task.apply(shards[0]));
+        }
+        return shardList.parallelStream().map(task).toList();
+    }
+
+    /**
+     * Live view merging per-shard collections that are each in id order.
+     */
+    private Collection<StoredQuote> merged(Function<QuoteShard, Collection<StoredQuote>> perShard) {
+        if (shards.length == 1) {
+            return Collections.unmodifiableCollection(perShard.apply(shards[0]));
+        }
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<StoredQuote> iterator() {
+                List<Iterator<StoredQuote>> sources = new ArrayList<>(shards.length);
+                for (QuoteShard shard : shards) {
+                    sources.add(perShard.apply(shard).iterator());
+                }
+                return ShardMerge.iterator(sources, BY_ID);
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (QuoteShard shard : shards) {
+                    size += perShard.apply(shard).size();
+                }
+                return size;
+            }
+
+            @Override
+            public boolean isEmpty() {
+                for (QuoteShard shard : shards) {
+                    if (!perShard.apply(shard).isEmpty()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    private static List<Quote> materialize(List<StoredQuote> stored) {
+        List<Quote> quotes = new ArrayList<>(stored.size());
+        for (StoredQuote quote : stored) {
+            quotes.add(quote.toQuote());
+        }
+        return quotes;
+    }
+
+    /**
+     * Read-only view that materializes each stored quote as it is iterated.
+     */
+    private static Collection<Quote> view(Collection<StoredQuote> stored) {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Quote> iterator() {
+                Iterator<StoredQuote> it = stored.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Quote next() {
+                        return it.next().toQuote();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return stored.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return stored.isEmpty();
+            }
+        };
+    }
+
+    /**
+     * Offers a write to every listener before it is applied; any of them may veto it by throwing.
+     */
+    private void prepare(QuoteMutation mutation) {
+        for (QuoteMutationListener listener : listeners) {
+            listener.beforeMutation(mutation);
+        }
+    }
+
+    /**
+     * Reports an applied write. The change stands whatever a listener does,
+     * so one failing listener must not keep the others from hearing of it.
+     */
+    private void notifyListeners(QuoteMutation mutation) {
+        for (QuoteMutationListener listener : listeners) {
+            try {
+                listener.onMutation(mutation);
+            } catch (RuntimeException e) {
+                log.error("{} failed on {} of quote {}", listener.getClass().getSimpleName(),
+                        mutation.type(), mutation.id(), e);
+            }
+        }
+    }
+
+    private void notifyCleared() {
+        for (QuoteMutationListener listener : listeners) {
+            try {
+                listener.onClear();
+            } catch (RuntimeException e) {
+                log.error("{} failed on clear", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    private void written(QuoteMutation mutation, StoredQuote before, StoredQuote after) {
+        List<Written> batch = batchWrites.get();
+        if (batch != null) {
+            batch.add(new Written(mutation, before, after));
+        }
+    }
+
+    /**
+     * Undoes every write of a failed batch, newest first. A write whose undo
+     * a listener refuses stays, and the refusal is added to {@code failure}.
+     */
+    private void rollBack(List<Written> written, RuntimeException failure) {
+        for (int i = written.size() - 1; i >= 0; i--) {
+            try {
+                undo(written.get(i));
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        for (QuoteMutationListener listener : listeners) {
+            try {
+                listener.afterRollback();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Puts a quote back the way it was before one write of a failed batch,
+     * unless it has changed since or its old name has been taken meanwhile.
+     * The undo is offered to {@link QuoteMutationListener#beforeUndo} and then
+     * published like any write; if a listener refuses it, it throws and the
+     * write stays.
+     */
+    private void undo(Written write) {
+        QuoteShard shard = shardFor(write.id());
+        Lock lock = shard.locks.forKey(write.id());
+        lock.lock();
+        try {
+            StoredQuote current = shard.quotes.get(write.id());
+            boolean unchanged = write.after() == null
+                    ? current == null
+                    : current != null && current.version() == write.after().version();
+            if (!unchanged) {
+                return;
+            }
+            StoredQuote before = write.before();
+            if (before == null) {
+                QuoteMutation deleted = QuoteMutation.deleted(write.id());
+                prepareUndo(write.mutation(), deleted);
+                shard.remove(current);
+                nameIndex.remove(current.name(), write.id());
+                notifyListeners(deleted);
+                return;
+            }
+            boolean renamed = current == null || !current.name().equals(before.name());
+            if (renamed) {
+                Long owner = nameIndex.putIfAbsent(before.name(), write.id());
+                if (owner != null && owner != write.id()) {
+                    return;
+                }
+            }
+            QuoteMutation restored = current == null ? QuoteMutation.created(before) : QuoteMutation.updated(before);
+            try {
+                prepareUndo(write.mutation(), restored);
+            } catch (RuntimeException e) {
+                if (renamed) {
+                    nameIndex.remove(before.name(), write.id());
+                }
+                throw e;
+            }
+            if (current == null) {
+                shard.insert(before);
+            } else {
+                shard.replace(current, before);
+                if (renamed) {
+                    nameIndex.remove(current.name(), write.id());
+                }
+                // The next update hands out the undone version again
+                epoch.incrementAndGet();
+            }
+            notifyListeners(restored);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void prepareUndo(QuoteMutation undone, QuoteMutation undo) {
+        for (QuoteMutationListener listener : listeners) {
+            listener.beforeUndo(undone, undo);
+        }
+    }
+}
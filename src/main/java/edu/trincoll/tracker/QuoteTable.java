@@ -0,0 +1,91 @@
+package edu.trincoll.tracker;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Where a {@link QuoteShard} keeps its quotes, by id.
+ * <p>
+ * Writes to an id are serialized by the store's lock for that id; reads may
+ * run alongside any write and see a quote either before or after it. Views
+ * are live and weakly consistent, like those of the concurrent collections.
+ */
+interface QuoteTable {
+
+    StoredQuote get(long id);
+
+    boolean containsKey(long id);
+
+    void put(StoredQuote quote);
+
+    void remove(long id);
+
+    /**
+     * Live view of the quotes with ids greater than {@code afterId}, in id order.
+     */
+    Collection<StoredQuote> valuesAfter(long afterId);
+
+    boolean hasAfter(long afterId);
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * Bytes held outside the Java heap; 0 for tables that keep everything on it.
+     */
+    default long offHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * The default table: {@link StoredQuote} objects in a skip list keyed by
+     * id, so iteration is always in id order and readers never lock.
+     */
+    final class Heap implements QuoteTable {
+
+        private final ConcurrentNavigableMap<Long, StoredQuote> quotes = new ConcurrentSkipListMap<>();
+
+        @Override
+        public StoredQuote get(long id) {
+            return quotes.get(id);
+        }
+
+        @Override
+        public boolean containsKey(long id) {
+            return quotes.containsKey(id);
+        }
+
+        @Override
+        public void put(StoredQuote quote) {
+            quotes.put(quote.id(), quote);
+        }
+
+        @Override
+        public void remove(long id) {
+            quotes.remove(id);
+        }
+
+        @Override
+        public Collection<StoredQuote> valuesAfter(long afterId) {
+            return Collections.unmodifiableCollection(quotes.tailMap(afterId, false).values());
+        }
+
+        @Override
+        public boolean hasAfter(long afterId) {
+            return quotes.higherKey(afterId) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return quotes.isEmpty();
+        }
+
+        @Override
+        public void clear() {
+            quotes.clear();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package edu.trincoll.tracker;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Backpressured variant of {@link QuoteController}, served next to it under
+ * {@code /api/reactive/items}.
+ * <p>
+ * Apart from the streams, this is a thin second route over the servlet (MVC)
+ * controller: every method hands its arguments, headers included, to the
+ * {@link QuoteController} method of the same name. Paging links are built
+ * from the request path, so they point back under {@code /api/reactive/items}.
+ * <p>
+ * The {@code /stream} endpoints return newline-delimited JSON from a
+ * {@link Flux} read straight off the store: Spring writes one quote at a time
+ * and only asks for the next one once the previous write went out, so a slow
+ * client holds back the iteration instead of piling up a list in memory.
+ * <p>
+ * Every other request answers exactly what {@link QuoteController} would, so
+ * statuses, headers and the JSON contract (including the
+ * {@code name}/{@code description} mapping) are shared. Those calls are
+ * in-memory store operations that never wait on I/O, so they run right on
+ * the request thread: wrapping them in a {@code Mono} would only add an async
+ * dispatch, and moving them to a scheduler only a thread hop.
+ */
+@RestController
+@RequestMapping(value = "/api/reactive/items", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveQuoteController {
+
+    private final QuoteController controller;
+    private final QuoteStore store;
+
+    public ReactiveQuoteController(QuoteController controller, QuoteStore store) {
+        this.controller = controller;
+        this.store = store;
+    }
+
+    /**
+     * GET /api/reactive/items/stream?after=id
+     * Streams all items (or those after the given id) as NDJSON with backpressure
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Quote> streamAll(@RequestParam(value = "after", required = false) Long after) {
+        return Flux.defer(() -> Flux.fromIterable(store.valuesAfter(after == null ? 0 : after)));
+    }
+
+    /**
+     * GET /api/reactive/items?after=id&limit=n
+     * Same as {@link QuoteController#getAll}, served from the cached JSON, or in CBOR or Smile on request
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, QuoteFormat.SMILE_VALUE})
+    public ResponseEntity<byte[]> getAll(@RequestParam(value = "after", required = false) Long after,
+                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return controller.getAll(after, limit, accept);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> getById(@PathVariable Long id,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return controller.getById(id, ifNoneMatch);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Quote> create(@RequestBody Quote quote) {
+        return controller.create(quote);
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Quote> update(@PathVariable Long id, @RequestBody Quote update,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return controller.update(id, update, ifMatch);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable Long id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return controller.delete(id, ifMatch);
+    }
+
+    /**
+     * GET /api/reactive/items/search/stream?name=value
+     * Streams matching items in id order as NDJSON with backpressure
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Quote> streamSearchByName(@RequestParam("name") String name) {
+        return Flux.defer(() -> Flux.fromIterable(store.iterateByName(name)));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Quote>> searchByName(@RequestParam("name") String name) {
+        return controller.searchByName(name);
+    }
+
+    /**
+     * Ranked results are bounded by {@code limit}, so they are returned as one list
+     */
+    @GetMapping("/search/text")
+    public ResponseEntity<List<Quote>> searchFullText(@RequestParam("q") String q,
+                                                      @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                      @RequestParam(value = "offset", defaultValue = "0") int offset) {
+        return controller.searchFullText(q, limit, offset);
+    }
+
+    @GetMapping("/query")
+    public ResponseEntity<QuoteController.QueryResult> query(@RequestParam(value = "author", required = false) String author,
+                                                             @RequestParam(value = "source", required = false) String source,
+                                                             @RequestParam(value = "category", required = false) String category,
+                                                             @RequestParam(value = "completed", required = false) Boolean completed,
+                                                             @RequestParam(value = "after", required = false) Long after,
+                                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        return controller.query(author, source, category, completed, after, limit);
+    }
+
+    @GetMapping("/created")
+    public ResponseEntity<List<Quote>> createdBetween(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return controller.createdBetween(from, to, cursor, limit);
+    }
+
+    @GetMapping("/recent")
+    public ResponseEntity<List<Quote>> recent(@RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return controller.recent(cursor, limit);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<QuoteStore.Stats> stats() {
+        return controller.stats();
+    }
+}
@@ -0,0 +1,75 @@
+package edu.trincoll.tracker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * K-way merges of per-shard results that are each already sorted.
+ * <p>
+ * A heap holds the head of every source, so taking the next result costs
+ * O(log k) for k shards and only as many elements are read as are returned.
+ */
+final class ShardMerge {
+
+    private ShardMerge() {
+    }
+
+    /**
+     * The first {@code limit} elements of the merged lists, in {@code order}.
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> order, int limit) {
+        List<Iterator<T>> sources = new ArrayList<>(sorted.size());
+        int total = 0;
+        for (List<T> list : sorted) {
+            sources.add(list.iterator());
+            total += list.size();
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        Iterator<T> it = iterator(sources, order);
+        while (merged.size() < limit && it.hasNext()) {
+            merged.add(it.next());
+        }
+        return merged;
+    }
+
+    /**
+     * Lazily merges the sources in {@code order}; each source is advanced only
+     * when its current head has been returned.
+     */
+    static <T> Iterator<T> iterator(List<Iterator<T>> sources, Comparator<? super T> order) {
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        record Head<T>(T value, Iterator<T> source) {
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> order.compare(a.value(), b.value()));
+        for (Iterator<T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.source().hasNext()) {
+                    heads.add(new Head<>(head.source().next(), head.source()));
+                }
+                return head.value();
+            }
+        };
+    }
+}
@@ -0,0 +1,145 @@
+package edu.trincoll.tracker;
+
+import java.util.Objects;
+
+/**
+ * Immutable, compact form in which {@link QuoteStore} keeps a quote.
+ * <p>
+ * Compared with a {@link Quote} it keeps the id and createdAt as primitive
+ * longs (epoch millis, see {@link QuoteCodec}) instead of a boxed {@code Long}
+ * and a {@code LocalDateTime} with its date and time parts, packs the flags
+ * into one byte, and holds author, source and category as shared instances
+ * from a {@link StringDictionary}. That is roughly half the retained size
+ * of a deserialized {@code Quote} for typical data.
+ * <p>
+ * Instances are never modified; an update swaps in a new one, so readers
+ * always see a complete quote. {@link #toQuote()} builds the API object.
+ */
+final class StoredQuote {
+
+    private static final byte FLAG_COMPLETED = 1;
+
+    private final long id;
+    private final long version;
+    private final long createdAtMillis;
+    private final String name;
+    private final String content;
+    private final String author;
+    private final String source;
+    private final String category;
+    private final byte flags;
+
+    private StoredQuote(long id, long version, long createdAtMillis, String name, String content,
+                        String author, String source, String category, byte flags) {
+        this.id = id;
+        this.version = version;
+        this.createdAtMillis = createdAtMillis;
+        this.name = name;
+        this.content = content;
+        this.author = author;
+        this.source = source;
+        this.category = category;
+        this.flags = flags;
+    }
+
+    /**
+     * Stores the client-editable fields of {@code quote} as the first version of a new quote.
+     */
+    static StoredQuote of(long id, long createdAtMillis, Quote quote, StringDictionary strings) {
+        return of(id, 1, createdAtMillis, quote, strings);
+    }
+
+    private static StoredQuote of(long id, long version, long createdAtMillis, Quote quote, StringDictionary strings) {
+        return new StoredQuote(id, version, createdAtMillis, quote.getQuoteName(), quote.getQuoteContent(),
+                strings.canonical(quote.getAuthor()), strings.canonical(quote.getSource()),
+                strings.canonical(quote.getCategory()), quote.isCompleted() ? FLAG_COMPLETED : 0);
+    }
+
+    /**
+     * Stores a complete quote as it was persisted, keeping its own id, version and createdAt.
+     */
+    static StoredQuote restored(Quote quote, StringDictionary strings) {
+        long version = quote.getVersion() == null ? 1 : quote.getVersion();
+        return of(quote.getId(), version, QuoteCodec.toEpochMillis(quote.getCreatedAt()), quote, strings);
+    }
+
+    /**
+     * A quote read back from a {@link QuoteCodec} record, such as one kept off-heap.
+     */
+    static StoredQuote decoded(long id, long version, long createdAtMillis, String name, String content,
+                               String author, String source, String category, boolean completed) {
+        return new StoredQuote(id, version, createdAtMillis, name, content, author, source, category,
+                completed ? FLAG_COMPLETED : 0);
+    }
+
+    /**
+     * The next version of this quote, with its client-editable fields replaced by those of {@code update}.
+     */
+    StoredQuote edited(Quote update, StringDictionary strings) {
+        return of(id, version + 1, createdAtMillis, update, strings);
+    }
+
+    long id() {
+        return id;
+    }
+
+    long version() {
+        return version;
+    }
+
+    long createdAtMillis() {
+        return createdAtMillis;
+    }
+
+    String name() {
+        return name;
+    }
+
+    String content() {
+        return content;
+    }
+
+    String author() {
+        return author;
+    }
+
+    String source() {
+        return source;
+    }
+
+    String category() {
+        return category;
+    }
+
+    boolean completed() {
+        return (flags & FLAG_COMPLETED) != 0;
+    }
+
+    /**
+     * Whether {@code other} holds the same fields as this one, compared by
+     * value, so that two decoded copies of one state are alike.
+     */
+    boolean sameState(StoredQuote other) {
+        return id == other.id && version == other.version && createdAtMillis == other.createdAtMillis
+                && flags == other.flags && name.equals(other.name) && Objects.equals(content, other.content)
+                && Objects.equals(author, other.author) && Objects.equals(source, other.source)
+                && Objects.equals(category, other.category);
+    }
+
+    /**
+     * A fresh API object with this quote's state; callers may keep or modify it.
+     */
+    Quote toQuote() {
+        Quote quote = new Quote();
+        quote.setId(id);
+        quote.setVersion(version);
+        quote.setQuoteName(name);
+        quote.setQuoteContent(content);
+        quote.setAuthor(author);
+        quote.setSource(source);
+        quote.setCategory(category);
+        quote.setCreatedAt(QuoteCodec.fromEpochMillis(createdAtMillis));
+        quote.setCompleted(completed());
+        return quote;
+    }
+}
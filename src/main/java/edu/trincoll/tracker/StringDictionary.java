@@ -0,0 +1,58 @@
+package edu.trincoll.tracker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of repeated strings, so that equal authors, sources and
+ * categories share one {@code String} instead of each quote holding its own.
+ * <p>
+ * Meant for low-cardinality fields only: entries are never evicted, so the
+ * dictionary stops taking new strings once it holds {@code maxEntries}, and
+ * values first seen after that are stored as they came. A field with a few
+ * thousand distinct values fits many times over; one that turns out to be
+ * unique per quote costs at most the cap instead of a second copy of itself.
+ */
+final class StringDictionary {
+
+    static final int DEFAULT_MAX_ENTRIES = 65_536;
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    StringDictionary() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    StringDictionary(int maxEntries) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("tracker.store.dictionary-max-entries must not be negative, was "
+                    + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = strings.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        // Racing adders may overshoot the cap by a few entries, which is harmless
+        if (strings.size() >= maxEntries) {
+            return value;
+        }
+        existing = strings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    int size() {
+        return strings.size();
+    }
+
+    void clear() {
+        strings.clear();
+    }
+}
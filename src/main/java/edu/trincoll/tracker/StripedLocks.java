@@ -0,0 +1,65 @@
+package edu.trincoll.tracker;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed pool of locks shared by key hash, so writers to the same key are
+ * serialized while writers to different keys rarely contend, without
+ * allocating a lock per key.
+ * <p>
+ * These are {@link ReentrantLock}s rather than monitors so that a virtual
+ * thread waiting inside one (for example on a WAL fsync) parks instead of
+ * pinning its carrier thread.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * @param stripes number of locks, rounded up to a power of two
+     */
+    StripedLocks(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * The lock guarding {@code key}.
+     */
+    ReentrantLock forKey(long key) {
+        // Spread the bits so sequential ids still land on different stripes
+        long h = key * 0x9E3779B97F4A7C15L;
+        return locks[(int) (h >>> 32) & mask];
+    }
+
+    /**
+     * Takes every lock, always in the same order, so two threads doing this can't deadlock.
+     */
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    /**
+     * Takes and releases every lock in turn, so any writer holding one when
+     * this is called has let go of it by the time this returns.
+     */
+    void awaitHolders() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+            lock.unlock();
+        }
+    }
+}
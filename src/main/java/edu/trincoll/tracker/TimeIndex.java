@@ -0,0 +1,88 @@
+package edu.trincoll.tracker;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ordered index of quotes by creation time, for range and newest-first queries.
+ * <p>
+ * Entries are (createdAt, id) positions in a skip list, ties broken by id, so
+ * finding where a query starts is O(log n) and every further result is just the
+ * next node: O(log n + k) whatever the store size. createdAt never changes
+ * after a quote is created, so only creates and deletes touch the index.
+ * <p>
+ * It also counts quotes per creation day (UTC), adjusted on every create and
+ * delete, so daily counts take O(number of days) rather than a walk.
+ */
+class TimeIndex {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final ConcurrentSkipListSet<QuoteStore.TimeCursor> positions = new ConcurrentSkipListSet<>();
+    // Epoch day -> quotes created that day
+    private final Map<Long, LongAdder> perDay = new ConcurrentHashMap<>();
+
+    void add(long createdAtMillis, long id) {
+        if (positions.add(new QuoteStore.TimeCursor(createdAtMillis, id))) {
+            perDay.computeIfAbsent(Math.floorDiv(createdAtMillis, MILLIS_PER_DAY), day -> new LongAdder()).increment();
+        }
+    }
+
+    void remove(long createdAtMillis, long id) {
+        if (positions.remove(new QuoteStore.TimeCursor(createdAtMillis, id))) {
+            LongAdder count = perDay.get(Math.floorDiv(createdAtMillis, MILLIS_PER_DAY));
+            // Null only if clear() ran meanwhile
+            if (count != null) {
+                count.decrement();
+            }
+        }
+    }
+
+    void clear() {
+        positions.clear();
+        perDay.clear();
+    }
+
+    /**
+     * Quotes per creation day, oldest day first; days without quotes are left out.
+     */
+    SortedMap<LocalDate, Long> countsPerDay() {
+        SortedMap<LocalDate, Long> counts = new TreeMap<>();
+        perDay.forEach((day, count) -> {
+            long sum = count.sum();
+            if (sum > 0) {
+                counts.put(LocalDate.ofEpochDay(day), sum);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Positions created in {@code [fromMillis, toMillis)}, oldest first,
+     * starting after {@code after} if it is given.
+     */
+    NavigableSet<QuoteStore.TimeCursor> range(long fromMillis, long toMillis, QuoteStore.TimeCursor after) {
+        QuoteStore.TimeCursor from = new QuoteStore.TimeCursor(fromMillis, Long.MIN_VALUE);
+        QuoteStore.TimeCursor to = new QuoteStore.TimeCursor(toMillis, Long.MIN_VALUE);
+        boolean resume = after != null && after.compareTo(from) >= 0;
+        QuoteStore.TimeCursor start = resume ? after : from;
+        if (start.compareTo(to) >= 0) {
+            return Collections.emptyNavigableSet();
+        }
+        return positions.subSet(start, !resume, to, false);
+    }
+
+    /**
+     * All positions, newest first, starting after {@code before} if it is given.
+     */
+    NavigableSet<QuoteStore.TimeCursor> newest(QuoteStore.TimeCursor before) {
+        return before == null ? positions.descendingSet() : positions.headSet(before, false).descendingSet();
+    }
+}
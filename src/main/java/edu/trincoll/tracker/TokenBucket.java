@@ -0,0 +1,58 @@
+package edu.trincoll.tracker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket: up to {@code burst} requests at once, refilled at
+ * {@code ratePerSecond} tokens a second.
+ * <p>
+ * Tokens are refilled lazily from the time elapsed since the last take, so
+ * an idle bucket costs nothing. Times are passed in, in nanoseconds, which
+ * keeps the bucket easy to test.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    // Guarded by this
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double ratePerSecond, int burst, long now) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Need a positive rate and burst, was " + ratePerSecond + " and " + burst);
+        }
+        this.capacity = burst;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Takes one token. Returns 0 if there was one, otherwise the nanoseconds
+     * until there will be.
+     */
+    synchronized long tryTake(long now) {
+        refill(now);
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+
+    /**
+     * True if the bucket has refilled completely, so forgetting it changes nothing.
+     */
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package edu.trincoll.tracker;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed log of quote mutations with group commit.
+ * <p>
+ * Each record is framed as [payload length][CRC32 of payload][payload]. A single
+ * writer thread drains everything queued so far (up to {@code maxBatch}), writes it
+ * with one channel write and fsyncs once, so concurrent writers share the cost of
+ * each fsync instead of paying for one each.
+ * <p>
+ * The log is split into numbered segment files. {@link #rotate()} starts a new
+ * segment, which lets a snapshot supersede every segment up to the rotated one.
+ * New segments are made durable by forcing the directory too.
+ * <p>
+ * If a write or fsync fails, the records of that commit are failed and the
+ * segment is truncated back to the end of the last good commit, so no torn
+ * record can hide later ones from {@link #replay}. Logging then continues in
+ * a fresh segment. If even that fails, the log refuses every further append
+ * rather than risk acknowledging records recovery would not see.
+ */
+class WriteAheadLog implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES;
+    // Far above any real quote; a larger length can only come from a torn header
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private enum Kind { RECORD, ROTATE, CLOSE }
+
+    /**
+     * Work for the writer thread. {@code done} completes with the segment the request landed in.
+     */
+    private record Request(Kind kind, byte[] payload, CompletableFuture<Long> done) {
+    }
+
+    private final Path directory;
+    private final int maxBatch;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    // Set when a failed commit couldn't be cleaned up; every later request fails with it
+    private volatile IOException broken;
+    // Records to commit before an injected commit failure, or -1 when none is armed
+    private volatile int failAfter = -1;
+
+    // Owned by the writer thread
+    private FileChannel channel;
+    private long segment;
+    // End of the last commit that was written and forced in full
+    private long committed;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Opens a fresh segment numbered {@code firstSegment}; existing segments are never appended to.
+     * The writer runs on a thread from {@code threads}, which must not keep the JVM alive.
+     */
+    WriteAheadLog(Path directory, long firstSegment, int maxBatch, ThreadFactory threads) throws IOException {
+        this.directory = directory;
+        this.maxBatch = maxBatch;
+        openSegment(firstSegment);
+        this.writer = threads.newThread(this::run);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a mutation; the future completes once it has been fsynced.
+     */
+    CompletableFuture<Long> append(QuoteMutation mutation) {
+        return submit(Kind.RECORD, encode(mutation));
+    }
+
+    /**
+     * Closes the current segment and starts the next one. The future completes
+     * with the number of the closed segment, once every earlier record is durable.
+     */
+    CompletableFuture<Long> rotate() {
+        return submit(Kind.ROTATE, null);
+    }
+
+    // Test helper method - fails the first commit that starts after the next `records` records, like a full disk
+    void failCommitAfter(int records) {
+        failAfter = records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        queue.add(new Request(Kind.CLOSE, null, done));
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the write-ahead log");
+        }
+    }
+
+    private CompletableFuture<Long> submit(Kind kind, byte[] payload) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Write-ahead log is closed"));
+        }
+        if (broken != null) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(broken));
+        }
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        queue.add(new Request(kind, payload, done));
+        return done;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(maxBatch);
+        try {
+            boolean open = true;
+            while (open) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                open = process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeChannel();
+            // Anything that slipped in after CLOSE will never be written
+            batch.addAll(queue);
+            for (Request request : batch) {
+                request.done().completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+            }
+        }
+    }
+
+    /**
+     * Writes a drained batch, honouring rotate/close markers in queue order.
+     * Returns false once the log has been closed.
+     */
+    private boolean process(List<Request> batch) {
+        List<Request> pending = new ArrayList<>();
+        for (Request request : batch) {
+            switch (request.kind()) {
+                case RECORD -> pending.add(request);
+                case ROTATE -> {
+                    commit(pending);
+                    if (broken != null) {
+                        request.done().completeExceptionally(new UncheckedIOException(broken));
+                        continue;
+                    }
+                    long rotated = segment;
+                    try {
+                        closeChannel();
+                        openSegment(rotated + 1);
+                        request.done().complete(rotated);
+                    } catch (IOException e) {
+                        request.done().completeExceptionally(new UncheckedIOException(e));
+                    }
+                }
+                case CLOSE -> {
+                    commit(pending);
+                    request.done().complete(segment);
+                    return false;
+                }
+            }
+        }
+        commit(pending);
+        return true;
+    }
+
+    private void commit(List<Request> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (broken != null) {
+            for (Request request : pending) {
+                request.done().completeExceptionally(new UncheckedIOException(broken));
+            }
+            pending.clear();
+            return;
+        }
+        int size = 0;
+        for (Request request : pending) {
+            size += HEADER_SIZE + request.payload().length;
+        }
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        CRC32 crc = new CRC32();
+        for (Request request : pending) {
+            crc.reset();
+            crc.update(request.payload());
+            buffer.putInt(request.payload().length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(request.payload());
+        }
+        buffer.flip();
+
+        try {
+            injectFailure(pending.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            committed = channel.position();
+            for (Request request : pending) {
+                request.done().complete(segment);
+            }
+        } catch (IOException e) {
+            for (Request request : pending) {
+                request.done().completeExceptionally(new UncheckedIOException(e));
+            }
+            discardTornTail(e);
+        }
+        pending.clear();
+    }
+
+    private void injectFailure(int records) throws IOException {
+        int remaining = failAfter;
+        if (remaining == 0) {
+            failAfter = -1;
+            throw new IOException("Injected commit failure");
+        }
+        if (remaining > 0) {
+            failAfter = Math.max(0, remaining - records);
+        }
+    }
+
+    /**
+     * After a failed commit: cuts the segment back to its last good commit and
+     * moves on to a new segment, since the failed channel's state can't be
+     * trusted. Marks the log broken if that fails too.
+     */
+    private void discardTornTail(IOException cause) {
+        try {
+            channel.truncate(committed);
+            channel.force(true);
+            channel.close();
+            openSegment(segment + 1);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            broken = e;
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = directory.resolve(segmentName(number));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment = number;
+        committed = 0;
+        syncDirectory(directory);
+    }
+
+    /**
+     * Forces a directory's entries, so files just created or renamed in it survive a crash.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel entries = FileChannel.open(directory, StandardOpenOption.READ)) {
+            entries.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows can't open a directory as a channel; NTFS journals the entries itself
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // Everything acknowledged was already forced by commit()
+        }
+    }
+
+    // ---- Record encoding and recovery ----
+
+    static byte[] encode(QuoteMutation mutation) {
+        byte[] quote = mutation.quote() == null ? new byte[0] : QuoteCodec.encode(mutation.quote());
+        ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES + quote.length);
+        payload.put((byte) mutation.type().ordinal());
+        payload.putLong(mutation.id());
+        payload.put(quote);
+        return payload.array();
+    }
+
+    static QuoteMutation decode(ByteBuffer payload) {
+        QuoteMutation.Type type = QuoteMutation.Type.values()[payload.get()];
+        long id = payload.getLong();
+        Quote quote = payload.hasRemaining() ? QuoteCodec.decode(payload) : null;
+        return new QuoteMutation(type, id, quote);
+    }
+
+    static String segmentName(long number) {
+        return String.format("%s%016d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX);
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * All segment files in the directory, oldest first.
+     */
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegment)
+                    .sorted(Comparator.comparingLong(WriteAheadLog::segmentNumber))
+                    .toList();
+        }
+    }
+
+    /**
+     * Feeds every intact record of a segment to {@code sink}, in order. Stops at
+     * the first short or corrupt record, which can only be an unacknowledged,
+     * torn write at the tail. Returns the number of records replayed.
+     */
+    static long replay(Path segment, Consumer<QuoteMutation> sink) throws IOException {
+        long count = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        return count;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return count;
+                }
+                crc.reset();
+                crc.update(payload);
+                if (payload.length != length || (int) crc.getValue() != checksum) {
+                    return count;
+                }
+                sink.accept(decode(ByteBuffer.wrap(payload)));
+                count++;
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static edu.trincoll.tracker.TestQuotes.controller;
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tokenizing, BM25 ranking and paging of keyword search.
+ */
+@DisplayName("Full-Text Index Tests")
+class FullTextIndexTest {
+
+    @Test
+    @DisplayName("should split on anything but letters and digits, lowercased")
+    void shouldTokenize() {
+        Map<String, Integer> terms = new HashMap<>();
+        FullTextIndex.tokenize("Don't PANIC: 42 times, don't!", terms);
+        assertThat(terms).isEqualTo(Map.of("don", 2, "t", 2, "panic", 1, "42", 1, "times", 1));
+
+        assertThat(FullTextIndex.queryTerms("  River, river;RIVER  ")).isEqualTo(Set.of("river"));
+        assertThat(FullTextIndex.queryTerms(" -- ")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should rank by BM25: more occurrences, shorter quotes and rarer terms first")
+    void shouldRankByBm25() {
+        FullTextIndex index = new FullTextIndex();
+        index.add(1, terms("river stone"));
+        index.add(2, terms("river river stone"));
+        index.add(3, terms("river stone stone stone stone stone stone"));
+        index.add(4, terms("stone"));
+        index.add(5, terms("stone moss"));
+
+        assertThat(ids(top(index, "river", 10))).containsExactly(2L, 1L, 3L);
+        // After the six-fold match, the same single occurrence ranks shorter quotes first, ties by id
+        assertThat(ids(top(index, "stone", 10))).containsExactly(3L, 4L, 1L, 5L, 2L);
+        // "moss" is in one quote, "stone" in all five
+        assertThat(ids(top(index, "stone moss", 1))).containsExactly(5L);
+        assertThat(top(index, "lichen", 10)).isEmpty();
+
+        index.remove(5, terms("stone moss"));
+        assertThat(top(index, "moss", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("pruned top hits should score exactly like an exhaustive BM25 ranking")
+    void shouldMatchExhaustiveRanking() {
+        FullTextIndex index = new FullTextIndex();
+        Map<Long, Map<String, Integer>> docs = new HashMap<>();
+        Random random = new Random(3);
+        for (long id = 1; id <= 2000; id++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 1 + random.nextInt(12); i > 0; i--) {
+                // Skewed so a few words are in most quotes and most words in few
+                text.append(" w").append((int) (40 * Math.pow(random.nextDouble(), 3)));
+            }
+            docs.put(id, terms(text.toString()));
+            index.add(id, docs.get(id));
+        }
+
+        for (int query = 0; query < 200; query++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                text.append(" w").append(random.nextInt(40));
+            }
+            Set<String> terms = FullTextIndex.queryTerms(text.toString());
+            int keep = List.of(1, 5, 50, 500).get(query % 4);
+            List<FullTextIndex.Hit> hits = index.top(terms, index.corpus(terms), keep);
+            List<FullTextIndex.Hit> expected = exhaustive(docs, terms, keep);
+
+            assertThat(hits).hasSize(expected.size());
+            for (int i = 0; i < hits.size(); i++) {
+                assertThat(Math.abs(hits.get(i).score() - expected.get(i).score()) < 1e-9).isTrue();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should keep scoring exactly through out-of-order adds, replaces and removes")
+    void shouldMatchExhaustiveRankingAfterChurn() {
+        FullTextIndex index = new FullTextIndex();
+        Map<Long, Map<String, Integer>> docs = new HashMap<>();
+        Random random = new Random(11);
+        for (int step = 0; step < 20_000; step++) {
+            // Ids spread over several pages of document lengths, touched in no particular order
+            long id = 1 + random.nextInt(3000) * 7L;
+            Map<String, Integer> terms = terms("common w" + random.nextInt(30) + " w" + random.nextInt(30));
+            Map<String, Integer> previous = docs.get(id);
+            if (previous == null) {
+                index.add(id, terms);
+                docs.put(id, terms);
+            } else if (random.nextInt(3) == 0) {
+                index.remove(id, previous);
+                docs.remove(id);
+            } else {
+                index.replace(id, previous, terms);
+                docs.put(id, terms);
+            }
+        }
+
+        for (int query = 0; query < 100; query++) {
+            Set<String> terms = FullTextIndex.queryTerms("common w" + random.nextInt(30) + " w" + random.nextInt(30));
+            FullTextIndex.Corpus corpus = index.corpus(terms);
+            assertThat(corpus.documents()).isEqualTo(docs.size());
+            List<FullTextIndex.Hit> hits = index.top(terms, corpus, 20);
+            List<FullTextIndex.Hit> expected = exhaustive(docs, terms, 20);
+
+            assertThat(hits).hasSize(expected.size());
+            for (int i = 0; i < hits.size(); i++) {
+                assertThat(Math.abs(hits.get(i).score() - expected.get(i).score()) < 1e-9).isTrue();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should not walk a common term's postings once only known hits can win")
+    void shouldSkipCommonPostings() {
+        FullTextIndex index = new FullTextIndex();
+        for (long id = 1; id <= 1000; id++) {
+            index.add(id, terms(id <= 5 ? "rare common" : "common"));
+        }
+
+        Set<String> terms = FullTextIndex.queryTerms("rare common");
+        List<FullTextIndex.Hit> hits = index.top(terms, index.corpus(terms), 3);
+
+        assertThat(ids(hits)).containsExactly(1L, 2L, 3L);
+        // Five "rare" postings, then "common" probed for those five candidates
+        assertThat(index.scanned()).isEqualTo(10L);
+    }
+
+    @Test
+    @DisplayName("limit and offset should page through the same ranking")
+    void shouldPage() {
+        QuoteStore store = new QuoteStore();
+        for (int i = 0; i < 35; i++) {
+            store.create(quote("Quote " + i, "stone ".repeat(1 + i % 4) + "river " + i));
+        }
+
+        List<Long> all = quoteIds(store.searchFullText("stone", 35, 0));
+        assertThat(all).hasSize(35);
+        List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < 35; offset += 10) {
+            paged.addAll(quoteIds(store.searchFullText("stone", 10, offset)));
+        }
+        assertThat(paged).isEqualTo(all);
+        assertThat(store.searchFullText("stone", 10, 35)).isEmpty();
+        assertThat(store.searchFullText("stone", 0, 0)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("GET /search/text should answer 400 for a blank query or paging out of range")
+    void shouldRejectBadSearches() {
+        QuoteController controller = controller(new QuoteStore());
+        controller.create(quote("Stone", "a rolling stone"));
+
+        assertThat(controller.searchFullText("stone", 20, 0).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(controller.searchFullText("stone", 20, 0).getBody()).hasSize(1);
+        assertThat(controller.searchFullText("  ", 20, 0).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.searchFullText("stone", 0, 0).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.searchFullText("stone", 1001, 0).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.searchFullText("stone", 20, -1).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(controller.searchFullText("stone", 20, 10_001).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Straightforward BM25 over every quote, ranked like the index ranks.
+     */
+    private static List<FullTextIndex.Hit> exhaustive(Map<Long, Map<String, Integer>> docs, Set<String> terms, int keep) {
+        double avgLength = docs.values().stream()
+                .mapToInt(doc -> doc.values().stream().mapToInt(Integer::intValue).sum())
+                .average().orElse(1);
+        Map<String, Long> docFreqs = new HashMap<>();
+        for (String term : terms) {
+            docFreqs.put(term, docs.values().stream().filter(doc -> doc.containsKey(term)).count());
+        }
+        List<FullTextIndex.Hit> hits = new ArrayList<>();
+        for (Map.Entry<Long, Map<String, Integer>> doc : docs.entrySet()) {
+            int length = doc.getValue().values().stream().mapToInt(Integer::intValue).sum();
+            double score = 0;
+            boolean matched = false;
+            for (String term : terms) {
+                Integer tf = doc.getValue().get(term);
+                if (tf == null) {
+                    continue;
+                }
+                long docFreq = docFreqs.get(term);
+                double idf = Math.log(1 + (docs.size() - docFreq + 0.5) / (docFreq + 0.5));
+                score += idf * tf * 2.2 / (tf + 1.2 * (0.25 + 0.75 * length / Math.max(1.0, avgLength)));
+                matched = true;
+            }
+            if (matched) {
+                hits.add(new FullTextIndex.Hit(doc.getKey(), score));
+            }
+        }
+        hits.sort(Comparator.comparingDouble(FullTextIndex.Hit::score).reversed());
+        return hits.subList(0, Math.min(keep, hits.size()));
+    }
+
+    private static List<FullTextIndex.Hit> top(FullTextIndex index, String query, int keep) {
+        Set<String> terms = FullTextIndex.queryTerms(query);
+        return index.top(terms, index.corpus(terms), keep);
+    }
+
+    private static Map<String, Integer> terms(String text) {
+        Map<String, Integer> terms = new HashMap<>();
+        FullTextIndex.tokenize(text, terms);
+        return terms;
+    }
+
+    private static List<Long> ids(List<FullTextIndex.Hit> hits) {
+        return hits.stream().map(FullTextIndex.Hit::id).toList();
+    }
+
+    private static List<Long> quoteIds(List<Quote> quotes) {
+        return quotes.stream().map(Quote::getId).toList();
+    }
+}
@@ -0,0 +1,153 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the n-gram index against the plain lowercase-and-contains scan it replaces.
+ */
+@DisplayName("NameSearchIndex Tests")
+class NameSearchIndexTest {
+
+    private static final String[] WORDS = {
+            "Apple", "Application", "Banana", "BANANA split", "Straße", "İstanbul",
+            "Ünïcödé", "a", "ab", "abc", "abcd", "aaaa", "App", "pineapple", "apPLE pie"
+    };
+
+    private NameSearchIndex index;
+    private Map<Long, String> names;
+
+    @BeforeEach
+    void setUp() {
+        index = new NameSearchIndex();
+        names = new TreeMap<>();
+    }
+
+    @Test
+    @DisplayName("should match naive contains for short, long and missing queries")
+    void shouldMatchNaiveScan() {
+        for (int i = 0; i < WORDS.length; i++) {
+            put(i + 1, WORDS[i]);
+        }
+
+        for (String query : queries()) {
+            assertThat(index.search(query)).as(query).containsExactlyElementsOf(naive(query));
+        }
+    }
+
+    @Test
+    @DisplayName("should follow renames and deletes")
+    void shouldFollowRenamesAndDeletes() {
+        Random random = new Random(42);
+        for (int step = 0; step < 2_000; step++) {
+            long id = 1 + random.nextInt(50);
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(20);
+            String previous = names.get(id);
+            if (previous == null) {
+                put(id, name);
+            } else if (random.nextInt(3) == 0) {
+                index.remove(id);
+                names.remove(id);
+            } else {
+                index.rename(id, previous, name);
+                names.put(id, name);
+            }
+        }
+
+        for (String query : queries()) {
+            assertThat(index.search(query)).as(query).containsExactlyElementsOf(naive(query));
+        }
+    }
+
+    @Test
+    @DisplayName("should stay exact when common grams outgrow a sorted list and become bitmaps")
+    void shouldMatchNaiveScanPastBitmapPromotion() {
+        // Thousands of ids share the grams of every word, added out of order and spread over several bitmap chunks
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 6_000; id++) {
+            ids.add(id * 37);
+        }
+        Random random = new Random(7);
+        Collections.shuffle(ids, random);
+        for (long id : ids) {
+            put(id, WORDS[random.nextInt(WORDS.length)] + " " + id);
+        }
+        for (long id : ids.subList(0, 2_000)) {
+            index.remove(id);
+            names.remove(id);
+        }
+        for (long id : ids.subList(2_000, 3_000)) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " renamed " + id;
+            index.rename(id, names.get(id), name);
+            names.put(id, name);
+        }
+
+        List<String> queries = queries();
+        queries.addAll(List.of("renamed", "37", "1110", "e 2"));
+        for (String query : queries) {
+            assertThat(index.search(query)).as(query).containsExactlyElementsOf(naive(query));
+        }
+    }
+
+    @Test
+    @DisplayName("should apply writes held back by defer once flushed, in the order they were made")
+    void shouldMatchNaiveScanAfterDeferredWrites() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            index.defer();
+            // Few ids, so one gram sees the same id join and leave within a round
+            for (int step = 0; step < 200; step++) {
+                long id = 1 + random.nextInt(round % 2 == 0 ? 30 : 3_000);
+                String name = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(20);
+                String previous = names.get(id);
+                if (previous == null) {
+                    put(id, name);
+                } else if (random.nextInt(3) == 0) {
+                    index.remove(id);
+                    names.remove(id);
+                } else {
+                    index.rename(id, previous, name);
+                    names.put(id, name);
+                }
+            }
+            index.flush();
+
+            for (String query : queries()) {
+                assertThat(index.search(query)).as(query).containsExactlyElementsOf(naive(query));
+            }
+        }
+    }
+
+    private void put(long id, String name) {
+        index.add(id, name);
+        names.put(id, name);
+    }
+
+    private List<String> queries() {
+        List<String> queries = new ArrayList<>(List.of("", "A", "app", "APPL", "an", "ana", "anan", "ss", "zzzz", " 1", "e 1"));
+        for (String word : WORDS) {
+            queries.add(word);
+            queries.add(word.toUpperCase(Locale.ROOT));
+            if (word.length() > 2) {
+                queries.add(word.substring(1, word.length() - 1));
+            }
+        }
+        return queries;
+    }
+
+    private List<Long> naive(String query) {
+        String lower = query.toLowerCase(Locale.ROOT);
+        List<Long> ids = new ArrayList<>();
+        names.forEach((id, name) -> {
+            if (name.toLowerCase(Locale.ROOT).contains(lower)) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+}
@@ -0,0 +1,123 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Off-Heap Quote Table Tests")
+class OffHeapQuoteTableTest {
+
+    private final StringDictionary strings = new StringDictionary();
+
+    @Test
+    @DisplayName("should read back what was written, through updates of every size")
+    void shouldRoundTripUpdates() {
+        OffHeapQuoteTable table = new OffHeapQuoteTable();
+        StoredQuote first = StoredQuote.of(7, 1_700_000_000_000L, quote("Short", "Brief."), strings);
+        table.put(first);
+        // Same size class (overwritten in place), a larger one (moved), then one larger than a slab
+        StoredQuote same = first.edited(quote("Short", "Terse."), strings);
+        table.put(same);
+        assertThat(table.get(7).content()).isEqualTo("Terse.");
+        StoredQuote larger = same.edited(quote("Short", "Long ".repeat(200)), strings);
+        table.put(larger);
+        StoredQuote huge = larger.edited(quote("Short", "x".repeat(OffHeapQuoteTable.SLAB_SIZE)), strings);
+        table.put(huge);
+
+        StoredQuote read = table.get(7);
+        assertThat(read.version()).isEqualTo(4);
+        assertThat(read.createdAtMillis()).isEqualTo(1_700_000_000_000L);
+        assertThat(read.author()).isEqualTo("Seneca");
+        assertThat(read.content()).hasSize(OffHeapQuoteTable.SLAB_SIZE);
+        assertThat(read.completed()).isTrue();
+        assertThat(table.get(8)).isNull();
+
+        table.remove(7);
+        assertThat(table.get(7)).isNull();
+        assertThat(table.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should reuse freed blocks instead of growing")
+    void shouldReuseFreedBlocks() {
+        OffHeapQuoteTable table = new OffHeapQuoteTable();
+        for (int round = 0; round < 20; round++) {
+            for (long id = 1; id <= 5_000; id++) {
+                table.put(StoredQuote.of(id, 0, quote("Quote " + id, "Round " + round), strings));
+            }
+            long reserved = table.offHeapBytes();
+            for (long id = 1; id <= 5_000; id++) {
+                table.remove(id);
+            }
+            assertThat(table.offHeapBytes()).isEqualTo(reserved);
+        }
+        assertThat(table.offHeapBytes()).isLessThanOrEqualTo(2L * OffHeapQuoteTable.SLAB_SIZE);
+    }
+
+    @Test
+    @DisplayName("should iterate in id order after random writes and deletes")
+    void shouldIterateInIdOrder() {
+        OffHeapQuoteTable table = new OffHeapQuoteTable();
+        Random random = new Random(23);
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 3_000; id++) {
+            if (random.nextInt(3) > 0) {
+                table.put(StoredQuote.of(id, 0, quote("Quote " + id, "Text"), strings));
+                expected.add(id);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            long id = expected.remove(random.nextInt(expected.size()));
+            table.remove(id);
+        }
+
+        assertThat(ids(table.valuesAfter(Long.MIN_VALUE))).isEqualTo(expected);
+        List<Long> tail = expected.stream().filter(id -> id > 1_500).toList();
+        assertThat(ids(table.valuesAfter(1_500))).isEqualTo(tail);
+        assertThat(table.valuesAfter(1_500)).hasSize(tail.size());
+        assertThat(table.hasAfter(expected.get(expected.size() - 1))).isFalse();
+    }
+
+    @Test
+    @DisplayName("should answer store queries like the heap backend")
+    void shouldMatchHeapBackend() {
+        QuoteStore heap = new QuoteStore(2, "heap");
+        QuoteStore offHeap = new QuoteStore(2, "off-heap");
+        for (QuoteStore store : List.of(heap, offHeap)) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                ids.add(store.create(quote("Quote " + i, "Stone and river " + i)).quote().getId());
+            }
+            store.update(ids.get(10), quote("Renamed", "Light"));
+            store.delete(ids.get(20));
+        }
+
+        assertThat(states(offHeap.values())).isEqualTo(states(heap.values()));
+        assertThat(states(offHeap.searchFullText("river", 10, 0))).isEqualTo(states(heap.searchFullText("river", 10, 0)));
+        assertThat(offHeap.stats()).isEqualTo(heap.stats());
+        assertThat(offHeap.offHeapBytes()).isPositive();
+        assertThat(heap.offHeapBytes()).isZero();
+    }
+
+    private static List<Long> ids(Collection<StoredQuote> quotes) {
+        return quotes.stream().map(StoredQuote::id).toList();
+    }
+
+    private static List<String> states(Collection<Quote> quotes) {
+        return quotes.stream().map(q -> q.getId() + "/" + q.getVersion() + "/" + q.getQuoteName()).toList();
+    }
+
+    private static Quote quote(String name, String content) {
+        Quote quote = TestQuotes.quote(name, content);
+        quote.setAuthor("Seneca");
+        quote.setCategory("life");
+        quote.setCompleted(true);
+        return quote;
+    }
+}
@@ -0,0 +1,110 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Quote Admission Tests")
+class QuoteAdmissionTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long LONG_WAIT = TimeUnit.SECONDS.toNanos(10);
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("token bucket should allow a burst, then refill at its rate")
+    void shouldLimitRate() {
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryTake(0)).isZero();
+        }
+        assertThat(bucket.tryTake(0)).isEqualTo(SECOND / 2);
+        assertThat(bucket.tryTake(SECOND / 2)).isZero();
+        assertThat(bucket.isFull(SECOND / 2)).isFalse();
+        assertThat(bucket.isFull(3 * SECOND)).isTrue();
+    }
+
+    @Test
+    @DisplayName("should hand a freed slot to waiting reads before waiting writes")
+    void shouldAdmitReadsFirst() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 8);
+        assertThat(queue.acquire(AdmissionQueue.Priority.WRITE, 0)).isTrue();
+        List<String> order = new CopyOnWriteArrayList<>();
+        Future<?> write = waitFor(queue, AdmissionQueue.Priority.WRITE, "write", order);
+        await(() -> queue.queued(AdmissionQueue.Priority.WRITE) == 1);
+        Future<?> read = waitFor(queue, AdmissionQueue.Priority.READ, "read", order);
+        await(() -> queue.queued(AdmissionQueue.Priority.READ) == 1);
+
+        queue.release();
+        read.get(10, TimeUnit.SECONDS);
+        write.get(10, TimeUnit.SECONDS);
+
+        assertThat(order).containsExactly("read", "write");
+        assertThat(queue.active()).isZero();
+    }
+
+    @Test
+    @DisplayName("should shed writes first when the queue is full")
+    void shouldShedWritesWhenFull() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 1);
+        assertThat(queue.acquire(AdmissionQueue.Priority.READ, 0)).isTrue();
+        Future<Boolean> waitingWrite = pool.submit(() -> queue.acquire(AdmissionQueue.Priority.WRITE, LONG_WAIT));
+        await(() -> queue.queued(AdmissionQueue.Priority.WRITE) == 1);
+
+        // A write finds the queue full; a read takes the waiting write's place
+        assertThat(queue.acquire(AdmissionQueue.Priority.WRITE, LONG_WAIT)).isFalse();
+        Future<Boolean> read = pool.submit(() -> queue.acquire(AdmissionQueue.Priority.READ, LONG_WAIT));
+        assertThat(waitingWrite.get(10, TimeUnit.SECONDS)).isFalse();
+
+        queue.release();
+        assertThat(read.get(10, TimeUnit.SECONDS)).isTrue();
+        queue.release();
+        assertThat(queue.active()).isZero();
+    }
+
+    @Test
+    @DisplayName("should give up on a slot after the timeout")
+    void shouldTimeOut() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1, 8);
+        assertThat(queue.acquire(AdmissionQueue.Priority.WRITE, 0)).isTrue();
+
+        assertThat(queue.acquire(AdmissionQueue.Priority.READ, Duration.ofMillis(50).toNanos())).isFalse();
+        assertThat(queue.queued(AdmissionQueue.Priority.READ)).isZero();
+        queue.release();
+        assertThat(queue.acquire(AdmissionQueue.Priority.READ, 0)).isTrue();
+    }
+
+    private Future<?> waitFor(AdmissionQueue queue, AdmissionQueue.Priority priority, String name, List<String> order) {
+        return pool.submit(() -> {
+            assertThat(queue.acquire(priority, LONG_WAIT)).isTrue();
+            order.add(name);
+            queue.release();
+            return null;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + LONG_WAIT;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
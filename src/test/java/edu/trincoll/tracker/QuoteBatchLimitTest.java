@@ -0,0 +1,106 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * {@code POST /api/items/batch} refuses batches over {@code tracker.batch.max-size}
+ * whole, in either body format, and NDJSON batches with a malformed line.
+ */
+@SpringBootTest(properties = "tracker.batch.max-size=3")
+@AutoConfigureMockMvc
+@DisplayName("Batch Size Limit Tests")
+class QuoteBatchLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store.clear();
+    }
+
+    @Test
+    @DisplayName("a JSON batch at the limit should apply; one over should get 413 and change nothing")
+    void shouldLimitJsonBatches() throws Exception {
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creates("Over", 4))))
+                .andExpect(status().is(HttpStatus.CONTENT_TOO_LARGE.value()));
+        mockMvc.perform(get("/api/items")).andExpect(content().string("[]"));
+
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(creates("At", 3))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].status").value(201));
+    }
+
+    @Test
+    @DisplayName("an NDJSON batch at the limit should apply; one over should get 413 and change nothing")
+    void shouldLimitNdjsonBatches() throws Exception {
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson(creates("Over", 4))))
+                .andExpect(status().is(HttpStatus.CONTENT_TOO_LARGE.value()));
+        mockMvc.perform(get("/api/items")).andExpect(content().string("[]"));
+
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson(creates("At", 3))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[2].status").value(201));
+    }
+
+    @Test
+    @DisplayName("an NDJSON batch with a malformed line should get 400 and change nothing")
+    void shouldRejectMalformedNdjsonBatches() throws Exception {
+        String lines = ndjson(creates("Before", 2)) + "{\"op\":\"create\",\"item\":\n";
+        mockMvc.perform(post("/api/items/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(lines))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/items")).andExpect(content().string("[]"));
+    }
+
+    private String ndjson(List<QuoteBatch.Operation> operations) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (QuoteBatch.Operation operation : operations) {
+            body.append(objectMapper.writeValueAsString(operation)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private static List<QuoteBatch.Operation> creates(String prefix, int count) {
+        List<QuoteBatch.Operation> operations = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Quote quote = new Quote();
+            quote.setQuoteName(prefix + " " + i);
+            quote.setQuoteContent("Content " + i);
+            operations.add(new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote));
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,147 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Per-item statuses of a batch must match what the single-item endpoints return.
+ */
+@DisplayName("QuoteBatch Tests")
+class QuoteBatchTest {
+
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+        store.create(quote("Existing"));
+    }
+
+    @Test
+    @DisplayName("should report single-item statuses for every operation")
+    void shouldReportSingleItemStatuses() {
+        List<QuoteBatch.Operation> operations = List.of(
+                create("First"),
+                create("First"),                                                   // duplicate within the batch
+                create("Existing"),                                                // duplicate of the store
+                create(" "),                                                       // blank name
+                new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, 2L, quote("Second")),
+                new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, 2L, quote("Existing")),
+                new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, 999L, quote("Nope")),
+                new QuoteBatch.Operation(QuoteBatch.Op.DELETE, 1L, null),
+                create("Existing"),                                                // freed by the delete above
+                new QuoteBatch.Operation(QuoteBatch.Op.DELETE, 1L, null),
+                new QuoteBatch.Operation(null, null, null));
+
+        List<QuoteBatch.Result> results = QuoteBatch.apply(store, operations.iterator());
+
+        assertThat(results).extracting(QuoteBatch.Result::status)
+                .containsExactly(201, 409, 409, 400, 200, 409, 404, 204, 201, 404, 400);
+        assertThat(results).extracting(QuoteBatch.Result::index)
+                .containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        assertThat(store.idForName("Second")).isEqualTo(2L);
+        assertThat(store.idForName("Existing")).isEqualTo(3L);
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should let listeners defer work to the end of the batch")
+    void shouldWrapBatchForListeners() {
+        List<String> events = new ArrayList<>();
+        store.addListener(new QuoteMutationListener() {
+            @Override
+            public void onMutation(QuoteMutation mutation) {
+                events.add(mutation.type().name());
+            }
+
+            @Override
+            public void beforeBatch() {
+                events.add("begin");
+            }
+
+            @Override
+            public void afterBatch() {
+                events.add("end");
+            }
+        });
+
+        QuoteBatch.apply(store, List.of(create("A"), create("B")).iterator());
+
+        assertThat(events).containsExactly("begin", "CREATE", "CREATE", "end");
+    }
+
+    @Test
+    @DisplayName("a failing listener should not stop the write or the listeners after it")
+    void shouldIsolateListeners() {
+        List<String> events = new ArrayList<>();
+        store.addListener(mutation -> {
+            throw new IllegalStateException("broken listener");
+        });
+        store.addListener(mutation -> events.add(mutation.type().name()));
+
+        assertThat(store.create(quote("A")).status()).isEqualTo(QuoteStore.Status.OK);
+        QuoteBatch.apply(store, List.of(create("B"), create("C")).iterator());
+
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(events).containsExactly("CREATE", "CREATE", "CREATE");
+    }
+
+    @Test
+    @DisplayName("a listener refusing to start a batch should leave no batch open and end the ones already started")
+    void shouldEndStartedListenersWhenOneRefuses() {
+        List<String> events = new ArrayList<>();
+        store.addListener(recording("first", events));
+        store.addListener(new QuoteMutationListener() {
+            @Override
+            public void onMutation(QuoteMutation mutation) {
+            }
+
+            @Override
+            public void beforeBatch() {
+                throw new IllegalStateException("refused");
+            }
+        });
+        store.addListener(recording("last", events));
+
+        assertThatThrownBy(() -> QuoteBatch.apply(store, List.of(create("A")).iterator()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(events).containsExactly("first begin", "first end");
+        assertThat(store.idForName("A")).isNull();
+
+        // The thread is not left inside the failed batch
+        events.clear();
+        assertThat(store.create(quote("B")).status()).isEqualTo(QuoteStore.Status.OK);
+        assertThat(events).containsExactly("first CREATE", "last CREATE");
+    }
+
+    private static QuoteMutationListener recording(String name, List<String> events) {
+        return new QuoteMutationListener() {
+            @Override
+            public void onMutation(QuoteMutation mutation) {
+                events.add(name + " " + mutation.type().name());
+            }
+
+            @Override
+            public void beforeBatch() {
+                events.add(name + " begin");
+            }
+
+            @Override
+            public void afterBatch() {
+                events.add(name + " end");
+            }
+        };
+    }
+
+    private static QuoteBatch.Operation create(String name) {
+        return new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote(name));
+    }
+}
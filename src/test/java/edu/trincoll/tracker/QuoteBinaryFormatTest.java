@@ -0,0 +1,131 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * CBOR and Smile answers of the bulk reads must decode to exactly the quotes
+ * the JSON answer holds, with the same paging headers.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Binary Format Tests")
+class QuoteBinaryFormatTest {
+
+    private static final List<MediaType> BINARY = List.of(
+            MediaType.APPLICATION_CBOR, MediaType.valueOf(QuoteFormat.SMILE_VALUE));
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store.clear();
+        for (int i = 1; i <= 5; i++) {
+            Quote quote = new Quote();
+            quote.setQuoteName(i % 2 == 0 ? "Even " + i : "Odd " + i);
+            quote.setQuoteContent("Content " + i);
+            quote.setAuthor("Author " + i);
+            quote.setCategory("life");
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(quote)))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    @DisplayName("GET /api/items should decode to the same quotes in every format")
+    void shouldEncodeAll() throws Exception {
+        assertSameQuotes(() -> get("/api/items"), 5);
+    }
+
+    @Test
+    @DisplayName("a page should decode to the same quotes and carry the same Link in every format")
+    void shouldEncodePages() throws Exception {
+        String link = assertSameQuotes(() -> get("/api/items").param("limit", "2"), 2);
+        assertThat(link).isEqualTo("</api/items?after=2&limit=2>; rel=\"next\"");
+
+        assertThat(assertSameQuotes(() -> get("/api/items").param("after", "2").param("limit", "3"), 3)).isNull();
+    }
+
+    @Test
+    @DisplayName("GET /api/items/search should decode to the same matches in every format")
+    void shouldEncodeSearch() throws Exception {
+        assertSameQuotes(() -> get("/api/items/search").param("name", "even"), 2);
+    }
+
+    /**
+     * Asks for JSON, CBOR and Smile in turn and checks each binary body holds
+     * the JSON body's quotes, field for field. Returns the Link header, which
+     * must also be the same in every format.
+     */
+    private String assertSameQuotes(Supplier<MockHttpServletRequestBuilder> request, int expected) throws Exception {
+        MockHttpServletResponse json = mockMvc.perform(request.get().accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+        assertThat(vary(json)).contains(HttpHeaders.ACCEPT);
+        Quote[] quotes = objectMapper.readValue(json.getContentAsByteArray(), Quote[].class);
+        assertThat(quotes).hasSize(expected);
+
+        for (MediaType type : BINARY) {
+            MockHttpServletResponse binary = mockMvc.perform(request.get().accept(type))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(type))
+                    .andReturn().getResponse();
+            assertThat(vary(binary)).as(type.toString()).contains(HttpHeaders.ACCEPT);
+            assertThat(binary.getHeader(HttpHeaders.LINK)).as(type.toString())
+                    .isEqualTo(json.getHeader(HttpHeaders.LINK));
+
+            Quote[] decoded = mapper(type).readValue(binary.getContentAsByteArray(), Quote[].class);
+            // Re-encoded as JSON, so fields equals() skips (version, createdAt) are compared too
+            assertThat(objectMapper.writeValueAsString(decoded)).as(type.toString())
+                    .isEqualTo(objectMapper.writeValueAsString(quotes));
+            assertThat(binary.getContentAsByteArray()).as(type.toString())
+                    .isNotEqualTo(json.getContentAsByteArray());
+        }
+        return json.getHeader(HttpHeaders.LINK);
+    }
+
+    /**
+     * Vary values, whether sent as one header or several.
+     */
+    private static List<String> vary(MockHttpServletResponse response) {
+        return response.getHeaders(HttpHeaders.VARY).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .toList();
+    }
+
+    private static ObjectMapper mapper(MediaType type) {
+        return MediaType.APPLICATION_CBOR.equals(type)
+                ? Jackson2ObjectMapperBuilder.cbor().build()
+                : Jackson2ObjectMapperBuilder.smile().build();
+    }
+}
@@ -0,0 +1,138 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sequence numbers, tailing and the resync signal of the change log.
+ */
+@DisplayName("QuoteChangeLog Tests")
+class QuoteChangeLogTest {
+
+    private QuoteStore store;
+    private QuoteChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+        changeLog = new QuoteChangeLog(store, 8);
+    }
+
+    @Test
+    @DisplayName("should number every write and return the ones after a position")
+    void shouldTailInOrder() {
+        long id = store.create(quote("Original")).quote().getId();
+        store.update(id, quote("Renamed"));
+        store.delete(id);
+
+        QuoteChangeLog.Page all = changeLog.read(0, 100);
+        assertThat(all.changes()).extracting(QuoteChangeLog.Change::seq).containsExactly(1L, 2L, 3L);
+        assertThat(all.changes()).extracting(QuoteChangeLog.Change::type)
+                .containsExactly(QuoteMutation.Type.CREATE, QuoteMutation.Type.UPDATE, QuoteMutation.Type.DELETE);
+        assertThat(all.changes().get(1).quote().getQuoteName()).isEqualTo("Renamed");
+        assertThat(all.changes().get(2).quote()).isNull();
+
+        QuoteChangeLog.Page tail = changeLog.read(1, 1);
+        assertThat(tail.changes()).extracting(QuoteChangeLog.Change::seq).containsExactly(2L);
+        assertThat(tail.latest()).isEqualTo(3L);
+        assertThat(changeLog.read(3, 100).changes()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should ask consumers to resync once their changes are overwritten")
+    void shouldSignalResync() {
+        for (int i = 0; i < 10; i++) {
+            store.create(quote("Quote " + i));
+        }
+
+        // Capacity 8 keeps changes 3..10
+        assertThat(changeLog.read(1, 100).resync()).isTrue();
+        assertThat(changeLog.read(2, 100).resync()).isFalse();
+        assertThat(changeLog.read(2, 100).changes()).hasSize(8);
+        // Ahead of the log, as after a restart
+        assertThat(changeLog.read(50, 100).resync()).isTrue();
+    }
+
+    @Test
+    @DisplayName("should wake waiting readers on the next write")
+    void shouldWakeWaiters() throws Exception {
+        AtomicReference<QuoteChangeLog.Page> delivered = new AtomicReference<>();
+        changeLog.onChanges(0, 100, delivered::set);
+        CompletableFuture<QuoteChangeLog.Page> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return changeLog.await(0, 100, 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(delivered.get()).isNull();
+
+        store.create(quote("Wake up"));
+
+        assertThat(delivered.get().changes()).hasSize(1);
+        assertThat(blocked.get(10, TimeUnit.SECONDS).changes()).hasSize(1);
+        // Already satisfied callbacks run right away
+        changeLog.onChanges(0, 100, delivered::set);
+        assertThat(delivered.get().latest()).isEqualTo(1L);
+        // Cancelled ones never run
+        AtomicReference<QuoteChangeLog.Page> cancelled = new AtomicReference<>();
+        changeLog.onChanges(1, 100, cancelled::set).run();
+        store.create(quote("Ignored"));
+        assertThat(cancelled.get()).isNull();
+    }
+
+    @Test
+    @DisplayName("should send every reader to resync after a clear, even a caught-up one")
+    void shouldResyncAfterClear() throws Exception {
+        store.create(quote("Before"));
+        store.create(quote("Also before"));
+        AtomicReference<QuoteChangeLog.Page> delivered = new AtomicReference<>();
+        changeLog.onChanges(2, 100, delivered::set);
+
+        store.clear();
+
+        assertThat(delivered.get().resync()).isTrue();
+        assertThat(changeLog.read(0, 100).resync()).isTrue();
+        assertThat(changeLog.read(2, 100).resync()).isTrue();
+        long latest = changeLog.latest();
+        assertThat(changeLog.read(latest, 100).resync()).isFalse();
+        assertThat(changeLog.read(latest, 100).changes()).isEmpty();
+
+        long id = store.create(quote("After")).quote().getId();
+        QuoteChangeLog.Page tail = changeLog.read(latest, 100);
+        assertThat(tail.changes()).extracting(QuoteChangeLog.Change::id).containsExactly(id);
+        assertThat(tail.changes().get(0).quote().getQuoteName()).isEqualTo("After");
+    }
+
+    @Test
+    @DisplayName("should log no changes for quotes loaded on recovery")
+    void shouldNotLogRecoveredQuotes() {
+        List<Quote> recovered = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            Quote quote = quote("Recovered " + id);
+            quote.setId(id);
+            quote.setVersion(1L);
+            quote.setCreatedAt(LocalDateTime.of(2025, 1, 1, 0, 0));
+            recovered.add(quote);
+        }
+        store.load(recovered, 21);
+
+        long latest = changeLog.latest();
+        assertThat(changeLog.read(latest, 100).changes()).isEmpty();
+        // A reader from before the load has to reload the store
+        assertThat(changeLog.read(0, 100).resync()).isTrue();
+        store.create(quote("New"));
+        assertThat(changeLog.read(latest, 100).changes()).extracting(QuoteChangeLog.Change::id).containsExactly(21L);
+    }
+}
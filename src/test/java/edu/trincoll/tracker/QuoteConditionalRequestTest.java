@@ -0,0 +1,143 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static edu.trincoll.tracker.TestQuotes.controller;
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Versions, ETags and conditional requests on single quotes.
+ */
+@DisplayName("Conditional Request Tests")
+class QuoteConditionalRequestTest {
+
+    private QuoteStore store;
+    private QuoteController controller;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+        controller = controller(store);
+    }
+
+    @Test
+    @DisplayName("should bump the version and ETag on every update")
+    void shouldTagVersions() {
+        ResponseEntity<Quote> created = controller.create(quote("Original"));
+        long id = created.getBody().getId();
+        String born = Long.toString(QuoteCodec.toEpochMillis(created.getBody().getCreatedAt()), 36);
+        assertThat(created.getHeaders().getETag()).isEqualTo("\"" + born + "-1\"");
+
+        ResponseEntity<Quote> updated = controller.update(id, quote("Renamed"), null);
+        assertThat(updated.getHeaders().getETag()).isEqualTo("\"" + born + "-2\"");
+        assertThat(controller.getById(id, null).getHeaders().getETag()).isEqualTo("\"" + born + "-2\"");
+    }
+
+    @Test
+    @DisplayName("should answer If-None-Match with 304 only while the ETag is current")
+    void shouldHonorIfNoneMatch() {
+        ResponseEntity<Quote> created = controller.create(quote("Polled"));
+        long id = created.getBody().getId();
+        String etag = created.getHeaders().getETag();
+
+        ResponseEntity<byte[]> unchanged = controller.getById(id, etag);
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+        assertThat(controller.getById(id, "W/" + etag).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        controller.update(id, quote("Polled again"), null);
+        ResponseEntity<byte[]> changed = controller.getById(id, etag);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(new String(changed.getBody(), StandardCharsets.UTF_8)).contains("Polled again");
+        assertThat(controller.getById(99L, "*").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DisplayName("should reject PUT and DELETE with a stale If-Match")
+    void shouldHonorIfMatch() {
+        ResponseEntity<Quote> created = controller.create(quote("Guarded"));
+        long id = created.getBody().getId();
+        String first = created.getHeaders().getETag();
+
+        ResponseEntity<Quote> updated = controller.update(id, quote("First"), first);
+        assertThat(updated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String second = updated.getHeaders().getETag();
+        // A second writer still holding version 1 loses
+        assertThat(controller.update(id, quote("Second"), first).getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(controller.update(id, quote("Second"), "W/" + second).getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        // The bare version is not a tag
+        assertThat(controller.update(id, quote("Second"), "\"2\"").getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(store.get(id).getQuoteName()).isEqualTo("First");
+
+        assertThat(controller.delete(id, first).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(controller.delete(id, "\"7\", " + second).getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(store.contains(id)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not match a tag from before a clear against the quote recreated under its id")
+    void shouldTellRecreatedQuotesApart() throws InterruptedException {
+        ResponseEntity<Quote> before = controller.create(quote("Reborn"));
+        long id = before.getBody().getId();
+        String stale = before.getHeaders().getETag();
+
+        store.clear();
+        // Quotes created in the same millisecond would share a tag
+        Thread.sleep(2);
+        ResponseEntity<Quote> after = controller.create(quote("Reborn again"));
+        assertThat(after.getBody().getId()).isEqualTo(id);
+        assertThat(after.getBody().getVersion()).isEqualTo(1L);
+        assertThat(after.getHeaders().getETag()).isNotEqualTo(stale);
+
+        assertThat(controller.getById(id, stale).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(controller.update(id, quote("Overwritten"), stale).getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(controller.delete(id, stale).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(store.get(id).getQuoteName()).isEqualTo("Reborn again");
+    }
+
+    @Test
+    @DisplayName("should not match a tag from before a leader's overwrite under the same version")
+    void shouldTellOverwritesApart() {
+        ResponseEntity<Quote> created = controller.create(quote("Shipped"));
+        long id = created.getBody().getId();
+        String stale = created.getHeaders().getETag();
+
+        // Same id, version and creation time, as a restarted leader without persistence could ship
+        Quote shipped = store.get(id);
+        shipped.setQuoteContent("Other content");
+        store.replicate(shipped, true);
+
+        ResponseEntity<byte[]> changed = controller.getById(id, stale);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(stale);
+        assertThat(new String(changed.getBody(), StandardCharsets.UTF_8)).contains("Other content");
+        assertThat(controller.getById(id, changed.getHeaders().getETag()).getStatusCode())
+                .isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(controller.update(id, quote("Overwritten"), stale).getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(controller.delete(id, stale).getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    @DisplayName("should keep versions across encode and decode")
+    void shouldPersistVersions() {
+        long id = store.create(quote("Durable")).quote().getId();
+        store.update(id, quote("Durable"));
+        store.update(id, quote("Durable"));
+
+        Quote decoded = QuoteCodec.decode(ByteBuffer.wrap(QuoteCodec.encode(store.get(id))));
+        assertThat(decoded.getVersion()).isEqualTo(3L);
+    }
+}
@@ -0,0 +1,22 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Quote Format Tests")
+class QuoteFormatTest {
+
+    @Test
+    @DisplayName("should pick the best format the Accept header names, defaulting to JSON")
+    void shouldNegotiate() {
+        assertThat(QuoteFormat.negotiate(null)).isEqualTo(QuoteFormat.JSON);
+        assertThat(QuoteFormat.negotiate("*/*")).isEqualTo(QuoteFormat.JSON);
+        assertThat(QuoteFormat.negotiate("application/cbor")).isEqualTo(QuoteFormat.CBOR);
+        assertThat(QuoteFormat.negotiate("application/x-jackson-smile, */*;q=0.1")).isEqualTo(QuoteFormat.SMILE);
+        assertThat(QuoteFormat.negotiate("application/cbor;q=0.5, application/json")).isEqualTo(QuoteFormat.JSON);
+        assertThat(QuoteFormat.negotiate("application/json, application/cbor")).isEqualTo(QuoteFormat.JSON);
+        assertThat(QuoteFormat.negotiate("text/html")).isEqualTo(QuoteFormat.JSON);
+    }
+}
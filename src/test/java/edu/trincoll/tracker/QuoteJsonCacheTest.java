@@ -0,0 +1,117 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reuse, invalidation and eviction of pre-encoded quote JSON.
+ */
+@DisplayName("QuoteJsonCache Tests")
+class QuoteJsonCacheTest {
+
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+    }
+
+    @Test
+    @DisplayName("should reuse a quote's bytes until it is written")
+    void shouldInvalidateOnWrite() {
+        QuoteJsonCache cache = cache(DataSize.ofMegabytes(1));
+        long id = store.create(quote("Original")).quote().getId();
+
+        byte[] first = cache.quote(id).bytes();
+        assertThat(cache.quote(id).bytes()).isSameAs(first);
+        assertThat(cache.hits()).isEqualTo(1);
+
+        store.update(id, quote("Renamed"));
+        QuoteJsonCache.Json updated = cache.quote(id);
+        assertThat(updated.version()).isEqualTo(2);
+        assertThat(text(updated.bytes())).contains("Renamed").doesNotContain("Original");
+
+        store.delete(id);
+        assertThat(cache.quote(id)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("should not take a leader's overwrite under the same version for the bytes already encoded")
+    void shouldTellOverwriteUnderSameVersionApart() {
+        QuoteJsonCache cache = cache(DataSize.ofMegabytes(1));
+        long id = store.create(quote("Original")).quote().getId();
+        QuoteJsonCache.Json original = cache.quote(id);
+
+        // Same id, version and creation time, as a restarted leader without persistence could ship
+        Quote shipped = store.get(id);
+        shipped.setQuoteContent("Other content");
+        store.replicate(shipped, true);
+
+        QuoteJsonCache.Json overwritten = cache.quote(id);
+        assertThat(overwritten.version()).isEqualTo(original.version());
+        assertThat(overwritten.createdAtMillis()).isEqualTo(original.createdAtMillis());
+        assertThat(overwritten.epoch()).isNotEqualTo(original.epoch());
+        assertThat(text(overwritten.bytes())).contains("Other content");
+
+        // Shipping the same state again changes nothing, so a copy doesn't invalidate every entry
+        store.replicate(store.get(id), true);
+        assertThat(cache.quote(id).epoch()).isEqualTo(overwritten.epoch());
+    }
+
+    @Test
+    @DisplayName("should keep the full list until any write, including a clear")
+    void shouldVersionTheFullList() {
+        QuoteJsonCache cache = cache(DataSize.ofMegabytes(1));
+        store.create(quote("One"));
+        long two = store.create(quote("Two")).quote().getId();
+
+        byte[] all = cache.all();
+        assertThat(cache.all()).isSameAs(all);
+        assertThat(text(all)).startsWith("[").endsWith("]").contains("One", "Two");
+
+        long missesBefore = cache.misses();
+        store.update(two, quote("Three"));
+        assertThat(text(cache.all())).contains("One", "Three").doesNotContain("Two");
+        // Only the updated quote had to be encoded again
+        assertThat(cache.misses()).isEqualTo(missesBefore + 1);
+
+        store.clear();
+        store.create(quote("Fresh"));
+        assertThat(text(cache.all())).contains("Fresh").doesNotContain("One");
+    }
+
+    @Test
+    @DisplayName("should stay within its byte budget, keeping recently read entries")
+    void shouldEvictToBudget() {
+        QuoteJsonCache cache = cache(DataSize.ofKilobytes(4));
+        long hot = store.create(quote("Hot")).quote().getId();
+        cache.quote(hot);
+        for (int i = 0; i < 200; i++) {
+            cache.quote(store.create(quote("Cold " + i)).quote().getId());
+            cache.quote(hot);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(4 * 1024);
+        assertThat(cache.evictions()).isPositive();
+        long hits = cache.hits();
+        cache.quote(hot);
+        assertThat(cache.hits()).isEqualTo(hits + 1);
+    }
+
+    private QuoteJsonCache cache(DataSize maxBytes) {
+        return new QuoteJsonCache(store, Jackson2ObjectMapperBuilder.json().build(), maxBytes);
+    }
+
+    private static String text(byte[] json) {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+}
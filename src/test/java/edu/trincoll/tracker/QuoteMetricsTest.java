@@ -0,0 +1,52 @@
+package edu.trincoll.tracker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static edu.trincoll.tracker.TestQuotes.controller;
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Meters recorded by {@link QuoteController} through {@link QuoteMetrics}.
+ */
+@DisplayName("QuoteMetrics Tests")
+class QuoteMetricsTest {
+
+    @Test
+    @DisplayName("should count conflicts, misses and search work")
+    void shouldRecordOutcomes() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QuoteController controller = controller(new QuoteStore(), registry, false);
+
+        controller.create(quote("Alpha"));
+        controller.create(quote("Alphabet"));
+        controller.create(quote("Alpha"));
+        controller.getById(99L, null);
+        controller.delete(99L, null);
+        controller.searchByName("alpha");
+
+        assertThat(registry.get("quotes.store.size").gauge().value()).isEqualTo(2.0);
+        assertThat(registry.get("quotes.conflicts").tag("endpoint", "create").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("quotes.not.found").tag("endpoint", "getById").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("quotes.not.found").tag("endpoint", "delete").counter().count()).isEqualTo(1.0);
+        assertThat(registry.get("quotes.search.results").tag("type", "name").summary().totalAmount()).isEqualTo(2.0);
+        assertThat(registry.get("quotes.search.scanned").tag("type", "name").functionCounter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("should only time request phases when detailed timing is on")
+    void shouldTimePhasesOnlyWhenEnabled() {
+        SimpleMeterRegistry off = new SimpleMeterRegistry();
+        controller(new QuoteStore(), off, false).create(quote("Alpha"));
+        assertThat(off.find("quotes.request.phase").timer()).isNull();
+
+        SimpleMeterRegistry on = new SimpleMeterRegistry();
+        controller(new QuoteStore(), on, true).create(quote("Alpha"));
+        assertThat(on.get("quotes.request.phase").tag("endpoint", "create").tag("phase", "validation")
+                .timer().count()).isEqualTo(1L);
+        assertThat(on.get("quotes.request.phase").tag("endpoint", "create").tag("phase", "index")
+                .timer().count()).isEqualTo(1L);
+    }
+}
@@ -0,0 +1,140 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Keyset paging of {@code GET /api/items} and the streaming read.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Paging and Streaming Tests")
+class QuotePagingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store.clear();
+        for (int i = 1; i <= 5; i++) {
+            Quote quote = new Quote();
+            quote.setQuoteName("Quote " + i);
+            quote.setQuoteContent("Content " + i);
+            mockMvc.perform(post("/api/items")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(quote)))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    @DisplayName("should follow Link rel=\"next\" through every page, with none on the last")
+    void shouldFollowNextLinks() throws Exception {
+        List<String> names = new ArrayList<>();
+        List<String> links = new ArrayList<>();
+        String next = "/api/items?limit=2";
+        while (next != null) {
+            MockHttpServletResponse page = mockMvc.perform(get(next))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andReturn().getResponse();
+            names.addAll(names(page.getContentAsByteArray()));
+            String link = page.getHeader(HttpHeaders.LINK);
+            links.add(link);
+            next = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+
+        assertThat(names).containsExactly("Quote 1", "Quote 2", "Quote 3", "Quote 4", "Quote 5");
+        assertThat(links).hasSize(3);
+        assertThat(links.get(0)).isEqualTo("</api/items?after=2&limit=2>; rel=\"next\"");
+        assertThat(links.get(2)).isNull();
+    }
+
+    @Test
+    @DisplayName("should leave out the Link when a full page ends the list")
+    void shouldOmitLinkOnExactLastPage() throws Exception {
+        mockMvc.perform(get("/api/items").param("after", "3").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+        mockMvc.perform(get("/api/items").param("after", "5").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    @DisplayName("should return 400 for a negative after or a limit out of range")
+    void shouldRejectBadPaging() throws Exception {
+        mockMvc.perform(get("/api/items").param("after", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/items").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/items").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/items").param("limit", "1000"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("should stream a JSON array by default and NDJSON when asked for it")
+    void shouldStreamBothFormats() throws Exception {
+        byte[] all = mockMvc.perform(get("/api/items")).andReturn().getResponse().getContentAsByteArray();
+
+        MockHttpServletResponse array = stream(get("/api/items/stream"), MediaType.APPLICATION_JSON);
+        assertThat(objectMapper.readValue(array.getContentAsByteArray(), Quote[].class))
+                .containsExactly(objectMapper.readValue(all, Quote[].class));
+
+        MockHttpServletResponse ndjson = stream(get("/api/items/stream").param("after", "2")
+                .accept(MediaType.APPLICATION_NDJSON), MediaType.APPLICATION_NDJSON);
+        List<String> lines = ndjson.getContentAsString().lines().toList();
+        assertThat(lines).hasSize(3);
+        List<String> names = new ArrayList<>();
+        for (String line : lines) {
+            names.add(objectMapper.readValue(line, Quote.class).getQuoteName());
+        }
+        assertThat(names).containsExactly("Quote 3", "Quote 4", "Quote 5");
+    }
+
+    /**
+     * Runs a streaming request through its async dispatch.
+     */
+    private MockHttpServletResponse stream(MockHttpServletRequestBuilder get, MediaType expected) throws Exception {
+        MvcResult started = mockMvc.perform(get)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(expected))
+                .andReturn().getResponse();
+    }
+
+    private List<String> names(byte[] json) throws Exception {
+        return Arrays.stream(objectMapper.readValue(json, Quote[].class)).map(Quote::getQuoteName).toList();
+    }
+}
@@ -0,0 +1,201 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Restarts a store from its write-ahead log and snapshots.
+ */
+@DisplayName("QuotePersistence Tests")
+class QuotePersistenceTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("quote-wal-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should recover creates, updates and deletes across a snapshot")
+    void shouldRecoverAcrossSnapshot() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        for (int i = 0; i < 50; i++) {
+            store.create(quote("Quote " + i, "before"));
+        }
+        persistence.snapshot();
+        store.update(3, quote("Renamed", "after"));
+        store.delete(4);
+        store.delete(50);
+        store.create(quote("Quote 4", "reused name"));
+        List<Quote> expected = snapshotOf(store);
+        long nextId = store.nextId();
+        // Simulate a crash: no final snapshot, the WAL tail has to carry the last changes
+        persistence.closeWithoutSnapshot();
+
+        QuoteStore recovered = new QuoteStore();
+        QuotePersistence reopened = open(recovered);
+
+        assertThat(snapshotOf(recovered)).containsExactlyElementsOf(expected);
+        assertThat(recovered.nextId()).isEqualTo(nextId);
+        assertThat(recovered.get(1).getCreatedAt()).isEqualTo(store.get(1).getCreatedAt());
+        assertThat(recovered.idForName("Renamed")).isEqualTo(3L);
+        assertThat(recovered.idForName("Quote 3")).isNull();
+        assertThat(recovered.searchByName("renamed")).hasSize(1);
+        assertThat(recovered.create(quote("Quote 5", "dup")).status()).isEqualTo(QuoteStore.Status.CONFLICT);
+        reopened.stop();
+    }
+
+    @Test
+    @DisplayName("should refuse writes after stopping rather than lose them")
+    void shouldRefuseWritesAfterStop() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        store.create(quote("Kept", "ok"));
+        persistence.stop();
+
+        assertThatThrownBy(() -> store.create(quote("Late", "after stop"))).isInstanceOf(RuntimeException.class);
+        assertThat(store.idForName("Late")).isNull();
+
+        QuoteStore recovered = new QuoteStore();
+        QuotePersistence reopened = open(recovered);
+        assertThat(snapshotOf(recovered)).containsExactlyElementsOf(snapshotOf(store));
+        reopened.stop();
+    }
+
+    @Test
+    @DisplayName("should ignore a torn record at the end of the log")
+    void shouldIgnoreTornTail() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        store.create(quote("Kept", "ok"));
+        persistence.closeWithoutSnapshot();
+
+        Path segment = WriteAheadLog.segments(directory).get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        QuoteStore recovered = new QuoteStore();
+        QuotePersistence reopened = open(recovered);
+        assertThat(recovered.size()).isEqualTo(1);
+        assertThat(recovered.get(1).getQuoteName()).isEqualTo("Kept");
+        reopened.stop();
+    }
+
+    @Test
+    @DisplayName("should fail writes the log can't take without changing the store")
+    void shouldNotApplyUnloggedWrites() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        store.create(quote("Kept", "ok"));
+        List<Quote> expected = snapshotOf(store);
+        persistence.closeLog();
+
+        assertThatThrownBy(() -> store.create(quote("Lost", "never logged"))).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> store.update(1, quote("Renamed", "never logged"))).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> store.delete(1)).isInstanceOf(RuntimeException.class);
+
+        assertThat(snapshotOf(store)).containsExactlyElementsOf(expected);
+        assertThat(store.idForName("Lost")).isNull();
+        assertThat(store.idForName("Renamed")).isNull();
+        assertThat(store.idForName("Kept")).isEqualTo(1L);
+        persistence.closeWithoutSnapshot();
+    }
+
+    @Test
+    @DisplayName("should roll back a batch whose records can't be made durable")
+    void shouldRollBackUnloggedBatch() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        store.create(quote("Kept", "ok"));
+        store.create(quote("Doomed", "ok"));
+        List<Quote> expected = snapshotOf(store);
+        persistence.closeLog();
+
+        List<QuoteBatch.Operation> operations = List.of(
+                new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote("Fresh", "new")),
+                new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, 1L, quote("Renamed", "changed")),
+                new QuoteBatch.Operation(QuoteBatch.Op.DELETE, 2L, null),
+                new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote("Doomed", "name freed above")));
+        // The appends are only awaited at the end of the batch, so every write was applied in between
+        assertThatThrownBy(() -> QuoteBatch.apply(store, operations.iterator())).isInstanceOf(RuntimeException.class);
+
+        assertThat(snapshotOf(store)).containsExactlyElementsOf(expected);
+        assertThat(store.idForName("Fresh")).isNull();
+        assertThat(store.idForName("Renamed")).isNull();
+        assertThat(store.idForName("Kept")).isEqualTo(1L);
+        assertThat(store.idForName("Doomed")).isEqualTo(2L);
+        persistence.closeWithoutSnapshot();
+    }
+
+    @Test
+    @DisplayName("should keep a batch rolled back after a restart when only its last commits failed")
+    void shouldRecoverPartlyCommittedBatchRolledBack() throws IOException {
+        QuoteStore store = new QuoteStore();
+        QuotePersistence persistence = open(store);
+        store.create(quote("Kept", "ok"));
+        store.create(quote("Doomed", "ok"));
+        List<Quote> expected = snapshotOf(store);
+
+        List<QuoteBatch.Operation> operations = new ArrayList<>();
+        operations.add(new QuoteBatch.Operation(QuoteBatch.Op.UPDATE, 1L, quote("Renamed", "changed")));
+        operations.add(new QuoteBatch.Operation(QuoteBatch.Op.DELETE, 2L, null));
+        for (int i = 0; i < 198; i++) {
+            operations.add(new QuoteBatch.Operation(QuoteBatch.Op.CREATE, null, quote("Fresh " + i, "new")));
+        }
+        // A commit holds at most 64 records, so the first one (from record 0) is made durable
+        // and a later one starting at record 100 or after fails
+        persistence.failCommitAfter(100);
+        assertThatThrownBy(() -> QuoteBatch.apply(store, operations.iterator())).isInstanceOf(RuntimeException.class);
+
+        assertThat(snapshotOf(store)).containsExactlyElementsOf(expected);
+        persistence.closeWithoutSnapshot();
+
+        QuoteStore recovered = new QuoteStore();
+        QuotePersistence reopened = open(recovered);
+        assertThat(snapshotOf(recovered)).containsExactlyElementsOf(expected);
+        assertThat(recovered.idForName("Renamed")).isNull();
+        assertThat(recovered.idForName("Fresh 0")).isNull();
+        assertThat(recovered.idForName("Doomed")).isEqualTo(2L);
+        reopened.stop();
+    }
+
+    private QuotePersistence open(QuoteStore store) throws IOException {
+        QuotePersistence persistence = new QuotePersistence(store, directory.toString(), Duration.ofHours(1), 64, false);
+        persistence.start();
+        return persistence;
+    }
+
+    private static List<Quote> snapshotOf(QuoteStore store) {
+        // The store hands out fresh objects, so this is a point-in-time copy
+        return new ArrayList<>(store.values());
+    }
+
+    private static Quote quote(String name, String content) {
+        Quote quote = TestQuotes.quote(name, content);
+        quote.setAuthor("Author of " + name);
+        return quote;
+    }
+}
@@ -0,0 +1,103 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Filtered queries answered from the attribute bitmaps must agree with a naive scan.
+ */
+@DisplayName("Filtered Query Tests")
+class QuoteQueryTest {
+
+    private static final String[] AUTHORS = {"Seneca", "Austen", "Twain", null};
+    private static final String[] CATEGORIES = {"life", "work", "humor"};
+
+    @Test
+    @DisplayName("should match a naive scan after random writes")
+    void shouldMatchNaiveScan() {
+        QuoteStore store = new QuoteStore();
+        Random random = new Random(17);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            ids.add(store.create(quote("Quote " + i, random)).quote().getId());
+        }
+        for (int i = 0; i < 1000; i++) {
+            long id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(4) == 0) {
+                store.delete(id);
+            } else {
+                store.update(id, quote("Quote " + (id - 1), random));
+            }
+        }
+
+        for (String author : AUTHORS) {
+            for (String category : CATEGORIES) {
+                for (Boolean completed : new Boolean[]{null, true, false}) {
+                    QuoteStore.Filter filter = new QuoteStore.Filter(author, null, category, completed);
+                    List<Long> expected = naive(store, filter, 0);
+                    assertThat(store.count(filter)).isEqualTo((long) expected.size());
+                    assertThat(ids(store.query(filter, 0, 5000))).isEqualTo(expected);
+
+                    // Paging from an id in the middle of a bitmap word
+                    long after = expected.isEmpty() ? 0 : expected.get(expected.size() / 2) - 1;
+                    assertThat(ids(store.query(filter, after, 10)))
+                            .isEqualTo(naive(store, filter, after).stream().limit(10).toList());
+                }
+            }
+        }
+        assertThat(store.count(new QuoteStore.Filter("Nobody", null, null, null))).isZero();
+    }
+
+    @Test
+    @DisplayName("should intersect ids that span several bitmap chunks")
+    void shouldSpanChunks() {
+        QuoteStore store = new QuoteStore();
+        List<Quote> recovered = new ArrayList<>();
+        long[] ids = {1, 63, 64, 65_535, 65_536, 200_000, 1L << 32};
+        for (long id : ids) {
+            Quote quote = new Quote();
+            quote.setId(id);
+            quote.setQuoteName("Quote " + id);
+            quote.setCategory("life");
+            quote.setCompleted(id % 2 == 0);
+            recovered.add(quote);
+        }
+        store.load(recovered, 1);
+
+        QuoteStore.Filter evenLife = new QuoteStore.Filter(null, null, "life", true);
+        assertThat(store.count(evenLife)).isEqualTo(4L);
+        assertThat(ids(store.query(evenLife, 0, 10))).containsExactly(64L, 65_536L, 200_000L, 1L << 32);
+        assertThat(ids(store.query(evenLife, 64, 10))).containsExactly(65_536L, 200_000L, 1L << 32);
+    }
+
+    private static List<Long> naive(QuoteStore store, QuoteStore.Filter filter, long afterId) {
+        List<Long> ids = new ArrayList<>();
+        for (Quote quote : store.valuesAfter(afterId)) {
+            if ((filter.author() == null || filter.author().equals(quote.getAuthor()))
+                    && (filter.category() == null || filter.category().equals(quote.getCategory()))
+                    && (filter.completed() == null || filter.completed() == quote.isCompleted())) {
+                ids.add(quote.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(List<Quote> quotes) {
+        return quotes.stream().map(Quote::getId).toList();
+    }
+
+    private static Quote quote(String name, Random random) {
+        Quote quote = new Quote();
+        quote.setQuoteName(name);
+        quote.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+        quote.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        quote.setCompleted(random.nextBoolean());
+        return quote;
+    }
+}
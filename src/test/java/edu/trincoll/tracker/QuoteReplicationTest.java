@@ -0,0 +1,196 @@
+package edu.trincoll.tracker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A leader and two followers as separate application instances on localhost.
+ */
+@DisplayName("Quote Replication Tests")
+class QuoteReplicationTest {
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("followers should catch up from a snapshot, follow writes and redirect their own")
+    void shouldReplicateToFollowers() throws Exception {
+        // A tiny change log on the leader, so a late follower has to start from a snapshot
+        String leader = start("--tracker.changes.capacity=8");
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(created(send(leader, "POST", "/api/items", quote("Quote " + i))));
+        }
+        String early = start("--tracker.replication.role=follower", "--tracker.replication.leader-url=" + leader);
+        awaitSame(leader, early);
+
+        send(leader, "PUT", "/api/items/" + ids.get(3), quote("Renamed"));
+        send(leader, "DELETE", "/api/items/" + ids.get(4), null);
+        long added = created(send(leader, "POST", "/api/items", quote("Quote 3")));
+        String late = start("--tracker.replication.role=follower", "--tracker.replication.leader-url=" + leader);
+
+        awaitSame(leader, early);
+        awaitSame(leader, late);
+        assertThat(send(late, "GET", "/api/items/" + added, null).body()).contains("\"name\":\"Quote 3\"");
+        assertThat(send(early, "GET", "/api/items/" + ids.get(4), null).statusCode()).isEqualTo(404);
+        // Versions and creation times are replicated too, so every node hands out the same ETag
+        assertThat(etag(early, ids.get(3))).isEqualTo(etag(leader, ids.get(3)));
+
+        HttpResponse<String> write = send(early, "POST", "/api/items", quote("Via follower"));
+        assertThat(write.statusCode()).isEqualTo(307);
+        assertThat(write.headers().firstValue("Location")).hasValue(leader + "/api/items");
+        HttpResponse<String> reactive = send(early, "PUT", "/api/reactive/items/" + ids.get(0), quote("Via reactive"));
+        assertThat(reactive.statusCode()).isEqualTo(307);
+        assertThat(reactive.headers().firstValue("Location")).hasValue(leader + "/api/reactive/items/" + ids.get(0));
+        assertThat(send(early, "DELETE", "/api/reactive/items/" + ids.get(0), null).statusCode()).isEqualTo(307);
+        assertThat(send(early, "GET", "/api/reactive/items/" + ids.get(0), null).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("a follower should drop its copy for a restarted leader's, even where its versions are higher")
+    void shouldResyncWithRestartedLeader() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        ConfigurableApplicationContext first = startNode("--server.port=" + port);
+        String leader = "http://localhost:" + port;
+        long id = created(send(leader, "POST", "/api/items", quote("Old")));
+        for (int i = 0; i < 3; i++) {
+            send(leader, "PUT", "/api/items/" + id, quote("Old " + i));
+        }
+        String follower = start("--tracker.replication.role=follower", "--tracker.replication.leader-url=" + leader);
+        awaitSame(leader, follower);
+
+        // Without persistence the new run starts over at id 1, version 1, change 1
+        first.close();
+        nodes.remove(first);
+        startNode("--server.port=" + port);
+        assertThat(created(send(leader, "POST", "/api/items", quote("New")))).isEqualTo(id);
+        created(send(leader, "POST", "/api/items", quote("Newer")));
+
+        awaitSame(leader, follower);
+        assertThat(send(follower, "GET", "/api/items/" + id, null).body()).contains("\"name\":\"New\"");
+        assertThat(etag(follower, id)).isEqualTo(etag(leader, id));
+    }
+
+    @Test
+    @DisplayName("a follower should take the leader's next id from its snapshot, past ids deleted before the copy")
+    void shouldNotReuseDeletedLeaderIds() throws Exception {
+        ConfigurableApplicationContext leaderNode = startNode();
+        String leader = "http://localhost:" + leaderNode.getEnvironment().getProperty("local.server.port");
+        long kept = created(send(leader, "POST", "/api/items", quote("Kept")));
+        for (int i = 0; i < 3; i++) {
+            long dropped = created(send(leader, "POST", "/api/items", quote("Dropped " + i)));
+            send(leader, "DELETE", "/api/items/" + dropped, null);
+        }
+        long leaderNext = leaderNode.getBean(QuoteStore.class).nextId();
+        assertThat(leaderNext).isEqualTo(kept + 4);
+
+        ConfigurableApplicationContext followerNode = startNode("--tracker.replication.role=follower",
+                "--tracker.replication.leader-url=" + leader);
+        QuoteStore follower = followerNode.getBean(QuoteStore.class);
+        // Applying the copied quotes alone would only reach kept + 1
+        await(() -> follower.nextId() == leaderNext);
+        assertThat(follower.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a follower should refuse a poll wait the leader would answer with 400")
+    void shouldRejectPollWaitBeyondLeaderLimit() {
+        assertThatThrownBy(() -> new QuoteReplica(new QuoteStore(), new SimpleMeterRegistry(),
+                URI.create("http://localhost:1"), Duration.ofSeconds(61), Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tracker.replication.poll-wait");
+    }
+
+    private String start(String... args) {
+        ConfigurableApplicationContext node = startNode(args);
+        return "http://localhost:" + node.getEnvironment().getProperty("local.server.port");
+    }
+
+    private ConfigurableApplicationContext startNode(String... args) {
+        List<String> all = new ArrayList<>(List.of(args));
+        if (all.stream().noneMatch(arg -> arg.startsWith("--server.port="))) {
+            all.add("--server.port=0");
+        }
+        all.add("--tracker.replication.poll-wait=1s");
+        all.add("--tracker.replication.retry-interval=100ms");
+        ConfigurableApplicationContext node = new SpringApplicationBuilder(TrackerApplication.class)
+                .run(all.toArray(String[]::new));
+        nodes.add(node);
+        return node;
+    }
+
+    private void awaitSame(String leader, String follower) throws Exception {
+        String expected = send(leader, "GET", "/api/items", null).body();
+        await(() -> expected.equals(sendQuietly(follower, "/api/items")));
+    }
+
+    private String etag(String node, long id) throws Exception {
+        return send(node, "GET", "/api/items/" + id, null).headers().firstValue("ETag").orElseThrow();
+    }
+
+    private HttpResponse<String> send(String node, String method, String path, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + path)).timeout(Duration.ofSeconds(10));
+        if (json == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json").method(method, HttpRequest.BodyPublishers.ofString(json));
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String sendQuietly(String node, String path) {
+        try {
+            return send(node, "GET", path, null).body();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static long created(HttpResponse<String> response) {
+        assertThat(response.statusCode()).isEqualTo(201);
+        String body = response.body();
+        int start = body.indexOf("\"id\":") + 5;
+        int end = start;
+        while (Character.isDigit(body.charAt(end))) {
+            end++;
+        }
+        return Long.parseLong(body.substring(start, end));
+    }
+
+    private static String quote(String name) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Replicated\",\"author\":\"Seneca\"}";
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A store split over several shards must answer exactly like a single-shard one.
+ */
+@DisplayName("Quote Sharding Tests")
+class QuoteShardingTest {
+
+    private static final String[] AUTHORS = {"Seneca", "Austen", "Twain", null};
+    private static final String[] CATEGORIES = {"life", "work", "humor"};
+    private static final String[] WORDS = {"time", "love", "stone", "river", "work", "light"};
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Test
+    @DisplayName("should merge every kind of query like a single shard")
+    void shouldMatchSingleShard() {
+        // Ids spread over many blocks, so every shard holds some
+        Random random = new Random(21);
+        List<Quote> recovered = new ArrayList<>();
+        long id = 0;
+        for (int i = 0; i < 2000; i++) {
+            id += 1 + random.nextInt(40);
+            recovered.add(quote(id, random));
+        }
+        QuoteStore single = new QuoteStore();
+        QuoteStore sharded = new QuoteStore(4);
+        single.load(recovered, id + 1);
+        sharded.load(recovered, id + 1);
+
+        assertThat(ids(sharded.values())).isEqualTo(ids(single.values()));
+        assertThat(ids(sharded.page(5000, 300))).isEqualTo(ids(single.page(5000, 300)));
+        assertThat(ids(sharded.valuesAfter(30_000))).isEqualTo(ids(single.valuesAfter(30_000)));
+        assertThat(ids(sharded.searchByName("7"))).isEqualTo(ids(single.searchByName("7")));
+        assertThat(ids(sharded.iterateByName("12"))).isEqualTo(ids(single.iterateByName("12")));
+        assertThat(ids(sharded.searchFullText("stone river", 25, 10)))
+                .isEqualTo(ids(single.searchFullText("stone river", 25, 10)));
+        QuoteStore.Filter filter = new QuoteStore.Filter("Austen", null, "life", null);
+        assertThat(sharded.count(filter)).isEqualTo(single.count(filter));
+        assertThat(ids(sharded.query(filter, 1000, 50))).isEqualTo(ids(single.query(filter, 1000, 50)));
+        assertThat(sharded.stats()).isEqualTo(single.stats());
+        assertThat(sharded.size()).isEqualTo(single.size());
+
+        QuoteStore.TimeCursor cursor = null;
+        List<Long> oldestFirst = new ArrayList<>();
+        do {
+            QuoteStore.TimePage page = sharded.createdBetween(T0.plusMinutes(100), null, cursor, 70);
+            oldestFirst.addAll(ids(page.quotes()));
+            cursor = page.next();
+        } while (cursor != null);
+        assertThat(oldestFirst).isEqualTo(ids(single.createdBetween(T0.plusMinutes(100), null, null, 5000).quotes()));
+        QuoteStore.TimePage newest = sharded.newest(null, 40);
+        assertThat(ids(newest.quotes())).isEqualTo(ids(single.newest(null, 40).quotes()));
+        assertThat(ids(sharded.newest(newest.next(), 40).quotes()))
+                .isEqualTo(ids(single.newest(newest.next(), 40).quotes()));
+    }
+
+    @Test
+    @DisplayName("should keep names unique and ids distinct across shards")
+    void shouldKeepNamesUniqueAcrossShards() throws Exception {
+        QuoteStore store = new QuoteStore(4);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                writers.add(pool.submit(() -> {
+                    // Every thread races every other for the same names
+                    for (int i = 0; i < 500; i++) {
+                        QuoteStore.WriteResult result = store.create(named("Name " + i));
+                        if (result.status() == QuoteStore.Status.OK) {
+                            assertThat(ids.add(result.quote().getId())).isTrue();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(store.size()).isEqualTo(500);
+        // One sequence for all shards, and conflicts don't burn ids
+        assertThat(ids).isEqualTo(LongStream.rangeClosed(1, 500).boxed().collect(Collectors.toSet()));
+        for (long id : ids) {
+            assertThat(store.get(id)).isNotNull();
+        }
+
+        // A rename into a name owned by a quote on another shard still conflicts
+        long first = store.idForName("Name 0");
+        Quote elsewhere = named("Elsewhere");
+        elsewhere.setId(QuoteShard.BLOCK_SIZE + 1);
+        elsewhere.setCreatedAt(T0);
+        store.replicate(elsewhere);
+        assertThat(QuoteShard.owner(elsewhere.getId(), 4)).isNotEqualTo(QuoteShard.owner(first, 4));
+        assertThat(store.update(elsewhere.getId(), named("Name 0")).status()).isEqualTo(QuoteStore.Status.CONFLICT);
+
+        // Recovered ids are never handed out again, whatever shard creates next
+        QuoteStore recovered = new QuoteStore(4);
+        recovered.load(store.values(), store.nextId());
+        long created = recovered.create(named("Fresh")).quote().getId();
+        assertThat(ids).doesNotContain(created);
+        assertThat(created).isGreaterThanOrEqualTo(store.nextId());
+    }
+
+    @Test
+    @DisplayName("ids should follow creation order across shards, so an after-cursor pages through every quote")
+    void shouldPageByIdAcrossShards() {
+        QuoteStore store = new QuoteStore(4);
+        List<Long> created = new ArrayList<>();
+        List<Long> paged = new ArrayList<>();
+        long after = 0;
+        // Creates and pages interleaved over several id blocks, as a client polling with ?after= would
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < QuoteShard.BLOCK_SIZE / 2; i++) {
+                created.add(store.create(named("Quote " + round + "-" + i)).quote().getId());
+            }
+            List<Quote> page;
+            do {
+                page = store.page(after, 700);
+                for (Quote quote : page) {
+                    paged.add(quote.getId());
+                    after = quote.getId();
+                }
+            } while (!page.isEmpty());
+        }
+
+        assertThat(created).isSorted();
+        assertThat(paged).isEqualTo(created);
+    }
+
+    private static List<Long> ids(Iterable<Quote> quotes) {
+        List<Long> ids = new ArrayList<>();
+        quotes.forEach(quote -> ids.add(quote.getId()));
+        return ids;
+    }
+
+    private static Quote named(String name) {
+        Quote quote = new Quote();
+        quote.setQuoteName(name);
+        return quote;
+    }
+
+    private static Quote quote(long id, Random random) {
+        Quote quote = new Quote();
+        quote.setId(id);
+        quote.setQuoteName("Quote " + id);
+        quote.setQuoteContent(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]);
+        quote.setAuthor(AUTHORS[random.nextInt(AUTHORS.length)]);
+        quote.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        quote.setCompleted(random.nextBoolean());
+        // Many quotes share a minute, so ties are broken by id
+        quote.setCreatedAt(T0.plusMinutes(random.nextInt(300)));
+        return quote;
+    }
+}
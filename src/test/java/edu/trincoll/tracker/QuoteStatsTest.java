@@ -0,0 +1,88 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Incrementally maintained counts must match a count over the store.
+ */
+@DisplayName("Quote Stats Tests")
+class QuoteStatsTest {
+
+    private static final String[] CATEGORIES = {"life", "work", "love", "humor"};
+    private static final String[] AUTHORS = {"Seneca", "Austen", "Twain"};
+
+    @Test
+    @DisplayName("should match a full count after concurrent moves between groups")
+    void shouldStayConsistentUnderConcurrentUpdates() throws Exception {
+        QuoteStore store = new QuoteStore();
+        int quotes = 200;
+        for (int i = 0; i < quotes; i++) {
+            store.create(quote(i, "life", "Seneca", false));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                writers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < 2000; n++) {
+                        // Several threads keep moving the same quotes between categories, authors and flags
+                        int i = random.nextInt(quotes);
+                        store.update(i + 1, quote(i, CATEGORIES[random.nextInt(CATEGORIES.length)],
+                                AUTHORS[random.nextInt(AUTHORS.length)], random.nextBoolean()));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        store.delete(1);
+        store.delete(2);
+
+        QuoteStore.Stats stats = store.stats();
+        Map<String, Long> categories = new TreeMap<>();
+        Map<String, Long> authors = new TreeMap<>();
+        Map<LocalDate, Long> days = new TreeMap<>();
+        long completed = 0;
+        for (Quote quote : store.values()) {
+            categories.merge(quote.getCategory(), 1L, Long::sum);
+            authors.merge(quote.getAuthor(), 1L, Long::sum);
+            days.merge(quote.getCreatedAt().toLocalDate(), 1L, Long::sum);
+            completed += quote.isCompleted() ? 1 : 0;
+        }
+
+        assertThat(stats.total()).isEqualTo(quotes - 2L);
+        assertThat(stats.completed()).isEqualTo(completed);
+        assertThat(stats.notCompleted()).isEqualTo(quotes - 2L - completed);
+        assertThat(stats.categories()).isEqualTo(categories);
+        assertThat(stats.authors()).isEqualTo(authors);
+        assertThat(stats.createdPerDay()).isEqualTo(days);
+        assertThat(stats.sources()).isEmpty();
+    }
+
+    private static Quote quote(int i, String category, String author, boolean completed) {
+        Quote quote = new Quote();
+        quote.setQuoteName("Quote " + i);
+        quote.setCategory(category);
+        quote.setAuthor(author);
+        quote.setCompleted(completed);
+        return quote;
+    }
+}
@@ -0,0 +1,211 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.trincoll.tracker.TestQuotes.quote;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers the store's name index from many threads at once.
+ */
+@DisplayName("QuoteStore Concurrency Tests")
+class QuoteStoreConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ROUNDS = 200;
+
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+    }
+
+    @Test
+    @DisplayName("concurrent creates with the same name should admit exactly one")
+    void concurrentCreatesAdmitOnePerName() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                QuoteStore.WriteResult result = store.create(quote("Name " + round));
+                if (result.status() == QuoteStore.Status.OK) {
+                    created.incrementAndGet();
+                } else {
+                    assertThat(result.status()).isEqualTo(QuoteStore.Status.CONFLICT);
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(created.get()).isEqualTo(ROUNDS);
+        assertThat(conflicts.get()).isEqualTo(ROUNDS * (THREADS - 1));
+        assertThat(store.size()).isEqualTo(ROUNDS);
+        for (Quote quote : store.values()) {
+            assertThat(store.idForName(quote.getQuoteName())).isEqualTo(quote.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("concurrent renames to the same name should admit exactly one")
+    void concurrentRenamesAdmitOne() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            ids.add(store.create(quote("Original " + thread)).quote().getId());
+        }
+        AtomicInteger renamed = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            QuoteStore.WriteResult result = store.update(ids.get(thread), quote("Target"));
+            if (result.status() == QuoteStore.Status.OK) {
+                renamed.incrementAndGet();
+            }
+        });
+
+        assertThat(renamed.get()).isEqualTo(1);
+        Long owner = store.idForName("Target");
+        assertThat(store.get(owner).getQuoteName()).isEqualTo("Target");
+        // Every quote still owns exactly its own current name
+        for (Quote quote : store.values()) {
+            assertThat(store.idForName(quote.getQuoteName())).isEqualTo(quote.getId());
+        }
+        assertThat(store.idForName("Original " + ids.indexOf(owner))).isNull();
+    }
+
+    @Test
+    @DisplayName("names should be released on delete while others race to claim them")
+    void deleteReleasesNameUnderContention() throws Exception {
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                QuoteStore.WriteResult result = store.create(quote("Shared"));
+                if (result.status() == QuoteStore.Status.OK) {
+                    assertThat(store.delete(result.quote().getId())).isTrue();
+                }
+            }
+        });
+
+        assertThat(store.size()).isZero();
+        assertThat(store.idForName("Shared")).isNull();
+        assertThat(store.create(quote("Shared")).status()).isEqualTo(QuoteStore.Status.OK);
+    }
+
+    @Test
+    @DisplayName("readers should always see ids in ascending order during inserts and deletes")
+    void readersSeeIdOrderDuringWrites() throws Exception {
+        AtomicInteger outOfOrder = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int round = 0; round < ROUNDS; round++) {
+                if (thread % 2 == 0) {
+                    QuoteStore.WriteResult result = store.create(quote("T" + thread + "-" + round));
+                    if (round % 3 == 0) {
+                        store.delete(result.quote().getId());
+                    }
+                } else {
+                    long previous = 0;
+                    for (Quote quote : store.values()) {
+                        if (quote.getId() <= previous) {
+                            outOfOrder.incrementAndGet();
+                        }
+                        previous = quote.getId();
+                    }
+                }
+            }
+        });
+
+        assertThat(outOfOrder.get()).isZero();
+        assertThat(store.values()).extracting(Quote::getId).isSorted();
+    }
+
+    @Test
+    @DisplayName("updates to one quote should be linearizable and never observed half-applied")
+    void updatesAreLinearizable() throws Exception {
+        long id = store.create(token("initial")).quote().getId();
+        // Order in which updates were applied, as seen by a listener under the quote's lock
+        Map<String, Integer> applied = new ConcurrentHashMap<>();
+        AtomicInteger sequence = new AtomicInteger();
+        applied.put("initial", sequence.getAndIncrement());
+        store.addListener(mutation -> applied.put(mutation.quote().getQuoteContent(), sequence.getAndIncrement()));
+        List<String[]> readAfterWrite = new CopyOnWriteArrayList<>();
+        List<String[]> readAfterRead = new CopyOnWriteArrayList<>();
+        AtomicInteger torn = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            String previous = null;
+            for (int round = 0; round < ROUNDS * 10; round++) {
+                if (thread % 4 != 0) {
+                    String written = "t" + thread + "-" + round;
+                    assertThat(store.update(id, token(written)).status()).isEqualTo(QuoteStore.Status.OK);
+                    readAfterWrite.add(new String[]{written, store.get(id).getQuoteContent()});
+                } else {
+                    Quote seen = store.get(id);
+                    // Every field of one update carries the same token
+                    if (!seen.getQuoteContent().equals(seen.getAuthor()) || !seen.getQuoteContent().equals(seen.getSource())) {
+                        torn.incrementAndGet();
+                    }
+                    if (previous != null) {
+                        readAfterRead.add(new String[]{previous, seen.getQuoteContent()});
+                    }
+                    previous = seen.getQuoteContent();
+                }
+            }
+        });
+
+        assertThat(torn.get()).isZero();
+        assertThat(applied).hasSize(1 + (THREADS - THREADS / 4) * ROUNDS * 10);
+        // A read never returns a value older than a write or read that finished before it started
+        for (String[] pair : readAfterWrite) {
+            assertThat(applied.get(pair[1])).isGreaterThanOrEqualTo(applied.get(pair[0]));
+        }
+        for (String[] pair : readAfterRead) {
+            assertThat(applied.get(pair[1])).isGreaterThanOrEqualTo(applied.get(pair[0]));
+        }
+        // The last update applied is the one that stuck
+        String last = store.get(id).getQuoteContent();
+        assertThat(applied.get(last)).isEqualTo(sequence.get() - 1);
+    }
+
+    private static Quote token(String token) {
+        Quote quote = new Quote();
+        quote.setQuoteName("Contended");
+        quote.setQuoteContent(token);
+        quote.setAuthor(token);
+        quote.setSource(token);
+        return quote;
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(ThreadBody body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    body.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Range and newest-first queries on createdAt, including ties and paging.
+ */
+@DisplayName("Time Index Tests")
+class QuoteTimeIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new QuoteStore();
+        // Ids and times deliberately out of order, with two quotes per minute
+        List<Quote> recovered = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            recovered.add(quote(i, T0.plusMinutes((11 - i) / 2)));
+        }
+        store.load(recovered, 11);
+    }
+
+    @Test
+    @DisplayName("should return a half-open range oldest first, ties by id")
+    void shouldQueryRange() {
+        QuoteStore.TimePage page = store.createdBetween(T0.plusMinutes(1), T0.plusMinutes(3), null, 100);
+
+        assertThat(ids(page)).containsExactly(8L, 9L, 6L, 7L);
+        assertThat(page.next()).isNull();
+        assertThat(ids(store.createdBetween(null, T0.plusMinutes(1), null, 100))).containsExactly(10L);
+    }
+
+    @Test
+    @DisplayName("should page through a range and the newest quotes with cursors")
+    void shouldPageWithCursors() {
+        List<Long> seen = new ArrayList<>();
+        QuoteStore.TimeCursor cursor = null;
+        do {
+            QuoteStore.TimePage page = store.createdBetween(null, null, cursor, 3);
+            seen.addAll(ids(page));
+            cursor = page.next() == null ? null : QuoteStore.TimeCursor.parse(page.next().toString());
+        } while (cursor != null);
+        assertThat(seen).containsExactly(10L, 8L, 9L, 6L, 7L, 4L, 5L, 2L, 3L, 1L);
+
+        QuoteStore.TimePage newest = store.newest(null, 4);
+        assertThat(ids(newest)).containsExactly(1L, 3L, 2L, 5L);
+        assertThat(ids(store.newest(newest.next(), 4))).containsExactly(4L, 7L, 6L, 9L);
+    }
+
+    @Test
+    @DisplayName("should follow creates and deletes")
+    void shouldFollowWrites() {
+        long created = store.create(quote(0, T0)).quote().getId();
+        store.delete(1L);
+
+        assertThat(ids(store.newest(null, 2))).containsExactly(created, 3L);
+        // createdAt is set by the server, so the new quote is the only one from minute 5 on
+        assertThat(ids(store.createdBetween(T0.plusMinutes(5), null, null, 10))).containsExactly(created);
+    }
+
+    private static List<Long> ids(QuoteStore.TimePage page) {
+        return page.quotes().stream().map(Quote::getId).toList();
+    }
+
+    private static Quote quote(long id, LocalDateTime createdAt) {
+        Quote quote = new Quote();
+        quote.setId(id);
+        quote.setQuoteName("Quote " + id + " " + createdAt);
+        quote.setCreatedAt(createdAt);
+        return quote;
+    }
+}
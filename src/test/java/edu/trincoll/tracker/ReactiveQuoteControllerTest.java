@@ -0,0 +1,226 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The reactive endpoints must answer exactly what their {@code /api/items}
+ * counterparts do; only the NDJSON streams are asynchronous.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Reactive Controller Tests")
+class ReactiveQuoteControllerTest {
+
+    private static final String SERVLET = "/api/items";
+    private static final String REACTIVE = "/api/reactive/items";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuoteStore store;
+
+    @BeforeEach
+    void setUp() {
+        store.clear();
+    }
+
+    @Test
+    @DisplayName("reads should match the servlet controller, including paging links and 400s")
+    void shouldMatchReads() throws Exception {
+        long first = create("Alpha", "life");
+        create("Beta", "work");
+        create("Gamma", "life");
+
+        assertSame(base -> get(base));
+        assertSame(base -> get(base).param("limit", "2"));
+        assertSame(base -> get(base).param("limit", "2").accept(MediaType.APPLICATION_CBOR));
+        assertSame(base -> get(base).accept(QuoteFormat.SMILE_VALUE));
+        assertSame(base -> get(base).param("after", "-1"));
+        assertSame(base -> get(base).param("limit", "0"));
+        assertSame(base -> get(base + "/" + first));
+        assertSame(base -> get(base + "/999"));
+        assertSame(base -> get(base + "/search").param("name", "Beta"));
+        assertSame(base -> get(base + "/search/text").param("q", "life"));
+        assertSame(base -> get(base + "/search/text").param("q", " "));
+        assertSame(base -> get(base + "/query").param("category", "life").param("limit", "1"));
+        assertSame(base -> get(base + "/query"));
+        assertSame(base -> get(base + "/created").param("limit", "2"));
+        assertSame(base -> get(base + "/recent").param("limit", "2"));
+        assertSame(base -> get(base + "/stats"));
+    }
+
+    @Test
+    @DisplayName("If-None-Match should give the same 304 on both controllers")
+    void shouldMatchNotModified() throws Exception {
+        long id = create("Cached", "life");
+        String etag = mockMvc.perform(get(REACTIVE + "/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertSame(base -> get(base + "/" + id).header(HttpHeaders.IF_NONE_MATCH, etag));
+        mockMvc.perform(get(REACTIVE + "/" + id).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("writes should give the same statuses, bodies and ETags as the servlet controller")
+    void shouldMatchWrites() throws Exception {
+        MockHttpServletResponse servlet = perform(post(SERVLET), quote("Servlet", "life"));
+        MockHttpServletResponse reactive = perform(post(REACTIVE), quote("Reactive", "life"));
+        assertThat(reactive.getStatus()).isEqualTo(201).isEqualTo(servlet.getStatus());
+        assertThat(reactive.getHeader(HttpHeaders.ETAG)).isEqualTo(servlet.getHeader(HttpHeaders.ETAG));
+        Quote created = objectMapper.readValue(reactive.getContentAsByteArray(), Quote.class);
+        assertThat(created.getQuoteName()).isEqualTo("Reactive");
+
+        // Duplicate name: 409 on both
+        assertThat(perform(post(REACTIVE), quote("Servlet", "work")).getStatus())
+                .isEqualTo(perform(post(SERVLET), quote("Reactive", "work")).getStatus())
+                .isEqualTo(409);
+
+        // Stale If-Match: 412
+        String id = String.valueOf(created.getId());
+        assertThat(perform(put(REACTIVE + "/" + id).header(HttpHeaders.IF_MATCH, "\"0\""), quote("Renamed", "work")).getStatus())
+                .isEqualTo(412);
+        assertThat(mockMvc.perform(delete(REACTIVE + "/" + id).header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andReturn().getResponse().getStatus()).isEqualTo(412);
+
+        MockHttpServletResponse updated = perform(put(REACTIVE + "/" + id)
+                .header(HttpHeaders.IF_MATCH, reactive.getHeader(HttpHeaders.ETAG)), quote("Renamed", "work"));
+        assertThat(updated.getStatus()).isEqualTo(200);
+        assertThat(objectMapper.readValue(updated.getContentAsByteArray(), Quote.class).getQuoteName()).isEqualTo("Renamed");
+        assertThat(updated.getContentAsString())
+                .isEqualTo(mockMvc.perform(get(SERVLET + "/" + id)).andReturn().getResponse().getContentAsString());
+
+        // Missing ids: 404 on both
+        assertThat(perform(put(REACTIVE + "/999"), quote("Nobody", "life")).getStatus()).isEqualTo(404);
+        assertThat(mockMvc.perform(delete(REACTIVE + "/999")).andReturn().getResponse().getStatus()).isEqualTo(404);
+
+        mockMvc.perform(delete(REACTIVE + "/" + id)).andExpect(status().isNoContent());
+        mockMvc.perform(get(SERVLET + "/" + id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("should stream all quotes, or those after an id, as NDJSON")
+    void shouldStreamAll() throws Exception {
+        long first = create("Alpha", "life");
+        create("Beta", "work");
+        create("Gamma", "life");
+
+        assertThat(names(stream(get(REACTIVE + "/stream")))).containsExactly("Alpha", "Beta", "Gamma");
+        assertThat(names(stream(get(REACTIVE + "/stream").param("after", String.valueOf(first)))))
+                .containsExactly("Beta", "Gamma");
+    }
+
+    @Test
+    @DisplayName("should stream name matches in id order as NDJSON, and nothing when none match")
+    void shouldStreamSearch() throws Exception {
+        create("Shared", "life");
+        create("Other", "work");
+
+        List<String> lines = stream(get(REACTIVE + "/search/stream").param("name", "Shared"));
+        assertThat(names(lines)).containsExactly("Shared");
+        assertThat(stream(get(REACTIVE + "/search/stream").param("name", "Missing"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("paging links should point back at the reactive routes")
+    void shouldLinkWithinReactiveRoutes() throws Exception {
+        create("Alpha", "life");
+        create("Beta", "life");
+        create("Gamma", "life");
+
+        assertThat(mockMvc.perform(get(REACTIVE).param("limit", "2")).andReturn().getResponse().getHeader(HttpHeaders.LINK))
+                .isEqualTo("<" + REACTIVE + "?after=2&limit=2>; rel=\"next\"");
+        assertThat(mockMvc.perform(get(REACTIVE + "/query").param("category", "life").param("limit", "1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK))
+                .startsWith("<" + REACTIVE + "/query?category=life&after=1&limit=1>");
+        assertThat(mockMvc.perform(get(REACTIVE + "/recent").param("limit", "2"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LINK))
+                .startsWith("<" + REACTIVE + "/recent?cursor=");
+    }
+
+    /**
+     * Sends the same request to both controllers and compares everything a client
+     * can see; Links only differ in pointing back at their own route.
+     */
+    private void assertSame(Function<String, MockHttpServletRequestBuilder> build) throws Exception {
+        MockHttpServletResponse servlet = mockMvc.perform(build.apply(SERVLET)).andReturn().getResponse();
+        MockHttpServletResponse reactive = mockMvc.perform(build.apply(REACTIVE))
+                .andExpect(request().asyncNotStarted())
+                .andReturn().getResponse();
+
+        assertThat(reactive.getStatus()).isEqualTo(servlet.getStatus());
+        assertThat(reactive.getContentType()).isEqualTo(servlet.getContentType());
+        assertThat(reactive.getContentAsByteArray()).isEqualTo(servlet.getContentAsByteArray());
+        assertThat(reactive.getHeader(HttpHeaders.ETAG)).isEqualTo(servlet.getHeader(HttpHeaders.ETAG));
+        String link = servlet.getHeader(HttpHeaders.LINK);
+        assertThat(reactive.getHeader(HttpHeaders.LINK)).isEqualTo(link == null ? null : link.replace(SERVLET, REACTIVE));
+    }
+
+    /**
+     * Runs a stream request through its async dispatch and returns the NDJSON lines.
+     */
+    private List<String> stream(MockHttpServletRequestBuilder get) throws Exception {
+        MvcResult started = mockMvc.perform(get)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        return body.lines().filter(line -> !line.isBlank()).toList();
+    }
+
+    private List<String> names(List<String> lines) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (String line : lines) {
+            names.add(objectMapper.readValue(line, Quote.class).getQuoteName());
+        }
+        return names;
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request, Quote quote) throws Exception {
+        return mockMvc.perform(request
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(quote)))
+                .andReturn().getResponse();
+    }
+
+    private long create(String name, String category) throws Exception {
+        MockHttpServletResponse response = perform(post(SERVLET), quote(name, category));
+        assertThat(response.getStatus()).isEqualTo(201);
+        return objectMapper.readValue(response.getContentAsByteArray(), Quote.class).getId();
+    }
+
+    private static Quote quote(String name, String category) {
+        Quote quote = new Quote();
+        quote.setQuoteName(name);
+        quote.setQuoteContent("A quote about " + category);
+        quote.setCategory(category);
+        return quote;
+    }
+}
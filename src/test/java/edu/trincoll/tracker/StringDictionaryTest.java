@@ -0,0 +1,27 @@
+package edu.trincoll.tracker;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("String Dictionary Tests")
+class StringDictionaryTest {
+
+    @Test
+    @DisplayName("should share equal strings, and stop taking new ones at the cap")
+    void shouldShareUpToCap() {
+        StringDictionary strings = new StringDictionary(2);
+        String seneca = strings.canonical("Seneca");
+        assertThat(strings.canonical(new String("Seneca"))).isSameAs(seneca);
+        strings.canonical("Austen");
+
+        String twain = new String("Twain");
+        assertThat(strings.canonical(twain)).isSameAs(twain);
+        assertThat(strings.canonical(new String("Twain"))).isNotSameAs(twain);
+        assertThat(strings.size()).isEqualTo(2);
+        // Strings taken before the cap are still shared
+        assertThat(strings.canonical(new String("Austen"))).isSameAs(strings.canonical("Austen"));
+        assertThat(strings.canonical(null)).isNull();
+    }
+}
@@ -0,0 +1,43 @@
+package edu.trincoll.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Quotes, and a controller wired by hand, for tests that don't start Spring.
+ */
+final class TestQuotes {
+
+    private TestQuotes() {
+    }
+
+    /**
+     * A quote named {@code name}, described as "About" the name.
+     */
+    static Quote quote(String name) {
+        return quote(name, "About " + name);
+    }
+
+    static Quote quote(String name, String content) {
+        Quote quote = new Quote();
+        quote.setQuoteName(name);
+        quote.setQuoteContent(content);
+        return quote;
+    }
+
+    static QuoteController controller(QuoteStore store) {
+        return controller(store, new SimpleMeterRegistry(), false);
+    }
+
+    /**
+     * A controller over {@code store} wired like the application's, with its own JSON cache and meters.
+     */
+    static QuoteController controller(QuoteStore store, MeterRegistry registry, boolean detailedTiming) {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        QuoteJsonCache jsonCache = new QuoteJsonCache(store, mapper, DataSize.ofMegabytes(1));
+        return new QuoteController(store, mapper, new QuoteMetrics(registry, store, jsonCache, detailedTiming), jsonCache);
+    }
+}